@@ -11,4 +11,8 @@ import com.cts.dto.Redemption;
 public interface CustomerServiceClient {
     @GetMapping("/api/users/redemptions")
     List<Redemption> getAllRedemptions();
+
+    // Count only - avoids pulling every redemption just to call size()
+    @GetMapping("/api/users/redemptions/count")
+    long countRedemptions();
 }
\ No newline at end of file
@@ -40,11 +40,11 @@ public class AnalyticsService {
         try {
             int users = userClient.getAllUsers().size();
             int offers = promotionClient.getAllOffers().size();
-            int redemptions = redemptionClient.getAllRedemptions().size();
+            long redemptions = redemptionClient.countRedemptions();
 
             double rate = users > 0 ? (double) redemptions / users * 100 : 0;
 
-            return new KPIResponse((long) users, (long) offers, (long) redemptions, rate);
+            return new KPIResponse((long) users, (long) offers, redemptions, rate);
         } catch (Exception ex) {
             logger.error("Error while fetching KPIs from microservices", ex);
             return new KPIResponse(0L, 0L, 0L, 0.0);
@@ -118,7 +118,7 @@ public class AnalyticsService {
                         List.of("Total Offers"), List.of(offerCount));
             }
             case "redemption" -> {
-                int redemptionCount = redemptionClient.getAllRedemptions().size();
+                int redemptionCount = (int) redemptionClient.countRedemptions();
                 yield new ReportResponse(metric, startDate, endDate,
                         List.of("Total Redemptions"), List.of(redemptionCount));
             }
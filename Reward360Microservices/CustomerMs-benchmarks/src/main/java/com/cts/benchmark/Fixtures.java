@@ -0,0 +1,147 @@
+package com.cts.benchmark;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.cts.dto.OfferDto;
+import com.cts.entity.Redemption;
+import com.cts.entity.Transaction;
+import com.cts.feign.PromotionFeignClient;
+import com.cts.service.OfferCatalog;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * In-memory data for the benchmarks, shaped like production rows. Seeded, so
+ * every run benchmarks the same data.
+ */
+final class Fixtures {
+
+    private static final String[] TIER_LEVELS = { "All", "BRONZE", "SILVER", "GOLD", "PLATINUM" };
+    private static final String[] CATEGORIES = { "Dining", "Travel", "Electronics", "Fashion", "Groceries" };
+    private static final String[] STORES = { "Online", "Mall Road", "Airport", "Downtown", "Claim" };
+
+    private Fixtures() {
+    }
+
+    /**
+     * The ObjectMapper as Spring Boot configures it (JavaTimeModule, ISO dates).
+     */
+    static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    /**
+     * Offers spread over every tier level, one in ten inactive.
+     */
+    static List<OfferDto> offers(int count) {
+        SplittableRandom random = new SplittableRandom(42);
+        LocalDate today = LocalDate.now();
+        List<OfferDto> offers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            OfferDto offer = new OfferDto();
+            offer.setId((long) i + 1);
+            offer.setTitle("Offer " + (i + 1) + " - " + CATEGORIES[i % CATEGORIES.length] + " voucher");
+            offer.setCategory(CATEGORIES[i % CATEGORIES.length]);
+            offer.setDescription("Redeem for a " + (5 + random.nextInt(50)) + "% discount at participating "
+                    + "stores. Valid once per member, cannot be combined with other promotions.");
+            offer.setCostPoints(100 * (1 + random.nextInt(50)));
+            offer.setStartDate(today.minusDays(random.nextInt(30)));
+            offer.setEndDate(today.plusDays(30 + random.nextInt(90)));
+            offer.setTierLevel(TIER_LEVELS[random.nextInt(TIER_LEVELS.length)]);
+            offer.setImageUrl("https://cdn.example.com/offers/" + (i + 1) + ".png");
+            offer.setActive(random.nextInt(10) != 0);
+            offers.add(offer);
+        }
+        return offers;
+    }
+
+    /**
+     * A user's history, newest first: mostly claims, some redemptions and
+     * expiries.
+     */
+    static List<Transaction> transactions(int count) {
+        SplittableRandom random = new SplittableRandom(7);
+        LocalDate date = LocalDate.now();
+        List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setId((long) count - i);
+            int kind = random.nextInt(10);
+            if (kind < 7) {
+                transaction.setType("CLAIM");
+                transaction.setExternalId("CLM-" + (1712131180421218304L + i));
+                transaction.setPointsEarned(10 * (1 + random.nextInt(100)));
+                transaction.setStore("Claim");
+                transaction.setExpiry(date.plusMonths(4));
+                transaction.setNote("Claimed: Order " + (10000 + i));
+            } else if (kind < 9) {
+                transaction.setType("REDEMPTION");
+                transaction.setExternalId("RED-" + (1712131180421218304L + i));
+                transaction.setPointsRedeemed(100 * (1 + random.nextInt(20)));
+                transaction.setStore(STORES[random.nextInt(STORES.length)]);
+                transaction.setNote("Redeemed: Offer " + (1 + random.nextInt(1000)));
+            } else {
+                transaction.setType("EXPIRY");
+                transaction.setExternalId("EXP-" + (1712131180421218304L + i));
+                transaction.setPointsRedeemed(10 * (1 + random.nextInt(50)));
+                transaction.setStore("Expiry");
+                transaction.setNote("Points expired");
+            }
+            transaction.setDate(date);
+            transaction.setUserId(42L);
+            transactions.add(transaction);
+            if (random.nextInt(3) == 0) {
+                date = date.minusDays(1);
+            }
+        }
+        return transactions;
+    }
+
+    static List<Redemption> redemptions(int count) {
+        SplittableRandom random = new SplittableRandom(11);
+        LocalDate date = LocalDate.now();
+        List<Redemption> redemptions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Redemption redemption = new Redemption();
+            redemption.setId((long) count - i);
+            redemption.setConfirmationCode("CNF-" + Long.toHexString(random.nextLong()).toUpperCase());
+            redemption.setTransactionId("RED-" + (1712131180421218304L + i));
+            redemption.setDate(date.minusDays(i / 3));
+            redemption.setCostPoints(100 * (1 + random.nextInt(20)));
+            redemption.setOfferTitle("Offer " + (1 + random.nextInt(1000)) + " - Dining voucher");
+            redemption.setStore(STORES[random.nextInt(STORES.length)]);
+            redemption.setUserId(42L);
+            redemptions.add(redemption);
+        }
+        return redemptions;
+    }
+
+    /**
+     * An OfferCatalog serving the given offers, without Promotionservice.
+     * The snapshot stays fresh for the whole run.
+     */
+    static OfferCatalog offerCatalog(List<OfferDto> offers) {
+        OfferCatalog catalog = new OfferCatalog();
+        ReflectionTestUtils.setField(catalog, "promotionFeignClient", new PromotionFeignClient() {
+            @Override
+            public List<OfferDto> getAllOffers() {
+                return offers;
+            }
+
+            @Override
+            public OfferDto getOfferById(Long id) {
+                return null;
+            }
+        });
+        long day = 24L * 60 * 60 * 1000;
+        ReflectionTestUtils.setField(catalog, "ttlMs", day);
+        ReflectionTestUtils.setField(catalog, "refreshAheadMs", day);
+        ReflectionTestUtils.setField(catalog, "maxStaleMs", day);
+        return catalog;
+    }
+}
@@ -0,0 +1,83 @@
+package com.cts.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cts.dto.TransactionResponse;
+import com.cts.entity.Redemption;
+import com.cts.entity.Transaction;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * History endpoints and the customer summary: mapping Transaction entities
+ * to TransactionResponse, and JSON serialization of Transaction and
+ * Redemption lists of a user's history length.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HistoryBenchmark {
+
+    private static final TypeReference<List<TransactionResponse>> RESPONSE_LIST = new TypeReference<>() {
+    };
+
+    @Param({ "10", "100", "1000" })
+    public int history;
+
+    private ObjectMapper objectMapper;
+    private List<Transaction> transactions;
+    private List<Redemption> redemptions;
+    private byte[] responsesJson;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = Fixtures.objectMapper();
+        transactions = Fixtures.transactions(history);
+        redemptions = Fixtures.redemptions(history);
+        responsesJson = objectMapper.writeValueAsBytes(mapTransactions());
+    }
+
+    // As CustomerSummaryService maps the recent transactions
+    @Benchmark
+    public List<TransactionResponse> mapTransactions() {
+        List<TransactionResponse> responses = new ArrayList<>(transactions.size());
+        for (Transaction t : transactions) {
+            responses.add(new TransactionResponse(t.getId(), t.getExternalId(), t.getType(), t.getPointsEarned(),
+                    t.getPointsRedeemed(), t.getStore(), t.getDate(), t.getExpiry(), t.getNote()));
+        }
+        return responses;
+    }
+
+    @Benchmark
+    public byte[] serializeTransactions() throws Exception {
+        return objectMapper.writeValueAsBytes(transactions);
+    }
+
+    @Benchmark
+    public byte[] serializeRedemptions() throws Exception {
+        return objectMapper.writeValueAsBytes(redemptions);
+    }
+
+    // The customer summary reads its recent transactions back from JSON
+    @Benchmark
+    public List<TransactionResponse> deserializeTransactionResponses() throws Exception {
+        return objectMapper.readValue(responsesJson, RESPONSE_LIST);
+    }
+}
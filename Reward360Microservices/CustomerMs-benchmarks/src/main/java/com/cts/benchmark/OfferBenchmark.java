@@ -0,0 +1,73 @@
+package com.cts.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.cts.dto.OfferDto;
+import com.cts.service.OfferCatalog;
+import com.cts.service.OfferEligibilityIndex;
+import com.cts.service.Pointsservice;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Offer browsing: the GET /offers/teir/{tier} lookup, rebuilding the tier
+ * eligibility index after a catalog refresh, and serializing a tier's offers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OfferBenchmark {
+
+    @Param({ "10", "100", "1000", "10000" })
+    public int offers;
+
+    private Pointsservice pointsservice;
+    private OfferEligibilityIndex eligibilityIndex;
+    private OfferCatalog.Snapshot snapshot;
+    private ObjectMapper objectMapper;
+    private List<OfferDto> goldOffers;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Fixtures.objectMapper();
+        OfferCatalog catalog = Fixtures.offerCatalog(Fixtures.offers(offers));
+        eligibilityIndex = new OfferEligibilityIndex();
+        ReflectionTestUtils.setField(eligibilityIndex, "offerCatalog", catalog);
+        ReflectionTestUtils.setField(eligibilityIndex, "objectMapper", objectMapper);
+        pointsservice = new Pointsservice();
+        ReflectionTestUtils.setField(pointsservice, "offerEligibilityIndex", eligibilityIndex);
+        snapshot = catalog.current();
+        goldOffers = pointsservice.getOffersByTier("GOLD");
+    }
+
+    @Benchmark
+    public List<OfferDto> getOffersByTier() {
+        return pointsservice.getOffersByTier("GOLD");
+    }
+
+    @Benchmark
+    public Object rebuildEligibilityIndex() {
+        return ReflectionTestUtils.invokeMethod(eligibilityIndex, "build", snapshot);
+    }
+
+    @Benchmark
+    public byte[] serializeTierOffers() throws Exception {
+        return objectMapper.writeValueAsBytes(goldOffers);
+    }
+}
@@ -0,0 +1,60 @@
+package com.cts.benchmark;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.cts.entity.CustomerProfile;
+import com.cts.service.TierPolicy;
+
+/**
+ * Pointsservice.recalculateTier: the tier of a profile from its lifetime
+ * points, over profiles spread across every tier.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TierBenchmark {
+
+    private static final int PROFILES = 1024;
+
+    private TierPolicy tierPolicy;
+    private CustomerProfile[] profiles;
+
+    @Setup
+    public void setUp() {
+        tierPolicy = new TierPolicy(); // Default thresholds
+        SplittableRandom random = new SplittableRandom(3);
+        profiles = new CustomerProfile[PROFILES];
+        for (int i = 0; i < PROFILES; i++) {
+            profiles[i] = new CustomerProfile();
+            profiles[i].setUserId((long) i);
+            profiles[i].setLifetimePoints(random.nextInt(15000));
+        }
+    }
+
+    // Same body as the private Pointsservice.recalculateTier
+    @Benchmark
+    @OperationsPerInvocation(PROFILES)
+    public void recalculateTier(Blackhole blackhole) {
+        for (CustomerProfile profile : profiles) {
+            profile.setLoyaltyTier(tierPolicy.tierFor(profile.getLifetimePoints()));
+            blackhole.consume(profile);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+#!/usr/bin/env bash
+# Self-contained CustomerMs load test: runs LoadHarness, which starts the
+# service on in-memory H2 with local stubs for Promotionservice and Fraud_MS.
+# Needs only JDK 21 and Maven.
+#
+#   bench/load-harness.sh [key=value ...]
+#   bench/load-harness.sh users=500 duration=120 mix=claim:50,redeem:30,history:20
+#   bench/load-harness.sh virtual=true points.mailbox.enabled=true
+#
+# See LoadHarness for the options. Throughput and latency percentiles are
+# printed as CSV; HDR percentile distributions go to bench/load-harness/.
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+mvn -B -q -DskipTests test-compile dependency:build-classpath \
+  -Dmdep.includeScope=test -Dmdep.outputFile=target/test-classpath.txt
+CP="target/test-classes:target/classes:$(cat target/test-classpath.txt)"
+
+java -cp "$CP" com.cts.benchmark.LoadHarness "$@"
@@ -0,0 +1,51 @@
+#!/usr/bin/env bash
+# Compares platform-thread and virtual-thread request handling in CustomerMs.
+# Starts the packaged service once per mode (the "virtual" profile adds virtual
+# threads and the JDK HTTP Feign client) and runs LoadGenerator at each
+# concurrency level against the same endpoint. By default every client claims
+# points for its own registered user, a write path through the database. Needs
+# JDK 21, MySQL and the services the chosen endpoint calls.
+#
+#   bench/vt-benchmark.sh [url-path] [levels] [seconds] [json body]
+#   bench/vt-benchmark.sh '/api/users/claim/user/{user}' 1000,5000,10000 30 '{"note":"Bench","points":10}'
+#   bench/vt-benchmark.sh /api/users/offers/teir/GOLD 1000 30 ''   # GET, no body
+#
+# Results are appended to bench/results.csv. Raise the open-file limit
+# (ulimit -n) above the highest client count on both sides.
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+URL_PATH="${1:-/api/users/claim/user/{user\}}"
+LEVELS="${2:-1000,5000,10000}"
+SECONDS_PER_LEVEL="${3:-30}"
+BODY="${4-{\"note\":\"Bench\",\"points\":10\}}"
+PORT="${BENCH_PORT:-8081}"
+RESULTS=bench/results.csv
+
+mvn -B -q -DskipTests package test-compile
+CP="target/test-classes"
+WAR=$(ls target/CustomerMs-*.war | head -1)
+
+for MODE in platform virtual; do
+  PROFILE=default
+  [ "$MODE" = virtual ] && PROFILE=virtual
+  java -Djdk.tracePinnedThreads=short -jar "$WAR" \
+    --server.port="$PORT" \
+    --spring.profiles.active="$PROFILE" \
+    --ids.node-id="${IDS_NODE_ID:-0}" \
+    > "bench/customerms-$MODE.log" 2>&1 &
+  APP=$!
+  trap 'kill $APP 2>/dev/null || true' EXIT
+  until curl -sf "http://localhost:$PORT/v3/api-docs" > /dev/null; do
+    kill -0 $APP 2>/dev/null || { echo "CustomerMs failed to start, see bench/customerms-$MODE.log"; exit 1; }
+    sleep 1
+  done
+  ARGS=("http://localhost:$PORT$URL_PATH" "$MODE" "$LEVELS" "$SECONDS_PER_LEVEL" 10)
+  [ -n "$BODY" ] && ARGS+=("$BODY")
+  java -cp "$CP" com.cts.benchmark.LoadGenerator "${ARGS[@]}" | tee -a "$RESULTS"
+  kill $APP
+  wait $APP 2>/dev/null || true
+  # grep -c exits 1 when nothing is pinned, which set -e would treat as a failure
+  PINNED=$(grep -c "pinned" "bench/customerms-$MODE.log" || true)
+  echo "pinned-thread stack traces ($MODE): $PINNED"
+done
@@ -0,0 +1,76 @@
+package com.cts.config;
+
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Primary/replica DataSources, used when datasource.replica.enabled=true.
+ * The primary pool is built from spring.datasource.* (pool settings under
+ * spring.datasource.hikari.*), the replica pool from datasource.replica.*
+ * (pool settings under datasource.replica.hikari.*). The application sees one
+ * routing DataSource: @Transactional(readOnly = true) work goes to the
+ * replica, everything else to the primary. Each pool reports its own
+ * hikaricp.connections.* metrics, tagged pool=primary or pool=replica.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName(ReadWriteRoutingDataSource.PRIMARY);
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(@Value("${datasource.replica.url}") String url,
+            @Value("${datasource.replica.username:${spring.datasource.username:}}") String username,
+            @Value("${datasource.replica.password:${spring.datasource.password:}}") String password,
+            @Value("${datasource.replica.driver-class-name:${spring.datasource.driver-class-name:}}") String driver) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        if (!driver.isEmpty()) {
+            dataSource.setDriverClassName(driver);
+        }
+        dataSource.setPoolName(ReadWriteRoutingDataSource.REPLICA);
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+            @Qualifier("replicaDataSource") DataSource replica, ReplicaLagGuard guard, MeterRegistry registry) {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(guard, registry);
+        routing.setTargetDataSources(Map.of(ReadWriteRoutingDataSource.PRIMARY, primary,
+                ReadWriteRoutingDataSource.REPLICA, replica));
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+        Gauge.builder("customerms.datasource.replica.lag", guard, ReplicaLagGuard::getLagSeconds)
+                .description("Seconds the replica is behind the primary, -1 if unknown")
+                .baseUnit("seconds")
+                .register(registry);
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
@@ -0,0 +1,23 @@
+package com.cts.config;
+
+import feign.Capability;
+import feign.Client;
+
+/**
+ * Adds the time of each Feign call to the current {@link RequestTimings}.
+ * Public because Feign looks up the enrich methods reflectively.
+ */
+public class FeignTimingCapability implements Capability {
+
+    @Override
+    public Client enrich(Client client) {
+        return (request, options) -> {
+            long start = System.nanoTime();
+            try {
+                return client.execute(request, options);
+            } finally {
+                RequestTimings.addFeign(System.nanoTime() - start);
+            }
+        };
+    }
+}
@@ -0,0 +1,48 @@
+package com.cts.config;
+
+import org.hibernate.SessionEventListener;
+
+/**
+ * Adds the time each session spends preparing and executing JDBC statements
+ * and batches to the current {@link RequestTimings}. Hibernate creates one
+ * per session from hibernate.session.events.auto, so the start marks need no
+ * synchronization.
+ */
+public class JpaTimingListener implements SessionEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    private long prepareStart;
+    private long executeStart;
+    private long batchStart;
+
+    @Override
+    public void jdbcPrepareStatementStart() {
+        prepareStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcPrepareStatementEnd() {
+        RequestTimings.addJpa(System.nanoTime() - prepareStart);
+    }
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        executeStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        RequestTimings.addJpa(System.nanoTime() - executeStart);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        batchStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        RequestTimings.addJpa(System.nanoTime() - batchStart);
+    }
+}
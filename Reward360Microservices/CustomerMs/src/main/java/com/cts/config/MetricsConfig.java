@@ -0,0 +1,28 @@
+package com.cts.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Per-request JPA and Feign timings. The JPA side is
+ * {@link JpaTimingListener}, registered through
+ * spring.jpa.properties.hibernate.session.events.auto; the Feign side wraps
+ * the client of every Feign interface
+ * ({@link FeignTimingCapability}). Hikari pool gauges
+ * (hikaricp.connections.*) come from the actuator auto-configuration.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public RequestTimingFilter requestTimingFilter(MeterRegistry registry) {
+        return new RequestTimingFilter(registry);
+    }
+
+    @Bean
+    public FeignTimingCapability feignTimingCapability() {
+        return new FeignTimingCapability();
+    }
+}
@@ -0,0 +1,42 @@
+package com.cts.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Sends connections of read-only transactions to the replica pool and
+ * everything else to the primary, unless the {@link ReplicaLagGuard} keeps
+ * the read on the primary. Wrapped in a LazyConnectionDataSourceProxy, so the
+ * choice is made at the first statement, once the transaction's read-only
+ * flag is known. Each choice is counted in customerms.datasource.routed,
+ * tagged with target and reason.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+    static final String REPLICA = "replica";
+
+    private final ReplicaLagGuard guard;
+    private final MeterRegistry registry;
+
+    public ReadWriteRoutingDataSource(ReplicaLagGuard guard, MeterRegistry registry) {
+        this.guard = guard;
+        this.registry = registry;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return routed(PRIMARY, "write");
+        }
+        String reason = guard.primaryReason();
+        return reason == null ? routed(REPLICA, "read") : routed(PRIMARY, reason);
+    }
+
+    private String routed(String target, String reason) {
+        registry.counter("customerms.datasource.routed", "target", target, "reason", reason).increment();
+        return target;
+    }
+}
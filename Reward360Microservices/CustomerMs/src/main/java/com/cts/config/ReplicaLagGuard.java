@@ -0,0 +1,154 @@
+package com.cts.config;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Decides when a read-only transaction must stay on the primary even though
+ * a replica is configured (datasource.replica.enabled=true):
+ *
+ * - Read-your-writes: users with points activity committed on this instance
+ *   in the last read-your-writes-ms have their history read from the primary.
+ *   Writers report users through PointsActivity; readers call
+ *   {@link #pinIfRecentWrite} before their first query.
+ * - Replica lag: every lag-check-interval-ms the replica runs lag-query
+ *   (SHOW REPLICA STATUS). While Seconds_Behind_Source is above
+ *   max-lag-seconds, unknown, or the check fails, all reads use the primary.
+ *
+ * Does nothing while the replica is disabled.
+ */
+@Component
+public class ReplicaLagGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagGuard.class);
+
+    @Value("${datasource.replica.enabled:false}")
+    private boolean enabled;
+
+    @Value("${datasource.replica.read-your-writes-ms:5000}")
+    private long readYourWritesMs;
+
+    @Value("${datasource.replica.max-lag-seconds:2}")
+    private long maxLagSeconds;
+
+    @Value("${datasource.replica.lag-query:SHOW REPLICA STATUS}")
+    private String lagQuery;
+
+    @Autowired(required = false)
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    private final Map<Long, Long> lastWrites = new ConcurrentHashMap<>();
+    private volatile boolean replicaCurrent = true;
+    private volatile long lagSeconds;
+
+    /**
+     * Remember that these users' changes have just committed.
+     */
+    public void recordWrites(Collection<Long> userIds) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (Long userId : userIds) {
+            lastWrites.put(userId, now);
+        }
+        if (lastWrites.size() > 10_000) {
+            lastWrites.values().removeIf(at -> now - at > readYourWritesMs);
+        }
+    }
+
+    /**
+     * Keep the current read-only transaction on the primary if the user wrote
+     * recently. Must be called before the transaction's first query.
+     */
+    public void pinIfRecentWrite(Long userId) {
+        if (!enabled || userId == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        Long at = lastWrites.get(userId);
+        if (at == null || System.currentTimeMillis() - at > readYourWritesMs
+                || TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, userId);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ReplicaLagGuard.this);
+            }
+        });
+    }
+
+    /**
+     * Why the current read-only transaction must use the primary, or null if
+     * the replica may serve it.
+     */
+    String primaryReason() {
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return "read-your-writes";
+        }
+        return replicaCurrent ? null : "replica-lag";
+    }
+
+    long getLagSeconds() {
+        return lagSeconds;
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replica.lag-check-interval-ms:5000}")
+    void checkLag() {
+        if (!enabled || replicaDataSource == null || lagQuery == null || lagQuery.isBlank()) {
+            return;
+        }
+        Long lag = null;
+        try (Connection connection = replicaDataSource.getConnection();
+                Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery(lagQuery)) {
+            if (rs.next()) {
+                lag = secondsBehind(rs);
+            }
+        } catch (Exception e) {
+            logger.warn("Replica lag check failed: {}", e.getMessage());
+        }
+        boolean current = lag != null && lag <= maxLagSeconds;
+        lagSeconds = lag != null ? lag : -1;
+        if (current != replicaCurrent) {
+            if (current) {
+                logger.info("Replica caught up ({}s behind); reads use it again", lag);
+            } else {
+                logger.warn("Replica is {} behind; reads use the primary",
+                        lag != null ? lag + "s" : "an unknown time");
+            }
+            replicaCurrent = current;
+        }
+    }
+
+    private static Long secondsBehind(ResultSet rs) throws SQLException {
+        for (String column : new String[] { "Seconds_Behind_Source", "Seconds_Behind_Master" }) {
+            try {
+                long value = rs.getLong(column);
+                return rs.wasNull() ? null : value; // NULL: replication is stopped
+            } catch (SQLException e) {
+                // Older MySQL names the column after the master
+            }
+        }
+        return null;
+    }
+}
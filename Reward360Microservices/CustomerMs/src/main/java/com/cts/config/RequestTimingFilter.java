@@ -0,0 +1,62 @@
+package com.cts.config;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Records, per request and tagged by method and URI pattern, how much of it
+ * was JPA time (customerms.request.jpa, plus the statement count) and Feign
+ * time (customerms.request.feign). The total is already in
+ * http.server.requests, so the remainder is time in the service itself.
+ */
+public class RequestTimingFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry registry;
+
+    public RequestTimingFilter(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestTimings timings = RequestTimings.begin();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            RequestTimings.end();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+            Timer.builder("customerms.request.jpa")
+                    .description("Time the request spent in JDBC statements issued by Hibernate")
+                    .tags("method", request.getMethod(), "uri", uri)
+                    .register(registry)
+                    .record(timings.getJpaNanos(), TimeUnit.NANOSECONDS);
+            DistributionSummary.builder("customerms.request.jpa.statements")
+                    .tags("method", request.getMethod(), "uri", uri)
+                    .register(registry)
+                    .record(timings.getJpaStatements());
+            Timer.builder("customerms.request.feign")
+                    .description("Time the request spent in Feign calls")
+                    .tags("method", request.getMethod(), "uri", uri)
+                    .register(registry)
+                    .record(timings.getFeignNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+}
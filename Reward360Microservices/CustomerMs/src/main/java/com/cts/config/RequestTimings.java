@@ -0,0 +1,56 @@
+package com.cts.config;
+
+/**
+ * Per-request accumulators for time spent outside the service code: JDBC
+ * statements issued by Hibernate and Feign calls. {@link RequestTimingFilter}
+ * opens one for each HTTP request on the request thread; work on other threads
+ * (mailbox workers, relays, background reloads) is not attributed to a request.
+ */
+public final class RequestTimings {
+
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+
+    private long jpaNanos;
+    private long jpaStatements;
+    private long feignNanos;
+
+    private RequestTimings() {
+    }
+
+    static RequestTimings begin() {
+        RequestTimings timings = new RequestTimings();
+        CURRENT.set(timings);
+        return timings;
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    static void addJpa(long nanos) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.jpaNanos += nanos;
+            timings.jpaStatements++;
+        }
+    }
+
+    static void addFeign(long nanos) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.feignNanos += nanos;
+        }
+    }
+
+    long getJpaNanos() {
+        return jpaNanos;
+    }
+
+    long getJpaStatements() {
+        return jpaStatements;
+    }
+
+    long getFeignNanos() {
+        return feignNanos;
+    }
+}
@@ -0,0 +1,123 @@
+package com.cts.config;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Makes sure transaction.external_id and redemption.confirmation_code are
+ * unique in the database, as idempotent claims and redemptions rely on.
+ *
+ * ddl-auto=update cannot add those unique constraints to a database that
+ * already holds duplicate ids (the old currentTimeMillis-based codes could
+ * repeat); Hibernate only logs the failure. So on startup, when a column has
+ * no unique index, the duplicates are renamed to &lt;id&gt;-&lt;row id&gt; (the
+ * oldest row keeps its value) and the constraint is added. If that fails the
+ * service refuses to start.
+ *
+ * Runs before the web server starts. Disabled with ids.unique-check.enabled=false.
+ */
+@Component
+public class UniqueIdSchemaCheck implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(UniqueIdSchemaCheck.class);
+
+    // Physical names: the naming strategy lower-cases @Table(name = "Transaction")
+    private static final String[][] COLUMNS = {
+            { "transaction", "external_id", "uk_transaction_external_id" },
+            { "redemption", "confirmation_code", "uk_redemption_confirmation_code" }
+    };
+
+    @Value("${ids.unique-check.enabled:true}")
+    private boolean enabled;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        for (String[] column : COLUMNS) {
+            ensureUnique(column[0], column[1], column[2]);
+        }
+    }
+
+    void ensureUnique(String table, String column, String constraint) {
+        if (hasUniqueIndex(table, column)) {
+            return;
+        }
+        int renamed = transactionTemplate.execute(status -> renameDuplicates(table, column));
+        try {
+            jdbcTemplate.execute("ALTER TABLE " + table + " ADD CONSTRAINT " + constraint + " UNIQUE (" + column + ")");
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Cannot add the unique constraint on " + table + "." + column, e);
+        }
+        logger.warn("Added unique constraint {} on {}.{} after renaming {} duplicate ids", constraint, table, column,
+                renamed);
+    }
+
+    // Keeps the value on the lowest row id of each group and appends the row id to the others
+    private int renameDuplicates(String table, String column) {
+        List<Object[]> updates = new ArrayList<>();
+        Map<String, Long> first = new HashMap<>();
+        jdbcTemplate.query("SELECT id, " + column + " FROM " + table + " WHERE " + column + " IN (SELECT " + column
+                + " FROM " + table + " GROUP BY " + column + " HAVING COUNT(*) > 1) ORDER BY " + column + ", id",
+                rs -> {
+                    long id = rs.getLong(1);
+                    String value = rs.getString(2);
+                    if (first.putIfAbsent(value, id) != null) {
+                        updates.add(new Object[] { value + "-" + id, id });
+                    }
+                });
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE " + table + " SET " + column + " = ? WHERE id = ?", updates);
+            logger.warn("Renamed {} duplicate values of {}.{}", updates.size(), table, column);
+        }
+        return updates.size();
+    }
+
+    private boolean hasUniqueIndex(String table, String column) {
+        return jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            // MySQL on Linux keeps the lower-case name; H2 reports upper case
+            return hasUniqueIndex(connection, table, column)
+                    || hasUniqueIndex(connection, table.toUpperCase(), column.toUpperCase());
+        });
+    }
+
+    private static boolean hasUniqueIndex(Connection connection, String table, String column) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        Map<String, List<String>> indexes = new HashMap<>();
+        try (ResultSet rs = metaData.getIndexInfo(connection.getCatalog(), null, table, true, false)) {
+            while (rs.next()) {
+                String name = rs.getString("INDEX_NAME");
+                String indexed = rs.getString("COLUMN_NAME");
+                if (name != null && indexed != null) {
+                    indexes.computeIfAbsent(name, n -> new ArrayList<>()).add(indexed);
+                }
+            }
+        }
+        // Only a single-column index makes the column itself unique
+        return indexes.values().stream().anyMatch(columns -> columns.size() == 1
+                && columns.get(0).equalsIgnoreCase(column));
+    }
+}
@@ -0,0 +1,26 @@
+package com.cts.config;
+
+import java.util.concurrent.Executors;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.cloud.openfeign.clientconfig.http2client.Http2ClientCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * With spring.threads.virtual.enabled=true Spring Boot already runs Tomcat
+ * requests, @Async and @Scheduled work on virtual threads. This adds the Feign
+ * side: the java.net.http client behind the Feign clients hands its response
+ * handling to virtual threads instead of its own cached platform-thread pool.
+ * The "virtual" profile turns on both virtual threads and that client.
+ */
+@Configuration
+public class VirtualThreadConfig {
+
+    @Bean
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public Http2ClientCustomizer virtualThreadFeignExecutor() {
+        return builder -> builder.executor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+}
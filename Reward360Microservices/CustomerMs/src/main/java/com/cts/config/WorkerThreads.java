@@ -0,0 +1,19 @@
+package com.cts.config;
+
+/**
+ * Creates the long-running background workers (mailbox workers, outbox relay)
+ * as virtual threads when spring.threads.virtual.enabled=true, and as daemon
+ * platform threads otherwise.
+ */
+public final class WorkerThreads {
+
+    private WorkerThreads() {
+    }
+
+    public static Thread start(String name, boolean virtual, Runnable task) {
+        if (virtual) {
+            return Thread.ofVirtual().name(name).start(task);
+        }
+        return Thread.ofPlatform().name(name).daemon().start(task);
+    }
+}
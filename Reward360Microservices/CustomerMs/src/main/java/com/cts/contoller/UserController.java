@@ -1,25 +1,64 @@
 package com.cts.contoller;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.cts.dto.CartRedeemRequest;
+import com.cts.dto.CartRedemptionResponse;
 import com.cts.dto.ClaimRequest;
-import com.cts.dto.OfferDto;
+import com.cts.dto.CustomerSummaryResponse;
+import com.cts.dto.PageResponse;
+import com.cts.dto.PointsStatementResponse;
 import com.cts.dto.RedeemRequest;
+import com.cts.entity.ArchiveSegment;
 import com.cts.entity.CustomerProfile;
+import com.cts.entity.LedgerDiscrepancy;
+import com.cts.entity.ReconciliationRun;
 import com.cts.entity.Redemption;
+import com.cts.entity.TierJob;
 import com.cts.entity.Transaction;
+import com.cts.service.ArchiveService;
+import com.cts.service.BulkClaimService;
+import com.cts.service.CustomerSummaryService;
+import com.cts.service.IdempotencyService;
+import com.cts.service.LedgerReconciliationService;
+import com.cts.service.OfferCatalog;
+import com.cts.service.OfferEligibilityIndex;
+import com.cts.service.OptimisticRetry;
+import com.cts.service.OutboxRelay;
+import com.cts.service.PointsMailbox;
+import com.cts.service.PointsExpiryService;
+import com.cts.service.PointsMetrics;
+import com.cts.service.PointsStatementService;
 import com.cts.service.Pointsservice;
+import com.cts.service.ProfileCache;
+import com.cts.service.TierRecalculationService;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 @RestController
 @RequestMapping("/api/users")
@@ -29,6 +68,53 @@ public class UserController {
     @Autowired
     private Pointsservice pointService;
 
+    @Autowired
+    private OfferCatalog offerCatalog;
+
+    @Autowired
+    private BulkClaimService bulkClaimService;
+
+    @Autowired
+    private OfferEligibilityIndex offerEligibilityIndex;
+
+    @Autowired
+    private PointsExpiryService pointsExpiryService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    // Profile updates that lose an optimistic-lock race are re-run in a new transaction
+    @Autowired
+    private OptimisticRetry optimisticRetry;
+
+    // When enabled, claims and redemptions are applied by per-user mailbox workers
+    @Autowired
+    private PointsMailbox pointsMailbox;
+
+    @Autowired
+    private CustomerSummaryService customerSummaryService;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private TierRecalculationService tierRecalculationService;
+
+    @Autowired
+    private PointsStatementService pointsStatementService;
+
+    @Autowired
+    private LedgerReconciliationService ledgerReconciliationService;
+
+    @Autowired
+    private PointsMetrics pointsMetrics;
+
+    @Autowired
+    private ProfileCache profileCache;
+
+    @Autowired
+    private ArchiveService archiveService;
+
     @PostMapping("/addcustomer")
     public ResponseEntity<CustomerProfile> registerUser(@RequestBody CustomerProfile registerRequest) {
 
@@ -39,7 +125,8 @@ public class UserController {
     @PutMapping("/updateprofile/{userId}")
     public ResponseEntity<CustomerProfile> updateProfile(@PathVariable("userId") Long userId,
             @RequestBody CustomerProfile updateRequest) {
-        CustomerProfile updatedProfile = pointService.updateProfile(userId, updateRequest);
+        CustomerProfile updatedProfile = optimisticRetry
+                .execute(() -> pointService.updateProfile(userId, updateRequest));
         return ResponseEntity.ok(updatedProfile);
     }
 
@@ -49,45 +136,245 @@ public class UserController {
         return ResponseEntity.ok(customerProfile);
     }
 
+    // Dashboard view (balance, tier, next expiry, recent transactions, counters) in one read
+    @GetMapping("/Customer/{id}/summary")
+    public ResponseEntity<CustomerSummaryResponse> getCustomerSummary(@PathVariable("id") Long id) {
+        return ResponseEntity.ok(customerSummaryService.getSummary(id));
+    }
+
+    // Monthly totals (earned, redeemed, expired, transactions) between two yyyy-MM months, inclusive
+    @GetMapping("/statements/user/{userId}")
+    public ResponseEntity<PointsStatementResponse> getStatement(@PathVariable("userId") Long userId,
+            @RequestParam(value = "from", required = false) String from,
+            @RequestParam(value = "to", required = false) String to) {
+        return ResponseEntity.ok(pointsStatementService.getStatement(userId, from, to));
+    }
+
+    // A retry with the same Idempotency-Key returns the original redemption without deducting again
     @PostMapping("/redeem/offer/{offerId}/user/{userId}")
     public ResponseEntity<Redemption> redeemOffer(@RequestBody RedeemRequest redeemRequest,
-            @PathVariable("userId") Long userId
+            @PathVariable("userId") Long userId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey
     ) {
-        Redemption redemption = pointService.redeemOffer(userId, redeemRequest);
+        Redemption redemption = pointsMetrics.time("redeem", () -> {
+            if (pointsMailbox.isEnabled()) {
+                return pointsMailbox.redeem(userId, redeemRequest, idempotencyKey);
+            }
+            return optimisticRetry.execute(() -> idempotencyService.execute(userId, "REDEEM", idempotencyKey,
+                    redeemRequest, Redemption.class, () -> pointService.redeemOffer(userId, redeemRequest)));
+        });
         return new ResponseEntity<>(redemption, HttpStatus.CREATED);
     }
 
+    // Checkout: all offers in the cart are redeemed in one transaction, or none is
+    @PostMapping("/redeem/cart/user/{userId}")
+    public ResponseEntity<CartRedemptionResponse> redeemCart(@RequestBody CartRedeemRequest cartRequest,
+            @PathVariable("userId") Long userId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        CartRedemptionResponse response = pointsMetrics.time("redeemCart",
+                () -> optimisticRetry.execute(() -> idempotencyService.execute(userId, "REDEEM_CART",
+                        idempotencyKey, cartRequest, CartRedemptionResponse.class,
+                        () -> pointService.redeemCart(userId, cartRequest))));
+        return new ResponseEntity<>(response, HttpStatus.CREATED);
+    }
+
     @PostMapping("/claim/user/{userId}")
     public ResponseEntity<ClaimRequest> claimOffer(@RequestBody ClaimRequest claimRequest,
-            @PathVariable("userId") Long userId) {
-        ClaimRequest claim = pointService.claimOffer(claimRequest, userId);
+            @PathVariable("userId") Long userId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        ClaimRequest claim = pointsMetrics.time("claim", () -> {
+            if (pointsMailbox.isEnabled()) {
+                return pointsMailbox.claim(userId, claimRequest, idempotencyKey);
+            }
+            return optimisticRetry.execute(() -> idempotencyService.execute(userId, "CLAIM", idempotencyKey,
+                    claimRequest, ClaimRequest.class, () -> pointService.claimOffer(claimRequest, userId)));
+        });
         return new ResponseEntity<>(claim, HttpStatus.CREATED);
     }
 
+    // Bulk claims from a partner file (CSV: userId,points[,note[,externalId]] or NDJSON).
+    // Lines whose externalId was already applied to the same user and points are skipped, so a file
+    // can be uploaded again.
+    // The body is read as a stream and the response is an NDJSON report, one line per input line.
+    @PostMapping(value = "/claims/bulk", consumes = { "text/csv", "application/x-ndjson" })
+    public void bulkClaim(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        boolean ndjson = request.getContentType() != null && request.getContentType().contains("ndjson");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setContentType("application/x-ndjson");
+        try (Writer writer = response.getWriter()) {
+            bulkClaimService.ingest(request.getInputStream(), ndjson, writer);
+        }
+    }
+
     @GetMapping("/transactions/user/{userId}")
     public ResponseEntity<List<Transaction>> getTransactions(@PathVariable("userId") Long userId) {
-        List<Transaction> transactions = pointService.getTransactionsByUserId(userId);
+        List<Transaction> transactions = pointsMetrics.time("history",
+                () -> pointService.getTransactionsByUserId(userId));
         return ResponseEntity.ok(transactions);
     }
 
+    // Keyset-paginated history; pass nextPageToken back as pageToken
+    @GetMapping("/transactions/user/{userId}/page")
+    public ResponseEntity<PageResponse<Transaction>> getTransactionsPage(@PathVariable("userId") Long userId,
+            @RequestParam(value = "pageToken", required = false) String pageToken,
+            @RequestParam(value = "size", required = false) Integer size) {
+        return ResponseEntity.ok(pointsMetrics.time("history",
+                () -> pointService.getTransactionsPage(userId, pageToken, size)));
+    }
+
     @GetMapping("/offers/teir/{tier}")
-    public ResponseEntity<List<OfferDto>> getOffersByTier(@PathVariable("tier") String tier) {
-        // Now calling the service which returns DTOs via Feign
-        List<OfferDto> offers = pointService.getOffersByTier(tier);
-        return ResponseEntity.ok(offers);
+    public ResponseEntity<byte[]> getOffersByTier(@PathVariable("tier") String tier, WebRequest webRequest) {
+        // The JSON body is serialized once per catalog version; unchanged lists answer 304
+        OfferEligibilityIndex.TierView view = pointsMetrics.time("offersByTier",
+                () -> offerEligibilityIndex.forTier(tier));
+        if (webRequest.checkNotModified(view.getEtag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(view.getEtag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(view.getJson());
+    }
+
+    @GetMapping("/mailbox/stats")
+    public ResponseEntity<Map<String, Object>> getMailboxStats() {
+        return ResponseEntity.ok(pointsMailbox.getStats());
+    }
+
+    // Pending and parked outbox events, and relay counters
+    @GetMapping("/outbox/stats")
+    public ResponseEntity<Map<String, Object>> getOutboxStats() {
+        return ResponseEntity.ok(outboxRelay.getStats());
+    }
+
+    // Hit/miss/refresh counters for the local offer catalog cache
+    @GetMapping("/offers/cache/stats")
+    public ResponseEntity<Map<String, Object>> getOfferCacheStats() {
+        return ResponseEntity.ok(offerCatalog.getStats());
+    }
+
+    @GetMapping("/profiles/cache/stats")
+    public ResponseEntity<Map<String, Object>> getProfileCacheStats() {
+        return ResponseEntity.ok(profileCache.getStats());
     }
 
     @GetMapping("/redemptions/user/{userId}")
     public ResponseEntity<List<Redemption>> getRedemptionsByUserId(@PathVariable("userId") Long userId) {
-        List<Redemption> redemptions = pointService.getRedemptionsByUserId(userId);
+        List<Redemption> redemptions = pointsMetrics.time("history",
+                () -> pointService.getRedemptionsByUserId(userId));
         return ResponseEntity.ok(redemptions);
     }
 
-    // Admin endpoint to view all redemptions in the system
+    @GetMapping("/redemptions/user/{userId}/page")
+    public ResponseEntity<PageResponse<Redemption>> getRedemptionsPage(@PathVariable("userId") Long userId,
+            @RequestParam(value = "pageToken", required = false) String pageToken,
+            @RequestParam(value = "size", required = false) Integer size) {
+        return ResponseEntity.ok(pointsMetrics.time("history",
+                () -> pointService.getRedemptionsPage(userId, pageToken, size)));
+    }
+
+    // Admin endpoint to view all redemptions in the system. The body is streamed
+    // (JSON array by default, NDJSON with format=ndjson) and gzipped when accepted.
     @GetMapping("/redemptions")
-    public ResponseEntity<List<Redemption>> getAllRedemptions() {
-        List<Redemption> redemptions = pointService.getAllRedemptions();
-        return ResponseEntity.ok(redemptions);
+    public ResponseEntity<StreamingResponseBody> getAllRedemptions(
+            @RequestParam(value = "format", defaultValue = "json") String format,
+            @RequestParam(value = "userId", required = false) Long userId,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean ndjson = "ndjson".equalsIgnoreCase(format);
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                try (GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024)) {
+                    pointService.exportRedemptions(userId, from, to, ndjson, compressed);
+                }
+            } else {
+                pointService.exportRedemptions(userId, from, to, ndjson, out);
+            }
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    @GetMapping("/redemptions/count")
+    public ResponseEntity<Long> countRedemptions() {
+        return ResponseEntity.ok(pointService.countRedemptions());
+    }
+
+    // Admin endpoint to run points expiry now (normally nightly), optionally as of another date
+    @PostMapping("/admin/expiry/run")
+    public ResponseEntity<PointsExpiryService.Result> runPointsExpiry(
+            @RequestParam(value = "date", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return ResponseEntity.ok(pointsExpiryService.run(date != null ? date : LocalDate.now()));
+    }
+
+    // Admin endpoints for the bulk re-tier job after tier thresholds change: start (or resume),
+    // progress, and stop after the current chunk
+    @PostMapping("/admin/tiers/recalculate")
+    public ResponseEntity<TierJob> recalculateTiers() {
+        return new ResponseEntity<>(tierRecalculationService.start(), HttpStatus.ACCEPTED);
+    }
+
+    @GetMapping("/admin/tiers/recalculate")
+    public ResponseEntity<TierJob> getTierRecalculation() {
+        return ResponseEntity.ok(tierRecalculationService.getStatus());
+    }
+
+    @PostMapping("/admin/tiers/recalculate/stop")
+    public ResponseEntity<TierJob> stopTierRecalculation() {
+        return ResponseEntity.ok(tierRecalculationService.stop());
+    }
+
+    // Admin endpoint to recompute monthly statements from the transaction history (all users by default)
+    @PostMapping("/admin/statements/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildStatements(
+            @RequestParam(value = "userId", required = false) Long userId) {
+        return ResponseEntity.ok(pointsStatementService.rebuild(userId));
+    }
+
+    // Admin endpoints for the ledger reconciliation job: start (optionally repairing confirmed
+    // discrepancies), latest run, and the discrepancy report of a run in userId order
+    @PostMapping("/admin/reconciliation/run")
+    public ResponseEntity<ReconciliationRun> runReconciliation(
+            @RequestParam(value = "repair", defaultValue = "false") boolean repair) {
+        return new ResponseEntity<>(ledgerReconciliationService.start(repair), HttpStatus.ACCEPTED);
+    }
+
+    @GetMapping("/admin/reconciliation")
+    public ResponseEntity<ReconciliationRun> getReconciliation() {
+        return ResponseEntity.ok(ledgerReconciliationService.getStatus());
+    }
+
+    @GetMapping("/admin/reconciliation/{runId}/discrepancies")
+    public ResponseEntity<List<LedgerDiscrepancy>> getReconciliationDiscrepancies(
+            @PathVariable("runId") Long runId,
+            @RequestParam(value = "afterUserId", required = false) Long afterUserId,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return ResponseEntity.ok(ledgerReconciliationService.getDiscrepancies(runId, afterUserId, limit));
+    }
+
+    // Admin endpoints for the cold archive: move months older than the horizon out of the hot
+    // tables now (normally monthly), and list the archived segments
+    @PostMapping("/admin/archive/run")
+    public ResponseEntity<Map<String, Object>> runArchive() {
+        return ResponseEntity.ok(archiveService.run());
+    }
+
+    @GetMapping("/admin/archive/segments")
+    public ResponseEntity<List<ArchiveSegment>> getArchiveSegments() {
+        return ResponseEntity.ok(archiveService.getSegments());
+    }
+
+    // Admin endpoint to retry outbox events parked after too many failed deliveries
+    @PostMapping("/admin/outbox/requeue")
+    public ResponseEntity<Map<String, Object>> requeueOutbox() {
+        return ResponseEntity.ok(Map.of("requeued", outboxRelay.requeueDead()));
     }
 
 }
@@ -0,0 +1,27 @@
+package com.cts.dto;
+
+import java.util.List;
+
+/**
+ * Offers redeemed together at checkout. An offer listed twice is redeemed
+ * twice.
+ */
+public class CartRedeemRequest {
+
+    private List<Long> offerIds;
+
+    public CartRedeemRequest() {
+    }
+
+    public CartRedeemRequest(List<Long> offerIds) {
+        this.offerIds = offerIds;
+    }
+
+    public List<Long> getOfferIds() {
+        return offerIds;
+    }
+
+    public void setOfferIds(List<Long> offerIds) {
+        this.offerIds = offerIds;
+    }
+}
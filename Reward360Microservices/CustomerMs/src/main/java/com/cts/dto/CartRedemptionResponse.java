@@ -0,0 +1,48 @@
+package com.cts.dto;
+
+import java.util.List;
+
+import com.cts.entity.Redemption;
+
+/**
+ * Result of a cart redemption: one Redemption per offer, in cart order, and
+ * the points deducted for all of them.
+ */
+public class CartRedemptionResponse {
+    private Long userId;
+    private int totalCost;
+    private List<Redemption> redemptions;
+
+    public CartRedemptionResponse() {
+    }
+
+    public CartRedemptionResponse(Long userId, int totalCost, List<Redemption> redemptions) {
+        this.userId = userId;
+        this.totalCost = totalCost;
+        this.redemptions = redemptions;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public int getTotalCost() {
+        return totalCost;
+    }
+
+    public void setTotalCost(int totalCost) {
+        this.totalCost = totalCost;
+    }
+
+    public List<Redemption> getRedemptions() {
+        return redemptions;
+    }
+
+    public void setRedemptions(List<Redemption> redemptions) {
+        this.redemptions = redemptions;
+    }
+}
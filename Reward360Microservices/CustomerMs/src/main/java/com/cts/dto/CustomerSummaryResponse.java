@@ -0,0 +1,92 @@
+package com.cts.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Everything the member dashboard shows, returned by GET
+ * /api/users/Customer/{id}/summary.
+ */
+public class CustomerSummaryResponse {
+    private Long userId;
+    private String customerName;
+    private String loyaltyTier;
+    private int pointsBalance;
+    private int lifetimePoints;
+    private LocalDate nextExpiry;
+    private long redemptionCount;
+    private int pointsEarnedThisMonth;
+    private List<TransactionResponse> recentTransactions;
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getCustomerName() {
+        return customerName;
+    }
+
+    public void setCustomerName(String customerName) {
+        this.customerName = customerName;
+    }
+
+    public String getLoyaltyTier() {
+        return loyaltyTier;
+    }
+
+    public void setLoyaltyTier(String loyaltyTier) {
+        this.loyaltyTier = loyaltyTier;
+    }
+
+    public int getPointsBalance() {
+        return pointsBalance;
+    }
+
+    public void setPointsBalance(int pointsBalance) {
+        this.pointsBalance = pointsBalance;
+    }
+
+    public int getLifetimePoints() {
+        return lifetimePoints;
+    }
+
+    public void setLifetimePoints(int lifetimePoints) {
+        this.lifetimePoints = lifetimePoints;
+    }
+
+    public LocalDate getNextExpiry() {
+        return nextExpiry;
+    }
+
+    public void setNextExpiry(LocalDate nextExpiry) {
+        this.nextExpiry = nextExpiry;
+    }
+
+    public long getRedemptionCount() {
+        return redemptionCount;
+    }
+
+    public void setRedemptionCount(long redemptionCount) {
+        this.redemptionCount = redemptionCount;
+    }
+
+    public int getPointsEarnedThisMonth() {
+        return pointsEarnedThisMonth;
+    }
+
+    public void setPointsEarnedThisMonth(int pointsEarnedThisMonth) {
+        this.pointsEarnedThisMonth = pointsEarnedThisMonth;
+    }
+
+    public List<TransactionResponse> getRecentTransactions() {
+        return recentTransactions;
+    }
+
+    public void setRecentTransactions(List<TransactionResponse> recentTransactions) {
+        this.recentTransactions = recentTransactions;
+    }
+}
@@ -0,0 +1,46 @@
+package com.cts.dto;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated history. nextPageToken is null on the last
+ * page; otherwise pass it back as pageToken to get the following page.
+ */
+public class PageResponse<T> {
+    private List<T> items;
+    private String nextPageToken;
+    private int pageSize;
+
+    public PageResponse() {
+    }
+
+    public PageResponse(List<T> items, String nextPageToken, int pageSize) {
+        this.items = items;
+        this.nextPageToken = nextPageToken;
+        this.pageSize = pageSize;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+
+    public void setNextPageToken(String nextPageToken) {
+        this.nextPageToken = nextPageToken;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+}
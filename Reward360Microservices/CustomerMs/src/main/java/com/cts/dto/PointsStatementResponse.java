@@ -0,0 +1,141 @@
+package com.cts.dto;
+
+import java.util.List;
+
+/**
+ * Monthly points statement of a user, returned by GET
+ * /api/users/statements/user/{userId}. Months without activity are left out.
+ */
+public class PointsStatementResponse {
+    private Long userId;
+    private String from;
+    private String to;
+    private long earned;
+    private long redeemed;
+    private long expired;
+    private long transactionCount;
+    private List<Month> months;
+
+    public static class Month {
+        private String month; // yyyy-MM
+        private long earned;
+        private long redeemed;
+        private long expired;
+        private long transactionCount;
+
+        public Month() {
+        }
+
+        public Month(String month, long earned, long redeemed, long expired, long transactionCount) {
+            this.month = month;
+            this.earned = earned;
+            this.redeemed = redeemed;
+            this.expired = expired;
+            this.transactionCount = transactionCount;
+        }
+
+        public String getMonth() {
+            return month;
+        }
+
+        public void setMonth(String month) {
+            this.month = month;
+        }
+
+        public long getEarned() {
+            return earned;
+        }
+
+        public void setEarned(long earned) {
+            this.earned = earned;
+        }
+
+        public long getRedeemed() {
+            return redeemed;
+        }
+
+        public void setRedeemed(long redeemed) {
+            this.redeemed = redeemed;
+        }
+
+        public long getExpired() {
+            return expired;
+        }
+
+        public void setExpired(long expired) {
+            this.expired = expired;
+        }
+
+        public long getTransactionCount() {
+            return transactionCount;
+        }
+
+        public void setTransactionCount(long transactionCount) {
+            this.transactionCount = transactionCount;
+        }
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public void setFrom(String from) {
+        this.from = from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public void setTo(String to) {
+        this.to = to;
+    }
+
+    public long getEarned() {
+        return earned;
+    }
+
+    public void setEarned(long earned) {
+        this.earned = earned;
+    }
+
+    public long getRedeemed() {
+        return redeemed;
+    }
+
+    public void setRedeemed(long redeemed) {
+        this.redeemed = redeemed;
+    }
+
+    public long getExpired() {
+        return expired;
+    }
+
+    public void setExpired(long expired) {
+        this.expired = expired;
+    }
+
+    public long getTransactionCount() {
+        return transactionCount;
+    }
+
+    public void setTransactionCount(long transactionCount) {
+        this.transactionCount = transactionCount;
+    }
+
+    public List<Month> getMonths() {
+        return months;
+    }
+
+    public void setMonths(List<Month> months) {
+        this.months = months;
+    }
+}
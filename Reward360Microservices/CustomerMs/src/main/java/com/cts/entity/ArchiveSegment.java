@@ -0,0 +1,114 @@
+package com.cts.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+/**
+ * One month of Transaction or Redemption rows moved out of the hot table into
+ * a compressed columnar file under archive.dir. period is yyyymm; minUserId
+ * and maxUserId let history reads skip files that cannot hold the user.
+ */
+@Entity
+@Table(name = "archive_segment", uniqueConstraints = @UniqueConstraint(columnNames = { "table_name", "period" }))
+public class ArchiveSegment {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String tableName; // Transaction or Redemption
+    private int period;
+    private String fileName; // Relative to archive.dir
+    private long rowCount;
+    private int blocks;
+    private long bytes;
+    private long minUserId;
+    private long maxUserId;
+    private LocalDateTime createdAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public void setTableName(String tableName) {
+        this.tableName = tableName;
+    }
+
+    public int getPeriod() {
+        return period;
+    }
+
+    public void setPeriod(int period) {
+        this.period = period;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(long rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public int getBlocks() {
+        return blocks;
+    }
+
+    public void setBlocks(int blocks) {
+        this.blocks = blocks;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public void setBytes(long bytes) {
+        this.bytes = bytes;
+    }
+
+    public long getMinUserId() {
+        return minUserId;
+    }
+
+    public void setMinUserId(long minUserId) {
+        this.minUserId = minUserId;
+    }
+
+    public long getMaxUserId() {
+        return maxUserId;
+    }
+
+    public void setMaxUserId(long maxUserId) {
+        this.maxUserId = maxUserId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
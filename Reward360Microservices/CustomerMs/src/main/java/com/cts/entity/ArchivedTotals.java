@@ -0,0 +1,63 @@
+package com.cts.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Per-user sums of the rows moved to archive segments. They are added in the
+ * same database transaction that deletes the hot rows, so hot rows plus these
+ * totals always cover the whole history (ledger reconciliation, summaries).
+ */
+@Entity
+@Table(name = "archived_totals")
+public class ArchivedTotals {
+
+    @Id
+    private Long userId;
+
+    private long pointsEarned;
+    private long pointsRedeemed;
+    private long transactions;
+    private long redemptions;
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public long getPointsEarned() {
+        return pointsEarned;
+    }
+
+    public void setPointsEarned(long pointsEarned) {
+        this.pointsEarned = pointsEarned;
+    }
+
+    public long getPointsRedeemed() {
+        return pointsRedeemed;
+    }
+
+    public void setPointsRedeemed(long pointsRedeemed) {
+        this.pointsRedeemed = pointsRedeemed;
+    }
+
+    public long getTransactions() {
+        return transactions;
+    }
+
+    public void setTransactions(long transactions) {
+        this.transactions = transactions;
+    }
+
+    public long getRedemptions() {
+        return redemptions;
+    }
+
+    public void setRedemptions(long redemptions) {
+        this.redemptions = redemptions;
+    }
+}
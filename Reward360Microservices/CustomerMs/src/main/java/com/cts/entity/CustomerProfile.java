@@ -2,16 +2,26 @@ package com.cts.entity;
 
 import java.time.LocalDate;
 
+import org.hibernate.annotations.DynamicUpdate;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 // In Customer Service: com.cts.entity.CustomerProfile
 @Entity
-@Table(name = "CustomerProfile")
+// The expiry engine reads due profiles from this index in (nextExpiry, userId) order
+@Table(name = "CustomerProfile", indexes = {
+        @Index(name = "idx_customer_profile_next_expiry", columnList = "next_expiry, user_id")
+})
+// Only changed columns are written, so the ledger flush and the expiry engine
+// do not overwrite each other's fields
+@DynamicUpdate
 public class CustomerProfile {
 
     @Id
@@ -30,6 +40,12 @@ public class CustomerProfile {
     private String preferences;
     private String communication;
 
+    // Optimistic lock for read-modify-write updates; the atomic debit bumps it too.
+    // Existing rows start at 0 when the column is added.
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+
     // Standard Getters and Setters...
     // Getters and Setters
     public int getLifetimePoints() {
@@ -104,6 +120,14 @@ public class CustomerProfile {
         this.userId = userId;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public CustomerProfile() {
     }
 
@@ -0,0 +1,134 @@
+package com.cts.entity;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+
+/**
+ * Denormalized dashboard view of one customer, keyed by userId so it is read
+ * with a single primary-key lookup. Kept up to date by the
+ * CustomerSummaryService in the same transaction as every claim, redemption
+ * and expiry; it can always be rebuilt from CustomerProfile, Transaction and
+ * Redemption.
+ */
+@Entity
+@Table(name = "CustomerSummary")
+public class CustomerSummary {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    private String customerName;
+    private String loyaltyTier;
+    private int pointsBalance;
+    private int lifetimePoints;
+    private LocalDate nextExpiry;
+    private long redemptionCount;
+
+    // First day of the month pointsEarnedThisMonth was counted for
+    private LocalDate earnedMonth;
+    private int pointsEarnedThisMonth;
+
+    // Last N transactions as a JSON array of TransactionResponse, newest first
+    @Lob
+    @JsonIgnore
+    private String recentTransactions;
+
+    private LocalDateTime updatedAt;
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getCustomerName() {
+        return customerName;
+    }
+
+    public void setCustomerName(String customerName) {
+        this.customerName = customerName;
+    }
+
+    public String getLoyaltyTier() {
+        return loyaltyTier;
+    }
+
+    public void setLoyaltyTier(String loyaltyTier) {
+        this.loyaltyTier = loyaltyTier;
+    }
+
+    public int getPointsBalance() {
+        return pointsBalance;
+    }
+
+    public void setPointsBalance(int pointsBalance) {
+        this.pointsBalance = pointsBalance;
+    }
+
+    public int getLifetimePoints() {
+        return lifetimePoints;
+    }
+
+    public void setLifetimePoints(int lifetimePoints) {
+        this.lifetimePoints = lifetimePoints;
+    }
+
+    public LocalDate getNextExpiry() {
+        return nextExpiry;
+    }
+
+    public void setNextExpiry(LocalDate nextExpiry) {
+        this.nextExpiry = nextExpiry;
+    }
+
+    public long getRedemptionCount() {
+        return redemptionCount;
+    }
+
+    public void setRedemptionCount(long redemptionCount) {
+        this.redemptionCount = redemptionCount;
+    }
+
+    public LocalDate getEarnedMonth() {
+        return earnedMonth;
+    }
+
+    public void setEarnedMonth(LocalDate earnedMonth) {
+        this.earnedMonth = earnedMonth;
+    }
+
+    public int getPointsEarnedThisMonth() {
+        return pointsEarnedThisMonth;
+    }
+
+    public void setPointsEarnedThisMonth(int pointsEarnedThisMonth) {
+        this.pointsEarnedThisMonth = pointsEarnedThisMonth;
+    }
+
+    public String getRecentTransactions() {
+        return recentTransactions;
+    }
+
+    public void setRecentTransactions(String recentTransactions) {
+        this.recentTransactions = recentTransactions;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,109 @@
+package com.cts.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * A user whose CustomerProfile balances do not match their transactions, as
+ * confirmed under the profile row lock. Expected values are the opening
+ * balance plus points earned, minus points redeemed (redemptions and
+ * expiries). profileBalance is null when transactions exist without a profile.
+ */
+@Entity
+// The discrepancy report pages through a run in userId order
+@Table(name = "LedgerDiscrepancy", indexes = {
+        @Index(name = "idx_ledger_discrepancy_run_user", columnList = "run_id, user_id")
+})
+public class LedgerDiscrepancy {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long runId;
+    private Long userId;
+    private Integer profileBalance;
+    private Integer profileLifetime;
+    private long expectedBalance;
+    private long expectedLifetime;
+    private boolean repaired;
+    private LocalDateTime detectedAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getRunId() {
+        return runId;
+    }
+
+    public void setRunId(Long runId) {
+        this.runId = runId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Integer getProfileBalance() {
+        return profileBalance;
+    }
+
+    public void setProfileBalance(Integer profileBalance) {
+        this.profileBalance = profileBalance;
+    }
+
+    public Integer getProfileLifetime() {
+        return profileLifetime;
+    }
+
+    public void setProfileLifetime(Integer profileLifetime) {
+        this.profileLifetime = profileLifetime;
+    }
+
+    public long getExpectedBalance() {
+        return expectedBalance;
+    }
+
+    public void setExpectedBalance(long expectedBalance) {
+        this.expectedBalance = expectedBalance;
+    }
+
+    public long getExpectedLifetime() {
+        return expectedLifetime;
+    }
+
+    public void setExpectedLifetime(long expectedLifetime) {
+        this.expectedLifetime = expectedLifetime;
+    }
+
+    public boolean isRepaired() {
+        return repaired;
+    }
+
+    public void setRepaired(boolean repaired) {
+        this.repaired = repaired;
+    }
+
+    public LocalDateTime getDetectedAt() {
+        return detectedAt;
+    }
+
+    public void setDetectedAt(LocalDateTime detectedAt) {
+        this.detectedAt = detectedAt;
+    }
+}
@@ -0,0 +1,91 @@
+package com.cts.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+/**
+ * One user's points activity in one calendar month, kept up to date as
+ * transactions are written so a statement reads one row per month instead of
+ * every transaction. period is the month as yyyymm (202602 for February 2026).
+ */
+@Entity
+@Table(name = "PointsStatement", uniqueConstraints = @UniqueConstraint(name = "uk_points_statement_user_period",
+        columnNames = { "user_id", "period" }))
+public class PointsStatement {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private int period;
+
+    private long earned;
+    private long redeemed;
+    private long expired;
+    private long transactionCount;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public int getPeriod() {
+        return period;
+    }
+
+    public void setPeriod(int period) {
+        this.period = period;
+    }
+
+    public long getEarned() {
+        return earned;
+    }
+
+    public void setEarned(long earned) {
+        this.earned = earned;
+    }
+
+    public long getRedeemed() {
+        return redeemed;
+    }
+
+    public void setRedeemed(long redeemed) {
+        this.redeemed = redeemed;
+    }
+
+    public long getExpired() {
+        return expired;
+    }
+
+    public void setExpired(long expired) {
+        this.expired = expired;
+    }
+
+    public long getTransactionCount() {
+        return transactionCount;
+    }
+
+    public void setTransactionCount(long transactionCount) {
+        this.transactionCount = transactionCount;
+    }
+}
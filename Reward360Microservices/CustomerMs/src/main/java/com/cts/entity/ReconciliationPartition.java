@@ -0,0 +1,75 @@
+package com.cts.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Outcome of the last check of one userId range [partitionStart,
+ * partitionStart + partitionWidth). checksum fingerprints the profile and
+ * transaction rows of the range as they were checked; a later run skips the
+ * range while the fingerprint is unchanged and no discrepancy was left open.
+ */
+@Entity
+@Table(name = "ReconciliationPartition")
+public class ReconciliationPartition {
+
+    @Id
+    private Long partitionStart;
+
+    private long partitionWidth;
+    private long checksum;
+    private long users;
+    private long discrepancies; // Found and not repaired
+    private LocalDateTime checkedAt;
+
+    public Long getPartitionStart() {
+        return partitionStart;
+    }
+
+    public void setPartitionStart(Long partitionStart) {
+        this.partitionStart = partitionStart;
+    }
+
+    public long getPartitionWidth() {
+        return partitionWidth;
+    }
+
+    public void setPartitionWidth(long partitionWidth) {
+        this.partitionWidth = partitionWidth;
+    }
+
+    public long getChecksum() {
+        return checksum;
+    }
+
+    public void setChecksum(long checksum) {
+        this.checksum = checksum;
+    }
+
+    public long getUsers() {
+        return users;
+    }
+
+    public void setUsers(long users) {
+        this.users = users;
+    }
+
+    public long getDiscrepancies() {
+        return discrepancies;
+    }
+
+    public void setDiscrepancies(long discrepancies) {
+        this.discrepancies = discrepancies;
+    }
+
+    public LocalDateTime getCheckedAt() {
+        return checkedAt;
+    }
+
+    public void setCheckedAt(LocalDateTime checkedAt) {
+        this.checkedAt = checkedAt;
+    }
+}
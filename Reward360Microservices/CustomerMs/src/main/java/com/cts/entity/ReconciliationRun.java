@@ -0,0 +1,170 @@
+package com.cts.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Progress and totals of one ledger reconciliation run. The discrepancies it
+ * found are in LedgerDiscrepancy, keyed by the run id.
+ */
+@Entity
+@Table(name = "ReconciliationRun")
+public class ReconciliationRun {
+
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 12)
+    private String status;
+
+    private boolean repair; // Whether confirmed discrepancies are corrected
+
+    private long partitionWidth; // userIds per partition
+    private long partitions;
+    private long skippedPartitions; // Unchanged since a clean check
+    private long failedPartitions;
+    private long users;
+    private long discrepancies;
+    private long repaired;
+
+    @Column(length = 500)
+    private String error;
+
+    private LocalDateTime startedAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime finishedAt;
+
+    public ReconciliationRun() {
+    }
+
+    public ReconciliationRun(boolean repair, long partitionWidth) {
+        this.repair = repair;
+        this.partitionWidth = partitionWidth;
+        this.status = RUNNING;
+        this.startedAt = LocalDateTime.now();
+        this.updatedAt = startedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public boolean isRepair() {
+        return repair;
+    }
+
+    public void setRepair(boolean repair) {
+        this.repair = repair;
+    }
+
+    public long getPartitionWidth() {
+        return partitionWidth;
+    }
+
+    public void setPartitionWidth(long partitionWidth) {
+        this.partitionWidth = partitionWidth;
+    }
+
+    public long getPartitions() {
+        return partitions;
+    }
+
+    public void setPartitions(long partitions) {
+        this.partitions = partitions;
+    }
+
+    public long getSkippedPartitions() {
+        return skippedPartitions;
+    }
+
+    public void setSkippedPartitions(long skippedPartitions) {
+        this.skippedPartitions = skippedPartitions;
+    }
+
+    public long getFailedPartitions() {
+        return failedPartitions;
+    }
+
+    public void setFailedPartitions(long failedPartitions) {
+        this.failedPartitions = failedPartitions;
+    }
+
+    public long getUsers() {
+        return users;
+    }
+
+    public void setUsers(long users) {
+        this.users = users;
+    }
+
+    public long getDiscrepancies() {
+        return discrepancies;
+    }
+
+    public void setDiscrepancies(long discrepancies) {
+        this.discrepancies = discrepancies;
+    }
+
+    public long getRepaired() {
+        return repaired;
+    }
+
+    public void setRepaired(long repaired) {
+        this.repaired = repaired;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+}
@@ -2,19 +2,27 @@ package com.cts.entity;
 
 import java.time.LocalDate;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Table;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 
 @Entity
-@Table(name = "Redemption")
+// Keyset pagination of a user's history reads this index in (date, id) order; the archive
+// job reads and deletes whole months by date
+@Table(name = "Redemption", indexes = {
+        @Index(name = "idx_redemption_user_date_id", columnList = "user_id, date, id"),
+        @Index(name = "idx_redemption_date", columnList = "date")
+})
 public class Redemption {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
+    @Column(unique = true)
     private String confirmationCode;
     private String transactionId;
     private LocalDate date;
@@ -0,0 +1,158 @@
+package com.cts.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Progress and checkpoint of a bulk re-tier run. lastProfileId is written in
+ * the same transaction as each chunk's tier updates, so a stopped or crashed
+ * run resumes after the last committed chunk.
+ */
+@Entity
+@Table(name = "TierJob")
+public class TierJob {
+
+    public static final String RUNNING = "RUNNING";
+    public static final String STOPPED = "STOPPED";
+    public static final String FAILED = "FAILED";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String SUPERSEDED = "SUPERSEDED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // TierPolicy thresholds the run applies
+    @Column(nullable = false, length = 100)
+    private String policy;
+
+    @Column(nullable = false, length = 12)
+    private String status;
+
+    // CustomerProfile.id of the last row of the last committed chunk
+    private long lastProfileId;
+
+    private long total; // Profiles when the run started, for progress
+    private long scanned;
+    private long changed;
+
+    @Column(length = 500)
+    private String error;
+
+    private LocalDateTime startedAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime finishedAt;
+
+    public TierJob() {
+    }
+
+    public TierJob(String policy, long total) {
+        this.policy = policy;
+        this.total = total;
+        this.status = RUNNING;
+        this.startedAt = LocalDateTime.now();
+        this.updatedAt = startedAt;
+    }
+
+    // Share of the profiles scanned, 0-100
+    public int getPercent() {
+        if (total <= 0) {
+            return COMPLETED.equals(status) ? 100 : 0;
+        }
+        return (int) Math.min(100, scanned * 100 / total);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getPolicy() {
+        return policy;
+    }
+
+    public void setPolicy(String policy) {
+        this.policy = policy;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public long getLastProfileId() {
+        return lastProfileId;
+    }
+
+    public void setLastProfileId(long lastProfileId) {
+        this.lastProfileId = lastProfileId;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public long getScanned() {
+        return scanned;
+    }
+
+    public void setScanned(long scanned) {
+        this.scanned = scanned;
+    }
+
+    public long getChanged() {
+        return changed;
+    }
+
+    public void setChanged(long changed) {
+        this.changed = changed;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+}
@@ -6,13 +6,21 @@ import java.time.LocalDate;
 import jakarta.persistence.*;
 
 @Entity
-@Table(name="Transaction")
+// Keyset pagination of a user's history reads this index in (date, id) order;
+// the expiry engine sums a user's unexpired lots from (user_id, expiry); the archive job
+// reads and deletes whole months by date
+@Table(name="Transaction", indexes = {
+        @Index(name = "idx_transaction_user_date_id", columnList = "user_id, date, id"),
+        @Index(name = "idx_transaction_user_expiry", columnList = "user_id, expiry"),
+        @Index(name = "idx_transaction_date", columnList = "date")
+})
 public class Transaction {
         @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
+    @Column(unique = true)
     private String externalId;
-    private String type; // PURCHASE, REDEMPTION, CLAIM
+    private String type; // PURCHASE, REDEMPTION, CLAIM, EXPIRY
     private int pointsEarned;
     private int pointsRedeemed;
     private String store;
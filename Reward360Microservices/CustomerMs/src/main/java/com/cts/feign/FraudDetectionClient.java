@@ -1,5 +1,7 @@
 package com.cts.feign;
  
+import java.util.List;
+
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -11,6 +13,10 @@ public interface FraudDetectionClient {
    
     @PostMapping("/api/v1/transactions")
     void sendTransactionForFraudCheck(@RequestBody FraudTransactionRequest request);
+
+    // Scores and inserts the whole batch in one Fraud_MS transaction
+    @PostMapping("/api/v1/transactions/batch")
+    void sendTransactionsForFraudCheck(@RequestBody List<FraudTransactionRequest> requests);
 }
  
  
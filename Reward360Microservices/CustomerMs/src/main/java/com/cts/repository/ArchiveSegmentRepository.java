@@ -0,0 +1,18 @@
+package com.cts.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import com.cts.entity.ArchiveSegment;
+
+public interface ArchiveSegmentRepository extends JpaRepository<ArchiveSegment, Long> {
+
+    // Newest month first, the order history pages read them in
+    List<ArchiveSegment> findAllByOrderByPeriodDescTableNameAsc();
+
+    // Months are archived oldest first, so every month up to this one is archived (yyyymm, null if none)
+    @Query("SELECT MAX(s.period) FROM ArchiveSegment s")
+    Integer findLastArchivedPeriod();
+}
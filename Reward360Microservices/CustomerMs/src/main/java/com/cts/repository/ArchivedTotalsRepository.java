@@ -0,0 +1,8 @@
+package com.cts.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.cts.entity.ArchivedTotals;
+
+public interface ArchivedTotalsRepository extends JpaRepository<ArchivedTotals, Long> {
+}
@@ -1,5 +1,49 @@
 package com.cts.repository;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
 import com.cts.entity.CustomerProfile;
+
+import jakarta.persistence.LockModeType;
 public interface CustomerProfilerepository extends org.springframework.data.jpa.repository.JpaRepository<com.cts.entity.CustomerProfile, Long> {
     CustomerProfile findByUserId(Long userId);
+
+    // Used by the points ledger to write back a batch of balances with one SELECT
+    List<CustomerProfile> findByUserIdIn(Collection<Long> userIds);
+
+    // Expiry engine: first chunk of profiles due on or before the run date
+    List<CustomerProfile> findByNextExpiryLessThanEqualOrderByNextExpiryAscUserIdAsc(LocalDate date,
+            Pageable limit);
+
+    // Expiry engine: due profiles strictly after the (nextExpiry, userId) cursor
+    @Query("""
+           SELECT c FROM CustomerProfile c
+           WHERE c.nextExpiry <= :date
+             AND (c.nextExpiry > :afterExpiry OR (c.nextExpiry = :afterExpiry AND c.userId > :afterUserId))
+           ORDER BY c.nextExpiry, c.userId
+           """)
+    List<CustomerProfile> findDueAfter(@Param("date") LocalDate date, @Param("afterExpiry") LocalDate afterExpiry,
+            @Param("afterUserId") Long afterUserId, Pageable limit);
+
+    // Expiry engine: row locks on one chunk of profiles, held only for the chunk transaction
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM CustomerProfile c WHERE c.userId IN :userIds")
+    List<CustomerProfile> findForUpdateByUserIdIn(@Param("userIds") Collection<Long> userIds);
+
+    // Redemption: balance check and deduction in one statement. Returns 1 if the
+    // points were deducted, 0 if the balance was too low or the user is unknown.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+           UPDATE CustomerProfile c
+           SET c.pointsBalance = c.pointsBalance - :cost, c.version = c.version + 1
+           WHERE c.userId = :userId AND c.pointsBalance >= :cost
+           """)
+    int debitIfSufficient(@Param("userId") Long userId, @Param("cost") int cost);
 }
@@ -0,0 +1,20 @@
+package com.cts.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.cts.entity.CustomerSummary;
+
+import jakarta.persistence.LockModeType;
+
+public interface CustomerSummaryRepository extends JpaRepository<CustomerSummary, Long> {
+
+    // Serializes concurrent updates of one user's summary
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM CustomerSummary s WHERE s.userId = :userId")
+    Optional<CustomerSummary> findForUpdate(@Param("userId") Long userId);
+}
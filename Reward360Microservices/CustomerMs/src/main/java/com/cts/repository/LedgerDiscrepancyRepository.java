@@ -0,0 +1,15 @@
+package com.cts.repository;
+
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.cts.entity.LedgerDiscrepancy;
+
+public interface LedgerDiscrepancyRepository extends JpaRepository<LedgerDiscrepancy, Long> {
+
+    // Discrepancy report: keyset pages over the (run_id, user_id) index
+    List<LedgerDiscrepancy> findByRunIdAndUserIdGreaterThanOrderByUserId(Long runId, Long afterUserId,
+            Pageable limit);
+}
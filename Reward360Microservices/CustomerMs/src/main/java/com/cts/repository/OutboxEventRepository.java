@@ -0,0 +1,41 @@
+package com.cts.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.cts.entity.OutboxEvent;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Relay: lock the next due events in id order, including claims whose lease
+    // ran out. Rows locked by another relay thread or instance are skipped
+    // instead of waited on.
+    @Query(value = """
+           SELECT * FROM outbox_event
+           WHERE status IN ('PENDING', 'IN_FLIGHT') AND next_attempt_at <= :now
+           ORDER BY id
+           LIMIT :limit
+           FOR UPDATE SKIP LOCKED
+           """, nativeQuery = true)
+    List<OutboxEvent> lockNextBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    // Relay: lock the events this relay still holds the lease on, once delivered
+    @Query(value = """
+           SELECT * FROM outbox_event
+           WHERE id IN (:ids) AND status = 'IN_FLIGHT' AND next_attempt_at = :leaseUntil
+           FOR UPDATE
+           """, nativeQuery = true)
+    List<OutboxEvent> lockClaimed(@Param("ids") List<Long> ids, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    long countByStatus(String status);
+
+    // Admin: give parked events another round of attempts
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.status = 'PENDING', e.attempts = 0, e.nextAttemptAt = :now WHERE e.status = 'DEAD'")
+    int requeueDead(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,13 @@
+package com.cts.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.cts.entity.PointsStatement;
+
+public interface PointsStatementRepository extends JpaRepository<PointsStatement, Long> {
+
+    // Served by the (user_id, period) unique index
+    List<PointsStatement> findByUserIdAndPeriodBetweenOrderByPeriod(Long userId, int from, int to);
+}
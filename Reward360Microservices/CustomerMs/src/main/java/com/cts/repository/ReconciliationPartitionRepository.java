@@ -0,0 +1,8 @@
+package com.cts.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.cts.entity.ReconciliationPartition;
+
+public interface ReconciliationPartitionRepository extends JpaRepository<ReconciliationPartition, Long> {
+}
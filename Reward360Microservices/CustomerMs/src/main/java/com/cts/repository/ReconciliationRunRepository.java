@@ -0,0 +1,14 @@
+package com.cts.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.cts.entity.ReconciliationRun;
+
+public interface ReconciliationRunRepository extends JpaRepository<ReconciliationRun, Long> {
+
+    ReconciliationRun findFirstByOrderByIdDesc();
+
+    List<ReconciliationRun> findByStatus(String status);
+}
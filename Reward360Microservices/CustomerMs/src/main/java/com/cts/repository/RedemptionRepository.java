@@ -1,11 +1,18 @@
-
 package com.cts.repository;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import com.cts.entity.Redemption;
 
+import jakarta.persistence.QueryHint;
+
 
 public interface RedemptionRepository extends JpaRepository<Redemption, Long> {
     List<Redemption> findByUserId(Long userId);
@@ -13,4 +20,35 @@ public interface RedemptionRepository extends JpaRepository<Redemption, Long> {
     // List<Redemption> findByUserId(Long userId);
     // or with sorting:
     List<Redemption> findByUserIdOrderByDateDesc(Long userId);
+
+    // Customer summary rebuild
+    long countByUserId(Long userId);
+
+    // Keyset pagination over the (userId, date, id) index - first page
+    List<Redemption> findByUserIdOrderByDateDescIdDesc(Long userId, Pageable limit);
+
+    // Keyset pagination - rows strictly after the (date, id) cursor
+    @Query("""
+           SELECT r FROM Redemption r
+           WHERE r.userId = :userId
+             AND (r.date < :date OR (r.date = :date AND r.id < :id))
+           ORDER BY r.date DESC, r.id DESC
+           """)
+    List<Redemption> findPageAfter(@Param("userId") Long userId, @Param("date") LocalDate date,
+            @Param("id") Long id, Pageable limit);
+
+    // Admin export - rows are pulled from a server-side cursor (useCursorFetch) in fetch-size chunks
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+           SELECT r FROM Redemption r
+           WHERE (:userId IS NULL OR r.userId = :userId)
+             AND (:from IS NULL OR r.date >= :from)
+             AND (:to IS NULL OR r.date <= :to)
+           ORDER BY r.id
+           """)
+    Stream<Redemption> streamForExport(@Param("userId") Long userId, @Param("from") LocalDate from,
+            @Param("to") LocalDate to);
 }
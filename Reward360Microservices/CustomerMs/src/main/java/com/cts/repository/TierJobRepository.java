@@ -0,0 +1,10 @@
+package com.cts.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.cts.entity.TierJob;
+
+public interface TierJobRepository extends JpaRepository<TierJob, Long> {
+
+    TierJob findFirstByOrderByIdDesc();
+}
@@ -1,11 +1,57 @@
-
 package com.cts.repository;
 
 import com.cts.entity.Transaction;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
     List<Transaction> findByUserIdOrderByDateDesc(Long userId);
+
+    // Keyset pagination over the (userId, date, id) index - first page
+    List<Transaction> findByUserIdOrderByDateDescIdDesc(Long userId, Pageable limit);
+
+    // Keyset pagination - rows strictly after the (date, id) cursor
+    @Query("""
+           SELECT t FROM Transaction t
+           WHERE t.userId = :userId
+             AND (t.date < :date OR (t.date = :date AND t.id < :id))
+           ORDER BY t.date DESC, t.id DESC
+           """)
+    List<Transaction> findPageAfter(@Param("userId") Long userId, @Param("date") LocalDate date,
+            @Param("id") Long id, Pageable limit);
+
+    // Expiry engine: per user, the points and earliest expiry of CLAIM lots still valid after the date
+    @Query("""
+           SELECT t.userId, SUM(t.pointsEarned), MIN(t.expiry) FROM Transaction t
+           WHERE t.userId IN :userIds AND t.type = 'CLAIM' AND t.expiry > :date
+           GROUP BY t.userId
+           """)
+    List<Object[]> sumUnexpiredLots(@Param("userIds") Collection<Long> userIds, @Param("date") LocalDate date);
+
+    // Customer summary rebuild: points claimed since the date, from the (user_id, date, id) index
+    @Query("""
+           SELECT COALESCE(SUM(t.pointsEarned), 0) FROM Transaction t
+           WHERE t.userId = :userId AND t.type = 'CLAIM' AND t.date >= :from
+           """)
+    long sumClaimedSince(@Param("userId") Long userId, @Param("from") LocalDate from);
+
+    // Ledger reconciliation: all points a user earned and redeemed (redemptions and expiries),
+    // including archived months; one statement, so an archive chunk moving rows is seen whole or not at all
+    @Query(value = """
+           SELECT COALESCE(SUM(earned), 0), COALESCE(SUM(redeemed), 0) FROM (
+             SELECT points_earned AS earned, points_redeemed AS redeemed FROM transaction WHERE user_id = :userId
+             UNION ALL
+             SELECT points_earned, points_redeemed FROM archived_totals WHERE user_id = :userId) t
+           """, nativeQuery = true)
+    List<Object[]> sumPoints(@Param("userId") Long userId);
+
+    // Bulk claims: the file's external ids that were already applied, as externalId, userId, pointsEarned
+    @Query("SELECT t.externalId, t.userId, t.pointsEarned FROM Transaction t WHERE t.externalId IN :externalIds")
+    List<Object[]> findClaimsByExternalIds(@Param("externalIds") Collection<String> externalIds);
 }
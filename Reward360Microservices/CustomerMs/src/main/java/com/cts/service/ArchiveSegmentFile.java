@@ -0,0 +1,292 @@
+package com.cts.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * On-disk format of an archive segment: rows sorted by userId, cut into
+ * blocks of up to block-rows rows. Within a block the values are stored
+ * column by column (ids, userIds and dates as zig-zag varint deltas, strings
+ * length-prefixed UTF-8) and the block is GZIP-compressed on its own, so a
+ * read only inflates the blocks that can hold the user.
+ *
+ * Layout: header (magic, version, column types), blocks, footer (offset,
+ * length, rows and userId range of each block), then the footer offset and
+ * the magic again. Files are written under a temporary name, forced to disk
+ * and renamed, so a segment is either complete or absent.
+ */
+final class ArchiveSegmentFile {
+
+    enum ColumnType {
+        LONG, INT, DATE, STRING
+    }
+
+    private static final int MAGIC = 0x52333630; // "R360"
+    private static final int VERSION = 1;
+
+    /** Position and userId range of one block, from the footer. */
+    record Block(long offset, int length, int rows, long minUserId, long maxUserId) {
+    }
+
+    record Footer(ColumnType[] columns, List<Block> blocks) {
+    }
+
+    private ArchiveSegmentFile() {
+    }
+
+    /**
+     * Appends rows (sorted by userId) to a new segment file. The file only
+     * appears under its final name once {@link #finish()} returns.
+     */
+    static final class Writer implements AutoCloseable {
+
+        private final Path target;
+        private final Path temp;
+        private final ColumnType[] columns;
+        private final int userColumn;
+        private final int blockRows;
+        private final OutputStream out;
+        private final List<Object[]> pending = new ArrayList<>();
+        private final List<Block> blocks = new ArrayList<>();
+        private long position;
+        private long rows;
+        private boolean finished;
+
+        Writer(Path target, ColumnType[] columns, int userColumn, int blockRows) throws IOException {
+            this.target = target;
+            this.temp = target.resolveSibling(target.getFileName() + ".tmp");
+            this.columns = columns;
+            this.userColumn = userColumn;
+            this.blockRows = blockRows;
+            Files.createDirectories(target.getParent());
+            this.out = Files.newOutputStream(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            DataOutputStream data = new DataOutputStream(header);
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            data.writeByte(columns.length);
+            for (ColumnType column : columns) {
+                data.writeByte(column.ordinal());
+            }
+            write(header.toByteArray());
+        }
+
+        void add(Object[] row) throws IOException {
+            pending.add(row);
+            rows++;
+            if (pending.size() >= blockRows) {
+                flushBlock();
+            }
+        }
+
+        long getRows() {
+            return rows;
+        }
+
+        int getBlocks() {
+            return blocks.size();
+        }
+
+        /**
+         * Write the last block and the footer, force the file to disk and move
+         * it to its final name.
+         *
+         * @return the size of the file in bytes
+         */
+        long finish() throws IOException {
+            flushBlock();
+            ByteArrayOutputStream footer = new ByteArrayOutputStream();
+            DataOutputStream data = new DataOutputStream(footer);
+            data.writeInt(blocks.size());
+            for (Block block : blocks) {
+                data.writeLong(block.offset());
+                data.writeInt(block.length());
+                data.writeInt(block.rows());
+                data.writeLong(block.minUserId());
+                data.writeLong(block.maxUserId());
+            }
+            long footerOffset = position;
+            data.writeLong(footerOffset);
+            data.writeInt(MAGIC);
+            write(footer.toByteArray());
+            out.close();
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            finished = true;
+            return position;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!finished) {
+                out.close();
+                Files.deleteIfExists(temp);
+            }
+        }
+
+        private void flushBlock() throws IOException {
+            if (pending.isEmpty()) {
+                return;
+            }
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (DataOutputStream data = new DataOutputStream(new GZIPOutputStream(compressed, 64 * 1024))) {
+                for (int c = 0; c < columns.length; c++) {
+                    writeColumn(data, columns[c], c);
+                }
+            }
+            long minUser = (Long) pending.get(0)[userColumn];
+            long maxUser = (Long) pending.get(pending.size() - 1)[userColumn];
+            byte[] bytes = compressed.toByteArray();
+            blocks.add(new Block(position, bytes.length, pending.size(), minUser, maxUser));
+            write(bytes);
+            pending.clear();
+        }
+
+        private void writeColumn(DataOutputStream data, ColumnType type, int c) throws IOException {
+            long previous = 0;
+            for (Object[] row : pending) {
+                Object value = row[c];
+                data.writeBoolean(value != null);
+                if (value == null) {
+                    continue;
+                }
+                switch (type) {
+                    case LONG -> {
+                        long v = (Long) value;
+                        writeVarLong(data, v - previous);
+                        previous = v;
+                    }
+                    case INT -> writeVarLong(data, (Integer) value);
+                    case DATE -> {
+                        long v = ((LocalDate) value).toEpochDay();
+                        writeVarLong(data, v - previous);
+                        previous = v;
+                    }
+                    case STRING -> {
+                        byte[] utf8 = ((String) value).getBytes(StandardCharsets.UTF_8);
+                        writeVarLong(data, utf8.length);
+                        data.write(utf8);
+                    }
+                }
+            }
+        }
+
+        private void write(byte[] bytes) throws IOException {
+            out.write(bytes);
+            position += bytes.length;
+        }
+    }
+
+    static Footer readFooter(Path file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r")) {
+            raf.seek(0);
+            if (raf.readInt() != MAGIC || raf.readInt() != VERSION) {
+                throw new IOException("Not an archive segment: " + file);
+            }
+            ColumnType[] columns = new ColumnType[raf.readUnsignedByte()];
+            for (int c = 0; c < columns.length; c++) {
+                columns[c] = ColumnType.values()[raf.readUnsignedByte()];
+            }
+            raf.seek(raf.length() - 12);
+            long footerOffset = raf.readLong();
+            if (raf.readInt() != MAGIC) {
+                throw new IOException("Truncated archive segment: " + file);
+            }
+            raf.seek(footerOffset);
+            int count = raf.readInt();
+            List<Block> blocks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                blocks.add(new Block(raf.readLong(), raf.readInt(), raf.readInt(), raf.readLong(), raf.readLong()));
+            }
+            return new Footer(columns, blocks);
+        }
+    }
+
+    /**
+     * Inflate one block back into rows, in the order they were written.
+     */
+    static List<Object[]> readBlock(Path file, ColumnType[] columns, Block block) throws IOException {
+        byte[] bytes = new byte[block.length()];
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r")) {
+            raf.seek(block.offset());
+            raf.readFully(bytes);
+        }
+        List<Object[]> rows = new ArrayList<>(block.rows());
+        for (int r = 0; r < block.rows(); r++) {
+            rows.add(new Object[columns.length]);
+        }
+        try (DataInputStream data = new DataInputStream(
+                new GZIPInputStream(new ByteArrayInputStream(bytes), 64 * 1024))) {
+            for (int c = 0; c < columns.length; c++) {
+                long previous = 0;
+                for (Object[] row : rows) {
+                    if (!data.readBoolean()) {
+                        continue;
+                    }
+                    switch (columns[c]) {
+                        case LONG -> {
+                            previous += readVarLong(data);
+                            row[c] = previous;
+                        }
+                        case INT -> row[c] = (int) readVarLong(data);
+                        case DATE -> {
+                            previous += readVarLong(data);
+                            row[c] = LocalDate.ofEpochDay(previous);
+                        }
+                        case STRING -> {
+                            byte[] utf8 = new byte[(int) readVarLong(data)];
+                            data.readFully(utf8);
+                            row[c] = new String(utf8, StandardCharsets.UTF_8);
+                        }
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    // Zig-zag varint: small deltas of either sign take one or two bytes
+    private static void writeVarLong(OutputStream out, long value) throws IOException {
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("Truncated archive block");
+            }
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (v >>> 1) ^ -(v & 1);
+            }
+        }
+        throw new IOException("Malformed archive block");
+    }
+}
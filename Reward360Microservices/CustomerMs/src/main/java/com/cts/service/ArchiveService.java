@@ -0,0 +1,556 @@
+package com.cts.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cts.entity.ArchiveSegment;
+import com.cts.entity.Redemption;
+import com.cts.entity.Transaction;
+import com.cts.repository.ArchiveSegmentRepository;
+import com.cts.service.ArchiveSegmentFile.ColumnType;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Keeps the Transaction and Redemption tables down to the recent months.
+ * Once a month, every calendar month older than horizon-months is streamed
+ * out in (user_id, date, id) order into one {@link ArchiveSegmentFile} per
+ * table under archive.dir, recorded in archive_segment, and then deleted from
+ * the hot table in chunks. Each delete chunk adds the points and row counts
+ * it removes to archived_totals in the same transaction, so hot rows plus
+ * archived_totals always add up to the full ledger.
+ *
+ * Months are archived oldest first, so the newest archived month is a
+ * watermark: history reads take rows on or after {@link #hotFrom()} from the
+ * hot tables and older rows from the segments, and ignore hot rows below it
+ * that are still waiting to be deleted. Deletes start catalog-refresh-ms
+ * after the segments are recorded, once every instance has picked up the new
+ * watermark.
+ *
+ * Segments are plain files: with more than one CustomerMs instance,
+ * archive.dir must be a shared mount.
+ */
+@Service
+public class ArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveService.class);
+
+    static final String TRANSACTION = "Transaction";
+    static final String REDEMPTION = "Redemption";
+
+    // Claims expire after 4 months; their lots, expiries and open statements must stay hot
+    static final int MIN_HORIZON_MONTHS = 6;
+
+    // Both layouts start with id, user_id, date, which the history reads rely on
+    private static final String TRANSACTION_COLUMNS = "id, user_id, date, type, points_earned, points_redeemed, "
+            + "expiry, store, note, external_id";
+    private static final ColumnType[] TRANSACTION_TYPES = { ColumnType.LONG, ColumnType.LONG, ColumnType.DATE,
+            ColumnType.STRING, ColumnType.INT, ColumnType.INT, ColumnType.DATE, ColumnType.STRING,
+            ColumnType.STRING, ColumnType.STRING };
+    private static final String REDEMPTION_COLUMNS = "id, user_id, date, cost_points, offer_title, store, "
+            + "transaction_id, confirmation_code";
+    private static final ColumnType[] REDEMPTION_TYPES = { ColumnType.LONG, ColumnType.LONG, ColumnType.DATE,
+            ColumnType.INT, ColumnType.STRING, ColumnType.STRING, ColumnType.STRING, ColumnType.STRING };
+    private static final int ID = 0;
+    private static final int USER_ID = 1;
+    private static final int DATE = 2;
+
+    private static final String OLDEST_ROW = "SELECT MIN(date) FROM %s WHERE date >= ? AND date < ? "
+            + "AND user_id IS NOT NULL";
+    private static final String SELECT_MONTH = "SELECT %s FROM %s WHERE date >= ? AND date < ? "
+            + "AND user_id IS NOT NULL ORDER BY user_id, date, id";
+    // Locked, so a second instance running the job cannot count the same rows twice
+    private static final String SELECT_PURGE_CHUNK = "SELECT id, user_id, %s FROM %s WHERE date < ? "
+            + "AND user_id IS NOT NULL ORDER BY date, id LIMIT ? FOR UPDATE";
+    private static final String DELETE_ROW = "DELETE FROM %s WHERE id = ?";
+    private static final String UPSERT_TOTALS = "INSERT INTO archived_totals "
+            + "(user_id, points_earned, points_redeemed, transactions, redemptions) VALUES (?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE points_earned = points_earned + VALUES(points_earned), "
+            + "points_redeemed = points_redeemed + VALUES(points_redeemed), "
+            + "transactions = transactions + VALUES(transactions), redemptions = redemptions + VALUES(redemptions)";
+
+    @Value("${archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${archive.dir:archive}")
+    private String dir;
+
+    @Value("${archive.horizon-months:24}")
+    private int horizonMonths;
+
+    @Value("${archive.block-rows:4096}")
+    private int blockRows;
+
+    // Hot rows deleted per transaction
+    @Value("${archive.delete-chunk-size:5000}")
+    private int deleteChunkSize;
+
+    // How long an instance may read with a stale watermark; deletes wait this long
+    @Value("${archive.catalog-refresh-ms:10000}")
+    private long catalogRefreshMs;
+
+    // MySQL Connector/J streams row by row only with Integer.MIN_VALUE (or useCursorFetch=true)
+    @Value("${archive.fetch-size:-2147483648}")
+    private int fetchSize;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ArchiveSegmentRepository segmentRepository;
+
+    private JdbcTemplate streamingTemplate;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Map<String, ArchiveSegmentFile.Footer> footers = new ConcurrentHashMap<>();
+    private volatile Catalog catalog;
+
+    // Segments newest first; hotFrom is the first day not archived, null before the first run
+    private record Catalog(LocalDate hotFrom, List<ArchiveSegment> segments, long loadedAt) {
+    }
+
+    /** Callback of {@link #forEachRedemption}, which may fail writing its output. */
+    @FunctionalInterface
+    public interface RowConsumer<T> {
+        void accept(T row) throws IOException;
+    }
+
+    @PostConstruct
+    void init() {
+        streamingTemplate = new JdbcTemplate(dataSource);
+        streamingTemplate.setFetchSize(fetchSize);
+    }
+
+    @Scheduled(cron = "${archive.cron:0 0 4 1 * *}")
+    public void runMonthly() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            run();
+        } catch (RuntimeException e) {
+            logger.warn("Skipping monthly archive run: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Archive every month before the horizon that still has hot rows, then
+     * delete the archived rows from the hot tables. A run that stopped
+     * half-way is completed by the next one.
+     */
+    public Map<String, Object> run() {
+        if (horizonMonths < MIN_HORIZON_MONTHS) {
+            throw new RuntimeException("archive.horizon-months must be at least " + MIN_HORIZON_MONTHS);
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new RuntimeException("An archive run is already in progress");
+        }
+        try {
+            long started = System.currentTimeMillis();
+            LocalDate boundary = LocalDate.now().withDayOfMonth(1).minusMonths(horizonMonths);
+            LocalDate from = reloadCatalog().hotFrom();
+            List<ArchiveSegment> created = new ArrayList<>();
+            LocalDate oldest = oldestRow(from, boundary);
+            for (LocalDate month = oldest; month != null && month.isBefore(boundary); month = month.plusMonths(1)) {
+                created.addAll(archiveMonth(month));
+            }
+            Catalog current = reloadCatalog();
+            if (!created.isEmpty()) {
+                // Let the other instances stop reading the archived months from the hot tables first
+                Thread.sleep(catalogRefreshMs);
+            }
+            long transactions = 0;
+            long redemptions = 0;
+            if (current.hotFrom() != null) {
+                transactions = purge(TRANSACTION, current.hotFrom());
+                redemptions = purge(REDEMPTION, current.hotFrom());
+            }
+            long durationMs = System.currentTimeMillis() - started;
+            logger.info("Archived {} segments; deleted {} transactions and {} redemptions before {} in {} ms",
+                    created.size(), transactions, redemptions, current.hotFrom(), durationMs);
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("hotFrom", current.hotFrom());
+            result.put("segmentsCreated", created.size());
+            result.put("rowsArchived", created.stream().mapToLong(ArchiveSegment::getRowCount).sum());
+            result.put("bytesWritten", created.stream().mapToLong(ArchiveSegment::getBytes).sum());
+            result.put("transactionsDeleted", transactions);
+            result.put("redemptionsDeleted", redemptions);
+            result.put("durationMs", durationMs);
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Archive run interrupted", e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public List<ArchiveSegment> getSegments() {
+        return segmentRepository.findAllByOrderByPeriodDescTableNameAsc();
+    }
+
+    /**
+     * First day whose rows are still in the hot tables, or null when nothing
+     * has been archived. Rows dated before it are read from the segments.
+     */
+    public LocalDate hotFrom() {
+        return catalog().hotFrom();
+    }
+
+    /** Number of redemptions held in segments. */
+    public long archivedRedemptions() {
+        return catalog().segments().stream()
+                .filter(s -> REDEMPTION.equals(s.getTableName()))
+                .mapToLong(ArchiveSegment::getRowCount)
+                .sum();
+    }
+
+    /**
+     * A user's archived transactions ordered by (date DESC, id DESC),
+     * strictly after the cursor when one is given.
+     */
+    List<Transaction> transactions(Long userId, HistoryCursor after, int limit) {
+        return read(TRANSACTION, userId, after, limit, ArchiveService::toTransaction);
+    }
+
+    /**
+     * A user's archived redemptions ordered by (date DESC, id DESC),
+     * strictly after the cursor when one is given.
+     */
+    List<Redemption> redemptions(Long userId, HistoryCursor after, int limit) {
+        return read(REDEMPTION, userId, after, limit, ArchiveService::toRedemption);
+    }
+
+    /**
+     * Archived redemptions matching the optional export filters, oldest month
+     * first and (userId, date, id) within a month. One block is held in
+     * memory at a time.
+     */
+    public void forEachRedemption(Long userId, LocalDate from, LocalDate to, RowConsumer<Redemption> consumer)
+            throws IOException {
+        List<ArchiveSegment> segments = new ArrayList<>(catalog().segments());
+        Collections.reverse(segments);
+        for (ArchiveSegment segment : segments) {
+            YearMonth month = YearMonth.of(segment.getPeriod() / 100, segment.getPeriod() % 100);
+            if (!REDEMPTION.equals(segment.getTableName())
+                    || (from != null && month.atEndOfMonth().isBefore(from))
+                    || (to != null && month.atDay(1).isAfter(to))
+                    || (userId != null && !holds(segment.getMinUserId(), segment.getMaxUserId(), userId))) {
+                continue;
+            }
+            Path file = file(segment);
+            ArchiveSegmentFile.Footer footer = footer(segment);
+            for (ArchiveSegmentFile.Block block : footer.blocks()) {
+                if (userId != null && !holds(block.minUserId(), block.maxUserId(), userId)) {
+                    continue;
+                }
+                for (Object[] row : ArchiveSegmentFile.readBlock(file, footer.columns(), block)) {
+                    LocalDate date = (LocalDate) row[DATE];
+                    if ((userId == null || userId.equals(row[USER_ID]))
+                            && (from == null || (date != null && !date.isBefore(from)))
+                            && (to == null || (date != null && !date.isAfter(to)))) {
+                        consumer.accept(toRedemption(row));
+                    }
+                }
+            }
+        }
+    }
+
+    private <T> List<T> read(String table, Long userId, HistoryCursor after, int limit,
+            Function<Object[], T> mapper) {
+        List<T> result = new ArrayList<>();
+        for (ArchiveSegment segment : catalog().segments()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (!table.equals(segment.getTableName())
+                    || !holds(segment.getMinUserId(), segment.getMaxUserId(), userId)
+                    || (after != null && YearMonth.of(segment.getPeriod() / 100, segment.getPeriod() % 100)
+                            .atDay(1).isAfter(after.getDate()))) {
+                continue;
+            }
+            List<Object[]> rows = userRows(segment, userId);
+            // Stored ascending by (user_id, date, id)
+            for (int i = rows.size() - 1; i >= 0 && result.size() < limit; i--) {
+                Object[] row = rows.get(i);
+                if (after == null || before(row, after)) {
+                    result.add(mapper.apply(row));
+                }
+            }
+        }
+        return result;
+    }
+
+    private List<Object[]> userRows(ArchiveSegment segment, Long userId) {
+        Path file = file(segment);
+        ArchiveSegmentFile.Footer footer = footer(segment);
+        List<Object[]> rows = new ArrayList<>();
+        try {
+            for (ArchiveSegmentFile.Block block : footer.blocks()) {
+                if (!holds(block.minUserId(), block.maxUserId(), userId)) {
+                    continue;
+                }
+                for (Object[] row : ArchiveSegmentFile.readBlock(file, footer.columns(), block)) {
+                    if (userId.equals(row[USER_ID])) {
+                        rows.add(row);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Archive segment unreadable: " + segment.getFileName(), e);
+        }
+        return rows;
+    }
+
+    private static boolean before(Object[] row, HistoryCursor cursor) {
+        LocalDate date = (LocalDate) row[DATE];
+        if (date == null) {
+            return true;
+        }
+        int order = date.compareTo(cursor.getDate());
+        return order < 0 || (order == 0 && (Long) row[ID] < cursor.getId());
+    }
+
+    private static boolean holds(long minUserId, long maxUserId, long userId) {
+        return userId >= minUserId && userId <= maxUserId;
+    }
+
+    private ArchiveSegmentFile.Footer footer(ArchiveSegment segment) {
+        return footers.computeIfAbsent(segment.getFileName(), name -> {
+            try {
+                return ArchiveSegmentFile.readFooter(file(segment));
+            } catch (IOException e) {
+                throw new RuntimeException("Archive segment unreadable: " + name, e);
+            }
+        });
+    }
+
+    private Path file(ArchiveSegment segment) {
+        return Paths.get(dir).resolve(segment.getFileName());
+    }
+
+    private Catalog catalog() {
+        Catalog current = catalog;
+        if (current == null || System.currentTimeMillis() - current.loadedAt() > catalogRefreshMs) {
+            current = reloadCatalog();
+        }
+        return current;
+    }
+
+    private Catalog reloadCatalog() {
+        List<ArchiveSegment> segments = segmentRepository.findAllByOrderByPeriodDescTableNameAsc();
+        LocalDate hotFrom = null;
+        if (!segments.isEmpty()) {
+            int last = segments.get(0).getPeriod();
+            hotFrom = YearMonth.of(last / 100, last % 100).plusMonths(1).atDay(1);
+        }
+        Catalog loaded = new Catalog(hotFrom, List.copyOf(segments), System.currentTimeMillis());
+        catalog = loaded;
+        return loaded;
+    }
+
+    // First month before the boundary with hot rows not yet archived, or null
+    private LocalDate oldestRow(LocalDate from, LocalDate boundary) {
+        LocalDate floor = from != null ? from : LocalDate.of(1000, 1, 1);
+        LocalDate oldest = null;
+        for (String table : new String[] { TRANSACTION, REDEMPTION }) {
+            LocalDate date = jdbcTemplate.queryForObject(String.format(OLDEST_ROW, physical(table)), LocalDate.class,
+                    floor, boundary);
+            if (date != null && (oldest == null || date.isBefore(oldest))) {
+                oldest = date;
+            }
+        }
+        return oldest != null ? oldest.withDayOfMonth(1) : null;
+    }
+
+    /**
+     * Write the month's segments and record them, both tables together.
+     */
+    private List<ArchiveSegment> archiveMonth(LocalDate month) {
+        List<ArchiveSegment> segments = new ArrayList<>(2);
+        ArchiveSegment transactions = writeSegment(TRANSACTION, TRANSACTION_COLUMNS, TRANSACTION_TYPES, month);
+        if (transactions != null) {
+            segments.add(transactions);
+        }
+        ArchiveSegment redemptions = writeSegment(REDEMPTION, REDEMPTION_COLUMNS, REDEMPTION_TYPES, month);
+        if (redemptions != null) {
+            segments.add(redemptions);
+        }
+        if (!segments.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> segmentRepository.saveAll(segments));
+            logger.info("Archived {} to {}", YearMonth.from(month),
+                    segments.stream().map(ArchiveSegment::getFileName).toList());
+        }
+        return segments;
+    }
+
+    private ArchiveSegment writeSegment(String table, String columns, ColumnType[] types, LocalDate month) {
+        int period = month.getYear() * 100 + month.getMonthValue();
+        String fileName = table + "-" + period + ".seg";
+        Path file = Paths.get(dir).resolve(fileName);
+        String sql = String.format(SELECT_MONTH, columns, physical(table));
+        try (ArchiveSegmentFile.Writer writer = new ArchiveSegmentFile.Writer(file, types, USER_ID, blockRows);
+                Stream<Object[]> rows = streamingTemplate.queryForStream(sql, (rs, i) -> readRow(rs, types),
+                        month, month.plusMonths(1))) {
+            long minUserId = Long.MAX_VALUE;
+            long maxUserId = Long.MIN_VALUE;
+            Iterator<Object[]> it = rows.iterator();
+            while (it.hasNext()) {
+                Object[] row = it.next();
+                long userId = (Long) row[USER_ID];
+                minUserId = Math.min(minUserId, userId);
+                maxUserId = Math.max(maxUserId, userId);
+                writer.add(row);
+            }
+            if (writer.getRows() == 0) {
+                return null;
+            }
+            long bytes = writer.finish();
+            footers.remove(fileName);
+            ArchiveSegment segment = new ArchiveSegment();
+            segment.setTableName(table);
+            segment.setPeriod(period);
+            segment.setFileName(fileName);
+            segment.setRowCount(writer.getRows());
+            segment.setBlocks(writer.getBlocks());
+            segment.setBytes(bytes);
+            segment.setMinUserId(minUserId);
+            segment.setMaxUserId(maxUserId);
+            segment.setCreatedAt(LocalDateTime.now());
+            return segment;
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write archive segment " + fileName, e);
+        }
+    }
+
+    // Segments and the catalog use the entity names; the naming strategy lower-cases the tables
+    private static String physical(String table) {
+        return table.toLowerCase(Locale.ROOT);
+    }
+
+    private static Object[] readRow(ResultSet rs, ColumnType[] types) throws SQLException {
+        Object[] row = new Object[types.length];
+        for (int c = 0; c < types.length; c++) {
+            int index = c + 1;
+            row[c] = switch (types[c]) {
+                case LONG -> {
+                    long value = rs.getLong(index);
+                    yield rs.wasNull() ? null : value;
+                }
+                case INT -> {
+                    int value = rs.getInt(index);
+                    yield rs.wasNull() ? null : value;
+                }
+                case DATE -> rs.getObject(index, LocalDate.class);
+                case STRING -> rs.getString(index);
+            };
+        }
+        return row;
+    }
+
+    /**
+     * Delete the hot rows dated before hotFrom, chunk by chunk, moving their
+     * sums to archived_totals in the same transaction.
+     */
+    private long purge(String table, LocalDate hotFrom) {
+        boolean transactions = TRANSACTION.equals(table);
+        String select = String.format(SELECT_PURGE_CHUNK,
+                transactions ? "points_earned, points_redeemed" : "0, 0", physical(table));
+        String delete = String.format(DELETE_ROW, physical(table));
+        long deleted = 0;
+        while (true) {
+            Integer chunk = transactionTemplate.execute(status -> {
+                List<long[]> rows = jdbcTemplate.query(select,
+                        (rs, i) -> new long[] { rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4) },
+                        hotFrom, deleteChunkSize);
+                // Per user: earned, redeemed, rows - upserted in user order, like the statement projection
+                Map<Long, long[]> totals = new TreeMap<>();
+                for (long[] row : rows) {
+                    long[] sums = totals.computeIfAbsent(row[1], k -> new long[3]);
+                    sums[0] += row[2];
+                    sums[1] += row[3];
+                    sums[2]++;
+                }
+                List<Object[]> upserts = new ArrayList<>(totals.size());
+                for (Map.Entry<Long, long[]> entry : totals.entrySet()) {
+                    long[] sums = entry.getValue();
+                    upserts.add(new Object[] { entry.getKey(), sums[0], sums[1],
+                            transactions ? sums[2] : 0, transactions ? 0 : sums[2] });
+                }
+                jdbcTemplate.batchUpdate(UPSERT_TOTALS, upserts);
+                List<Object[]> ids = new ArrayList<>(rows.size());
+                for (long[] row : rows) {
+                    ids.add(new Object[] { row[0] });
+                }
+                jdbcTemplate.batchUpdate(delete, ids);
+                return rows.size();
+            });
+            if (chunk == null || chunk == 0) {
+                return deleted;
+            }
+            deleted += chunk;
+        }
+    }
+
+    private static Transaction toTransaction(Object[] row) {
+        Transaction transaction = new Transaction();
+        transaction.setId((Long) row[0]);
+        transaction.setUserId((Long) row[1]);
+        transaction.setDate((LocalDate) row[2]);
+        transaction.setType((String) row[3]);
+        transaction.setPointsEarned(row[4] != null ? (Integer) row[4] : 0);
+        transaction.setPointsRedeemed(row[5] != null ? (Integer) row[5] : 0);
+        transaction.setExpiry((LocalDate) row[6]);
+        transaction.setStore((String) row[7]);
+        transaction.setNote((String) row[8]);
+        transaction.setExternalId((String) row[9]);
+        return transaction;
+    }
+
+    private static Redemption toRedemption(Object[] row) {
+        Redemption redemption = new Redemption();
+        redemption.setId((Long) row[0]);
+        redemption.setUserId((Long) row[1]);
+        redemption.setDate((LocalDate) row[2]);
+        redemption.setCostPoints(row[3] != null ? (Integer) row[3] : 0);
+        redemption.setOfferTitle((String) row[4]);
+        redemption.setStore((String) row[5]);
+        redemption.setTransactionId((String) row[6]);
+        redemption.setConfirmationCode((String) row[7]);
+        return redemption;
+    }
+}
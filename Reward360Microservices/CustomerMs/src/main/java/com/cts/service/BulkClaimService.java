@@ -0,0 +1,461 @@
+package com.cts.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cts.entity.CustomerProfile;
+import com.cts.entity.Transaction;
+import com.cts.repository.CustomerProfilerepository;
+import com.cts.repository.TransactionRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Bulk claim ingestion for partner purchase files. The payload is read as a
+ * stream of CSV (userId,points[,note[,externalId]]) or NDJSON lines and
+ * processed in chunks: each chunk groups claims by user, updates every
+ * profile once, inserts the CLAIM transactions with one JDBC batch, and
+ * commits. One report line is written per input line as chunks complete.
+ *
+ * A line's optional externalId, namespaced as BLK-&lt;userId&gt;-&lt;externalId&gt;,
+ * becomes the transaction's id, so uploading a file again skips the lines
+ * that were already applied instead of crediting them twice. A repeat is
+ * only skipped when it credits the same user the same points; otherwise the
+ * line is rejected. Lines without an externalId get a generated id.
+ *
+ * CSV fields may be double-quoted (with "" for a quote), so a note can hold
+ * commas; lines with more than four fields are rejected.
+ */
+@Service
+public class BulkClaimService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkClaimService.class);
+
+    // Physical table name: the naming strategy lower-cases @Table(name = "Transaction")
+    private static final String INSERT_TRANSACTION = "INSERT INTO transaction "
+            + "(external_id, type, points_earned, points_redeemed, store, date, expiry, note, user_id) "
+            + "VALUES (?, 'CLAIM', ?, 0, 'Claim', ?, ?, ?, ?)";
+
+    private static final int MAX_EXTERNAL_ID = 64;
+    private static final int CSV_FIELDS = 4;
+    // Partner ids share the transaction id space with generated CLM-/RED- ids
+    private static final String BULK_PREFIX = "BLK-";
+
+    @Value("${claims.bulk.chunk-size:5000}")
+    private int chunkSize;
+
+    @Autowired
+    private CustomerProfilerepository custrepo;
+
+    @Autowired
+    private TierPolicy tierPolicy;
+
+    @Autowired
+    private PointsLedger pointsLedger;
+
+    @Autowired
+    private PointsJournal pointsJournal;
+
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Autowired
+    private PointsActivity pointsActivity;
+
+    @Autowired
+    private OptimisticRetry optimisticRetry;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * One parsed input line. userId is null when the line could not be parsed.
+     */
+    private static final class ClaimLine {
+        final long lineNo;
+        final Long userId;
+        final int points;
+        final String note;
+        final String key; // externalId from the file, or null
+        final String error;
+        // Set by the chunk transaction, again on each attempt
+        String externalId;
+        String rejected;
+        boolean skipped;
+
+        ClaimLine(long lineNo, Long userId, int points, String note, String key, String error) {
+            this.lineNo = lineNo;
+            this.userId = userId;
+            this.points = points;
+            this.note = note;
+            this.key = key;
+            this.error = error;
+        }
+    }
+
+    /** A claim already stored under a bulk id: who it credited and how much. */
+    private record Applied(Long userId, int points) {
+    }
+
+    /**
+     * Totals for one ingestion run.
+     */
+    public static final class Summary {
+        private long lines;
+        private long accepted;
+        private long rejected;
+        private long skipped;
+        private long users;
+        private long points;
+
+        public long getLines() {
+            return lines;
+        }
+
+        public long getAccepted() {
+            return accepted;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getSkipped() {
+            return skipped;
+        }
+
+        public long getUsers() {
+            return users;
+        }
+
+        public long getPoints() {
+            return points;
+        }
+    }
+
+    /**
+     * Read claims from the input, apply them chunk by chunk and write an
+     * NDJSON report line per input line, followed by a summary line.
+     */
+    public Summary ingest(InputStream in, boolean ndjson, Writer report) throws IOException {
+        Summary summary = new Summary();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+        List<ClaimLine> chunk = new ArrayList<>(chunkSize);
+        String line;
+        long lineNo = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            if (line.isBlank() || (!ndjson && lineNo == 1 && isCsvHeader(line))) {
+                continue;
+            }
+            chunk.add(ndjson ? parseJson(lineNo, line) : parseCsv(lineNo, line));
+            if (chunk.size() == chunkSize) {
+                processChunk(chunk, summary, report);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            processChunk(chunk, summary, report);
+        }
+        Map<String, Object> totals = new LinkedHashMap<>();
+        totals.put("lines", summary.lines);
+        totals.put("accepted", summary.accepted);
+        totals.put("rejected", summary.rejected);
+        totals.put("skipped", summary.skipped);
+        totals.put("users", summary.users);
+        totals.put("points", summary.points);
+        report.write(objectMapper.writeValueAsString(Map.of("summary", totals)));
+        report.write('\n');
+        report.flush();
+        return summary;
+    }
+
+    private void processChunk(List<ClaimLine> chunk, Summary summary, Writer report) throws IOException {
+        // Group valid claims by user, keeping input order within each user
+        Map<Long, List<ClaimLine>> byUser = new LinkedHashMap<>();
+        for (ClaimLine claim : chunk) {
+            if (claim.error == null) {
+                byUser.computeIfAbsent(claim.userId, id -> new ArrayList<>()).add(claim);
+            }
+        }
+
+        Map<Long, String> userErrors = new HashMap<>();
+        Map<CustomerProfile, Integer> credited = new LinkedHashMap<>();
+        String chunkError = null;
+        if (!byUser.isEmpty()) {
+            try {
+                optimisticRetry.run(() -> transactionTemplate
+                        .executeWithoutResult(status -> applyChunk(byUser, userErrors, credited)));
+                journalCredits(credited);
+            } catch (RuntimeException e) {
+                logger.error("Bulk claim chunk ending at line {} failed", chunk.get(chunk.size() - 1).lineNo, e);
+                chunkError = "Chunk failed: " + e.getMessage();
+            }
+        }
+
+        for (ClaimLine claim : chunk) {
+            summary.lines++;
+            String error = claim.error != null ? claim.error
+                    : chunkError != null ? chunkError
+                    : userErrors.containsKey(claim.userId) ? userErrors.get(claim.userId) : claim.rejected;
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("line", claim.lineNo);
+            result.put("userId", claim.userId);
+            result.put("points", claim.points);
+            if (error == null && claim.skipped) {
+                summary.skipped++;
+                result.put("status", "SKIPPED");
+                result.put("transactionId", claim.externalId);
+            } else if (error == null) {
+                summary.accepted++;
+                summary.points += claim.points;
+                result.put("status", "OK");
+                result.put("transactionId", claim.externalId);
+            } else {
+                summary.rejected++;
+                result.put("status", "REJECTED");
+                result.put("error", error);
+            }
+            report.write(objectMapper.writeValueAsString(result));
+            report.write('\n');
+        }
+        if (chunkError == null) {
+            summary.users += byUser.size() - userErrors.size();
+        }
+        report.flush();
+    }
+
+    // Runs inside the chunk transaction, again from scratch if the chunk is retried
+    private void applyChunk(Map<Long, List<ClaimLine>> byUser, Map<Long, String> userErrors,
+            Map<CustomerProfile, Integer> credited) {
+        userErrors.clear();
+        credited.clear();
+        List<String> keys = new ArrayList<>();
+        for (List<ClaimLine> claims : byUser.values()) {
+            for (ClaimLine claim : claims) {
+                claim.rejected = null;
+                claim.skipped = false;
+                claim.externalId = null;
+                if (claim.key != null) {
+                    keys.add(bulkId(claim));
+                }
+            }
+        }
+        // Lines applied by an earlier upload, then the ones applied earlier in this chunk
+        Map<String, Applied> applied = new HashMap<>();
+        if (!keys.isEmpty()) {
+            for (Object[] row : transactionRepository.findClaimsByExternalIds(keys)) {
+                applied.put((String) row[0], new Applied((Long) row[1], ((Number) row[2]).intValue()));
+            }
+        }
+        List<CustomerProfile> profiles = custrepo.findByUserIdIn(byUser.keySet());
+        Map<Long, CustomerProfile> profilesByUser = new HashMap<>();
+        for (CustomerProfile profile : profiles) {
+            profilesByUser.put(profile.getUserId(), profile);
+        }
+
+        LocalDate today = LocalDate.now();
+        LocalDate expiry = today.plusMonths(4); // Points expire in 4 months, as in claimOffer
+        List<ClaimLine> accepted = new ArrayList<>();
+
+        for (Map.Entry<Long, List<ClaimLine>> entry : byUser.entrySet()) {
+            Long userId = entry.getKey();
+            CustomerProfile profile = profilesByUser.get(userId);
+            if (profile == null) {
+                userErrors.put(userId, "Customer profile not found for user: " + userId);
+                continue;
+            }
+            int total = 0;
+            for (ClaimLine claim : entry.getValue()) {
+                String id = claim.key != null ? bulkId(claim) : null;
+                Applied earlier = id != null ? applied.get(id) : null;
+                if (earlier != null) {
+                    if (userId.equals(earlier.userId) && claim.points == earlier.points) {
+                        claim.externalId = id;
+                        claim.skipped = true;
+                    } else {
+                        claim.rejected = "externalId " + claim.key + " was already applied with "
+                                + earlier.points + " points";
+                    }
+                    continue;
+                }
+                try {
+                    int next = Math.addExact(total, claim.points);
+                    Math.addExact(profile.getPointsBalance(), next);
+                    Math.addExact(profile.getLifetimePoints(), next);
+                    total = next;
+                } catch (ArithmeticException e) {
+                    claim.rejected = "Points would overflow the balance";
+                    continue;
+                }
+                if (id != null) {
+                    applied.put(id, new Applied(userId, claim.points));
+                }
+                claim.externalId = id != null ? id : idGenerator.next("CLM");
+                accepted.add(claim);
+            }
+            if (total == 0) {
+                continue;
+            }
+            // One balance/tier update per user for the whole chunk
+            if (pointsLedger.isEnabled()) {
+                pointsLedger.credit(userId, total);
+            } else {
+                profile.setPointsBalance(profile.getPointsBalance() + total);
+                profile.setLifetimePoints(profile.getLifetimePoints() + total);
+                profile.setLoyaltyTier(tierPolicy.tierFor(profile.getLifetimePoints()));
+                if (profile.getNextExpiry() == null) {
+                    profile.setNextExpiry(expiry);
+                }
+                credited.put(profile, total);
+            }
+        }
+
+        custrepo.saveAll(credited.keySet());
+        jdbcTemplate.batchUpdate(INSERT_TRANSACTION, accepted, accepted.size(), (ps, claim) -> {
+            ps.setString(1, claim.externalId);
+            ps.setInt(2, claim.points);
+            ps.setDate(3, Date.valueOf(today));
+            ps.setDate(4, Date.valueOf(expiry));
+            ps.setString(5, "Claimed: " + claim.note);
+            ps.setLong(6, claim.userId);
+        });
+        for (ClaimLine claim : accepted) {
+            Transaction row = new Transaction();
+            row.setExternalId(claim.externalId);
+            row.setType("CLAIM");
+            row.setPointsEarned(claim.points);
+            row.setStore("Claim");
+            row.setDate(today);
+            row.setExpiry(expiry);
+            row.setNote("Claimed: " + claim.note);
+            row.setUserId(claim.userId);
+            pointsActivity.record(row);
+        }
+    }
+
+    // Journal the per-user credits once the chunk has committed (the ledger journals its own)
+    private void journalCredits(Map<CustomerProfile, Integer> credited) {
+        if (!pointsJournal.isEnabled()) {
+            return;
+        }
+        for (Map.Entry<CustomerProfile, Integer> entry : credited.entrySet()) {
+            CustomerProfile profile = entry.getKey();
+            pointsJournal.appendCommitted(PointsJournal.EventType.CLAIM, profile.getUserId(), entry.getValue(),
+                    profile.getPointsBalance(), profile.getLifetimePoints());
+        }
+    }
+
+    private static String bulkId(ClaimLine claim) {
+        return BULK_PREFIX + claim.userId + "-" + claim.key;
+    }
+
+    private static boolean isCsvHeader(String line) {
+        return line.trim().toLowerCase().startsWith("userid");
+    }
+
+    private static ClaimLine parseCsv(long lineNo, String line) {
+        List<String> fields = splitCsv(line);
+        if (fields == null) {
+            return new ClaimLine(lineNo, null, 0, null, null, "Unterminated quoted field");
+        }
+        if (fields.size() < 2 || fields.size() > CSV_FIELDS) {
+            return new ClaimLine(lineNo, null, 0, null, null,
+                    "Expected userId,points[,note[,externalId]] (quote a note that holds commas)");
+        }
+        try {
+            Long userId = Long.valueOf(fields.get(0).trim());
+            int points = Integer.parseInt(fields.get(1).trim());
+            String note = fields.size() > 2 ? fields.get(2).trim() : "";
+            String key = fields.size() > 3 ? fields.get(3).trim() : "";
+            return validate(lineNo, userId, points, note, key);
+        } catch (NumberFormatException e) {
+            return new ClaimLine(lineNo, null, 0, null, null, "Invalid number: " + e.getMessage());
+        }
+    }
+
+    // RFC 4180 fields: "..." may hold commas, "" is a quote. Null if a quote is left open.
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(CSV_FIELDS);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private ClaimLine parseJson(long lineNo, String line) {
+        try {
+            JsonNode node = objectMapper.readTree(line);
+            if (!node.hasNonNull("userId") || !node.hasNonNull("points")) {
+                return new ClaimLine(lineNo, null, 0, null, null, "userId and points are required");
+            }
+            return validate(lineNo, node.get("userId").asLong(), node.get("points").asInt(),
+                    node.path("note").asText(""), node.path("externalId").asText("").trim());
+        } catch (IOException e) {
+            return new ClaimLine(lineNo, null, 0, null, null, "Malformed JSON");
+        }
+    }
+
+    private static ClaimLine validate(long lineNo, Long userId, int points, String note, String key) {
+        String externalId = key.isEmpty() ? null : key;
+        if (points <= 0) {
+            return new ClaimLine(lineNo, userId, points, note, externalId, "Points must be positive");
+        }
+        if (externalId != null && externalId.length() > MAX_EXTERNAL_ID) {
+            return new ClaimLine(lineNo, userId, points, note, externalId,
+                    "externalId longer than " + MAX_EXTERNAL_ID + " characters");
+        }
+        return new ClaimLine(lineNo, userId, points, note, externalId, null);
+    }
+}
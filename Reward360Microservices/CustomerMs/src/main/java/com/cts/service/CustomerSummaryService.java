@@ -0,0 +1,217 @@
+package com.cts.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.cts.dto.CustomerSummaryResponse;
+import com.cts.dto.TransactionResponse;
+import com.cts.entity.ArchivedTotals;
+import com.cts.entity.CustomerProfile;
+import com.cts.entity.CustomerSummary;
+import com.cts.entity.Transaction;
+import com.cts.repository.ArchivedTotalsRepository;
+import com.cts.repository.CustomerProfilerepository;
+import com.cts.repository.CustomerSummaryRepository;
+import com.cts.repository.RedemptionRepository;
+import com.cts.repository.TransactionRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Maintains the CustomerSummary read model behind GET
+ * /api/users/Customer/{id}/summary.
+ *
+ * Changes reach it through {@link PointsActivity} just before the writing
+ * transaction commits: each touched summary row is locked, the new
+ * transactions are pushed onto its recent list and counters, and balance,
+ * tier and next expiry are copied from the profile as written. A mailbox run,
+ * bulk chunk or expiry chunk costs one summary write per user, and a rolled
+ * back transaction leaves the summary untouched.
+ *
+ * A user without a summary row yet gets one built from the source tables.
+ */
+@Service
+public class CustomerSummaryService implements PointsProjection {
+
+    private static final TypeReference<List<TransactionResponse>> RECENT_TYPE = new TypeReference<>() {
+    };
+
+    @Value("${summary.enabled:true}")
+    private boolean enabled;
+
+    @Value("${summary.recent-transactions:10}")
+    private int recentSize;
+
+    @Autowired
+    private CustomerSummaryRepository summaryRepository;
+
+    @Autowired
+    private CustomerProfilerepository custrepo;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private RedemptionRepository redemptionRepository;
+
+    @Autowired
+    private ArchivedTotalsRepository archivedTotalsRepository;
+
+    @Autowired
+    private PointsLedger pointsLedger;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * The dashboard view of a user: one primary-key read. Falls back to
+     * building it from the source tables for users without a summary row.
+     */
+    public CustomerSummaryResponse getSummary(Long userId) {
+        CustomerSummary summary = enabled ? summaryRepository.findById(userId).orElse(null) : null;
+        if (summary == null) {
+            CustomerProfile profile = custrepo.findByUserId(userId);
+            if (profile == null) {
+                throw new RuntimeException("Customer profile not found for user: " + userId);
+            }
+            summary = build(profile);
+        }
+        return toResponse(summary);
+    }
+
+    @Override
+    public void apply(Map<Long, List<Transaction>> pending) {
+        if (!enabled) {
+            return;
+        }
+        for (Map.Entry<Long, List<Transaction>> entry : pending.entrySet()) {
+            CustomerProfile profile = pointsLedger.overlay(custrepo.findByUserId(entry.getKey()));
+            if (profile == null) {
+                continue;
+            }
+            CustomerSummary summary = summaryRepository.findForUpdate(entry.getKey()).orElse(null);
+            if (summary == null) {
+                // The source tables already include this transaction's rows
+                summaryRepository.save(build(profile));
+                continue;
+            }
+            copyProfile(profile, summary);
+            addTransactions(summary, entry.getValue());
+            summary.setUpdatedAt(LocalDateTime.now());
+        }
+    }
+
+    private CustomerSummary build(CustomerProfile profile) {
+        Long userId = profile.getUserId();
+        CustomerSummary summary = new CustomerSummary();
+        summary.setUserId(userId);
+        copyProfile(pointsLedger.overlay(profile), summary);
+        summary.setRedemptionCount(redemptionRepository.countByUserId(userId) + archivedTotalsRepository
+                .findById(userId).map(ArchivedTotals::getRedemptions).orElse(0L));
+        LocalDate month = LocalDate.now().withDayOfMonth(1);
+        summary.setEarnedMonth(month);
+        summary.setPointsEarnedThisMonth((int) transactionRepository.sumClaimedSince(userId, month));
+        List<TransactionResponse> recent = new ArrayList<>();
+        for (Transaction transaction : transactionRepository.findByUserIdOrderByDateDescIdDesc(userId,
+                PageRequest.of(0, recentSize))) {
+            recent.add(toResponse(transaction));
+        }
+        summary.setRecentTransactions(writeRecent(recent));
+        summary.setUpdatedAt(LocalDateTime.now());
+        return summary;
+    }
+
+    private void addTransactions(CustomerSummary summary, List<Transaction> added) {
+        if (added.isEmpty()) {
+            return;
+        }
+        List<TransactionResponse> recent = readRecent(summary.getRecentTransactions());
+        for (Transaction transaction : added) {
+            recent.add(0, toResponse(transaction)); // Newest first
+            if ("REDEMPTION".equals(transaction.getType())) {
+                summary.setRedemptionCount(summary.getRedemptionCount() + 1);
+            } else if ("CLAIM".equals(transaction.getType())) {
+                LocalDate month = transaction.getDate().withDayOfMonth(1);
+                if (!month.equals(summary.getEarnedMonth())) {
+                    summary.setEarnedMonth(month);
+                    summary.setPointsEarnedThisMonth(0);
+                }
+                summary.setPointsEarnedThisMonth(summary.getPointsEarnedThisMonth() + transaction.getPointsEarned());
+            }
+        }
+        if (recent.size() > recentSize) {
+            recent = new ArrayList<>(recent.subList(0, recentSize));
+        }
+        summary.setRecentTransactions(writeRecent(recent));
+    }
+
+    private static void copyProfile(CustomerProfile profile, CustomerSummary summary) {
+        summary.setCustomerName(profile.getCustomerName());
+        summary.setLoyaltyTier(profile.getLoyaltyTier());
+        summary.setPointsBalance(profile.getPointsBalance());
+        summary.setLifetimePoints(profile.getLifetimePoints());
+        summary.setNextExpiry(profile.getNextExpiry());
+    }
+
+    private CustomerSummaryResponse toResponse(CustomerSummary summary) {
+        CustomerSummaryResponse response = new CustomerSummaryResponse();
+        response.setUserId(summary.getUserId());
+        response.setCustomerName(summary.getCustomerName());
+        response.setLoyaltyTier(summary.getLoyaltyTier());
+        response.setPointsBalance(summary.getPointsBalance());
+        response.setLifetimePoints(summary.getLifetimePoints());
+        if (pointsLedger.isEnabled()) {
+            // The ledger holds balances not yet written back
+            CustomerProfile live = new CustomerProfile();
+            live.setUserId(summary.getUserId());
+            live.setPointsBalance(summary.getPointsBalance());
+            live.setLifetimePoints(summary.getLifetimePoints());
+            live.setLoyaltyTier(summary.getLoyaltyTier());
+            pointsLedger.overlay(live);
+            response.setPointsBalance(live.getPointsBalance());
+            response.setLifetimePoints(live.getLifetimePoints());
+            response.setLoyaltyTier(live.getLoyaltyTier());
+        }
+        response.setNextExpiry(summary.getNextExpiry());
+        response.setRedemptionCount(summary.getRedemptionCount());
+        // No write is needed when a month rolls over without claims
+        boolean currentMonth = LocalDate.now().withDayOfMonth(1).equals(summary.getEarnedMonth());
+        response.setPointsEarnedThisMonth(currentMonth ? summary.getPointsEarnedThisMonth() : 0);
+        response.setRecentTransactions(readRecent(summary.getRecentTransactions()));
+        return response;
+    }
+
+    private static TransactionResponse toResponse(Transaction transaction) {
+        return new TransactionResponse(transaction.getId(), transaction.getExternalId(), transaction.getType(),
+                transaction.getPointsEarned(), transaction.getPointsRedeemed(), transaction.getStore(),
+                transaction.getDate(), transaction.getExpiry(), transaction.getNote());
+    }
+
+    private List<TransactionResponse> readRecent(String json) {
+        if (json == null || json.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try {
+            return new ArrayList<>(objectMapper.readValue(json, RECENT_TYPE));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Unreadable customer summary", e);
+        }
+    }
+
+    private String writeRecent(List<TransactionResponse> recent) {
+        try {
+            return objectMapper.writeValueAsString(recent);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to write customer summary", e);
+        }
+    }
+}
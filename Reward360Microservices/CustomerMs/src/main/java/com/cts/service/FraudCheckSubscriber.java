@@ -0,0 +1,61 @@
+package com.cts.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.cts.dto.FraudTransactionRequest;
+import com.cts.entity.OutboxEvent;
+import com.cts.entity.Transaction;
+import com.cts.feign.FraudDetectionClient;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Sends REDEMPTION events to Fraud_MS for scoring, one
+ * POST /api/v1/transactions/batch per relay batch. Claims are not sent:
+ * earning points carries no fraud risk.
+ */
+@Component
+public class FraudCheckSubscriber implements OutboxSubscriber {
+
+    @Autowired
+    private FraudDetectionClient fraudDetectionClient;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PointsMetrics pointsMetrics;
+
+    @Override
+    public String eventType() {
+        return "REDEMPTION";
+    }
+
+    @Override
+    public void deliver(List<OutboxEvent> events) throws Exception {
+        List<FraudTransactionRequest> requests = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            Transaction transaction = objectMapper.readValue(event.getPayload(), Transaction.class);
+            // Fraud_MS applies the configured rules and decides the risk level
+            FraudTransactionRequest request = new FraudTransactionRequest();
+            request.setExternalId(transaction.getExternalId());
+            request.setAccountId("ACC-" + transaction.getUserId());
+            request.setType(transaction.getType());
+            request.setPointsEarned(transaction.getPointsEarned());
+            request.setPointsRedeemed(transaction.getPointsRedeemed());
+            request.setDate(transaction.getDate());
+            request.setNote(transaction.getNote());
+            request.setUserId(transaction.getUserId());
+            requests.add(request);
+        }
+        try {
+            fraudDetectionClient.sendTransactionsForFraudCheck(requests);
+        } catch (RuntimeException e) {
+            pointsMetrics.fraudSubmissionFailed(requests.size());
+            throw e; // The relay backs off and retries the batch
+        }
+    }
+}
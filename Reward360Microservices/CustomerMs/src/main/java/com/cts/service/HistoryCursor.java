@@ -0,0 +1,44 @@
+package com.cts.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a user's history ordered by (date DESC, id DESC), encoded as an
+ * opaque URL-safe token. The next page starts strictly after this row.
+ */
+final class HistoryCursor {
+
+    private final LocalDate date;
+    private final long id;
+
+    HistoryCursor(LocalDate date, long id) {
+        this.date = date;
+        this.id = id;
+    }
+
+    LocalDate getDate() {
+        return date;
+    }
+
+    long getId() {
+        return id;
+    }
+
+    String encode() {
+        String raw = date + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static HistoryCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            return new HistoryCursor(LocalDate.parse(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new RuntimeException("Invalid page token");
+        }
+    }
+}
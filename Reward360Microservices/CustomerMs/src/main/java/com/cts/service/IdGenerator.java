@@ -0,0 +1,141 @@
+package com.cts.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Generates unique, increasing 64-bit ids for transaction and confirmation
+ * codes: 41 bits of milliseconds since 2024-01-01, 10 bits of node id and a
+ * 12-bit sequence within the millisecond.
+ *
+ * The time and sequence live in one AtomicLong advanced with a CAS, so there
+ * is no lock. When more than 4096 ids are taken in one millisecond, or the
+ * clock steps back, the generator carries on from the next logical
+ * millisecond instead of waiting, so ids never repeat or go backwards.
+ *
+ * The node id must be configured (ids.node-id), distinct per instance. Across
+ * restarts, a high-water mark in ids.state-dir records the millisecond up to
+ * which ids may have been issued; it is reserved reserve-ms ahead and forced
+ * to disk before ids beyond it are handed out, and a restarted generator
+ * starts after it, even if the clock has stepped back.
+ */
+@Component
+public class IdGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdGenerator.class);
+
+    static final long EPOCH = 1704067200000L; // 2024-01-01T00:00:00Z
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    // Required: a distinct value per CustomerMs instance
+    @Value("${ids.node-id}")
+    private long nodeId;
+
+    @Value("${ids.state-dir:data/ids}")
+    private String stateDir;
+
+    @Value("${ids.reserve-ms:10000}")
+    private long reserveMs;
+
+    // (millis since EPOCH << SEQUENCE_BITS) | sequence of the last id handed out
+    private final AtomicLong last = new AtomicLong();
+
+    // Millis since EPOCH up to which the high-water mark allows ids
+    private volatile long reserved;
+
+    private Path stateFile;
+
+    // Not synchronized: reserve() blocks on disk I/O and must not pin a virtual thread's carrier
+    private final ReentrantLock reserveLock = new ReentrantLock();
+
+    public IdGenerator() {
+    }
+
+    IdGenerator(long nodeId, Path stateDir, long reserveMs) {
+        this.nodeId = nodeId;
+        this.stateDir = stateDir.toString();
+        this.reserveMs = reserveMs;
+        init();
+    }
+
+    @PostConstruct
+    void init() {
+        if (nodeId < 0 || nodeId > MAX_NODE) {
+            throw new IllegalStateException("ids.node-id must be between 0 and " + MAX_NODE);
+        }
+        try {
+            Path dir = Paths.get(stateDir);
+            Files.createDirectories(dir);
+            stateFile = dir.resolve("node-" + nodeId + ".hwm");
+            if (Files.exists(stateFile)) {
+                reserved = Long.parseLong(Files.readString(stateFile).trim());
+                // Continue after every millisecond a previous run may have used
+                last.set((reserved << SEQUENCE_BITS) | SEQUENCE_MASK);
+            }
+        } catch (IOException | NumberFormatException e) {
+            throw new IllegalStateException("Cannot read the id high-water mark in " + stateDir, e);
+        }
+        logger.info("Id generator using node id {}, high-water mark {}", nodeId, reserved);
+    }
+
+    public long nextId() {
+        long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+        long next = last.updateAndGet(previous -> now > previous ? now : previous + 1);
+        long millis = next >>> SEQUENCE_BITS;
+        if (millis > reserved) {
+            reserve(millis);
+        }
+        return (millis << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+    }
+
+    /**
+     * Next id as a prefixed code, e.g. RED-1234567890123456789.
+     */
+    public String next(String prefix) {
+        return prefix + "-" + nextId();
+    }
+
+    // Once per reserve-ms: no id past the mark is returned before the mark is on disk
+    private void reserve(long millis) {
+        reserveLock.lock();
+        try {
+            if (millis <= reserved) {
+                return;
+            }
+            long mark = millis + reserveMs;
+            Path tmp = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                    channel.write(ByteBuffer.wrap(Long.toString(mark).getBytes(StandardCharsets.US_ASCII)));
+                    channel.force(true);
+                }
+                Files.move(tmp, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot record the id high-water mark " + mark, e);
+            }
+            reserved = mark;
+        } finally {
+            reserveLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.cts.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
+
+import com.cts.entity.IdempotencyRecord;
+import com.cts.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Runs redeem/claim requests that carry an Idempotency-Key at most once per
+ * (user, operation, key).
+ *
+ * The record is inserted and flushed before the operation runs, in the same
+ * transaction, so a concurrent retry blocks on the unique constraint until the
+ * first request commits and then fails with a duplicate key instead of
+ * spending points again. Completed responses are kept in a bounded LRU cache
+ * in front of the table, so most retries never reach the database.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    @Value("${idempotency.cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${idempotency.retention-hours:24}")
+    private long retentionHours;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private record Completed(String requestHash, String response) {
+    }
+
+    private Map<String, Completed> cache;
+    private final ReentrantLock cacheLock = new ReentrantLock();
+
+    @PostConstruct
+    void init() {
+        cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Completed> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Run the operation, or return the stored response if a request with the
+     * same key already completed. Without a key the operation just runs.
+     */
+    public <T> T execute(Long userId, String operation, String key, Object request, Class<T> responseType,
+            Supplier<T> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        checkKey(key);
+        String cacheKey = userId + "|" + operation + "|" + key;
+        String requestHash = hash(request);
+
+        Completed completed = cached(cacheKey);
+        if (completed == null) {
+            completed = stored(userId, operation, key);
+        }
+        if (completed != null) {
+            return replay(completed, requestHash, responseType);
+        }
+
+        T result;
+        try {
+            result = transactionTemplate.execute(status -> {
+                IdempotencyRecord record = idempotencyRecordRepository
+                        .saveAndFlush(new IdempotencyRecord(userId, operation, key, requestHash));
+                T value = action.get();
+                record.setResponse(json(value));
+                // The operation may have cleared the persistence context, so merge explicitly
+                idempotencyRecordRepository.save(record);
+                return value;
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Another request with this key committed first; its record holds the response
+            completed = stored(userId, operation, key);
+            if (completed == null) {
+                throw e;
+            }
+            return replay(completed, requestHash, responseType);
+        }
+        cache(cacheKey, new Completed(requestHash, json(result)));
+        return result;
+    }
+
+    /**
+     * Stored response of a completed request with this key, or null if there
+     * is none. For callers that run the operation in their own transaction
+     * (the points mailbox) together with {@link #recordCompleted}.
+     */
+    public <T> T completedResponse(Long userId, String operation, String key, Object request,
+            Class<T> responseType) {
+        if (key == null || key.isBlank()) {
+            return null;
+        }
+        checkKey(key);
+        Completed completed = cached(userId + "|" + operation + "|" + key);
+        if (completed == null) {
+            completed = stored(userId, operation, key);
+        }
+        return completed != null ? replay(completed, hash(request), responseType) : null;
+    }
+
+    /**
+     * Record a completed request in the caller's transaction. The response is
+     * cached once that transaction commits.
+     */
+    public void recordCompleted(Long userId, String operation, String key, Object request, Object response) {
+        if (key == null || key.isBlank()) {
+            return;
+        }
+        checkKey(key);
+        Completed completed = new Completed(hash(request), json(response));
+        IdempotencyRecord record = new IdempotencyRecord(userId, operation, key, completed.requestHash());
+        record.setResponse(completed.response());
+        idempotencyRecordRepository.save(record);
+        String cacheKey = userId + "|" + operation + "|" + key;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache(cacheKey, completed);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.cleanup-interval-ms:3600000}")
+    public void purgeExpired() {
+        int deleted = idempotencyRecordRepository.deleteOlderThan(LocalDateTime.now().minusHours(retentionHours));
+        if (deleted > 0) {
+            logger.info("Removed {} idempotency records older than {} hours", deleted, retentionHours);
+        }
+    }
+
+    private static void checkKey(String key) {
+        if (key.length() > 100) {
+            throw new RuntimeException("Idempotency-Key must be at most 100 characters");
+        }
+    }
+
+    private Completed stored(Long userId, String operation, String key) {
+        IdempotencyRecord record = idempotencyRecordRepository.findByUserIdAndOperationAndIdempotencyKey(userId,
+                operation, key);
+        if (record == null || record.getResponse() == null) {
+            return null;
+        }
+        Completed completed = new Completed(record.getRequestHash(), record.getResponse());
+        cache(userId + "|" + operation + "|" + key, completed);
+        return completed;
+    }
+
+    private <T> T replay(Completed completed, String requestHash, Class<T> responseType) {
+        if (completed.requestHash() != null && !completed.requestHash().equals(requestHash)) {
+            throw new RuntimeException("Idempotency-Key was already used for a different request");
+        }
+        try {
+            return objectMapper.readValue(completed.response(), responseType);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Stored response for Idempotency-Key could not be read", e);
+        }
+    }
+
+    private Completed cached(String cacheKey) {
+        cacheLock.lock();
+        try {
+            return cache.get(cacheKey);
+        } finally {
+            cacheLock.unlock();
+        }
+    }
+
+    private void cache(String cacheKey, Completed completed) {
+        cacheLock.lock();
+        try {
+            cache.put(cacheKey, completed);
+        } finally {
+            cacheLock.unlock();
+        }
+    }
+
+    private String hash(Object request) {
+        return DigestUtils.md5DigestAsHex(json(request).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String json(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize idempotent response", e);
+        }
+    }
+}
@@ -0,0 +1,448 @@
+package com.cts.service;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cts.config.WorkerThreads;
+import com.cts.entity.CustomerProfile;
+import com.cts.entity.LedgerDiscrepancy;
+import com.cts.entity.ReconciliationPartition;
+import com.cts.entity.ReconciliationRun;
+import com.cts.repository.CustomerProfilerepository;
+import com.cts.repository.LedgerDiscrepancyRepository;
+import com.cts.repository.ReconciliationPartitionRepository;
+import com.cts.repository.ReconciliationRunRepository;
+import com.cts.repository.TransactionRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Checks that every CustomerProfile balance agrees with the user's
+ * transactions: pointsBalance must equal the opening balance plus points
+ * earned minus points redeemed (redemptions and expiries), and
+ * lifetimePoints the opening balance plus points earned. Months moved out
+ * by the {@link ArchiveService} count through their archived_totals.
+ *
+ * Users are split into fixed userId ranges of partition-width, checked in
+ * parallel on `threads` workers. Within a partition the profiles and the
+ * per-user transaction sums are both streamed in userId order (fetch-size
+ * rows at a time, on two connections) and merged, so memory use does not
+ * depend on the number of users or transactions. Before streaming, a
+ * partition is fingerprinted with two aggregate queries; when the
+ * fingerprint matches the last clean check of that range, the range is
+ * skipped.
+ *
+ * A mismatch seen while streaming may be a write in flight, so each one is
+ * re-checked under the profile row lock before it is reported and, with
+ * repair, corrected (balances, tier and version) in the same transaction.
+ * With the points ledger enabled the ledger balances are compared and
+ * nothing is repaired.
+ */
+@Service
+public class LedgerReconciliationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LedgerReconciliationService.class);
+
+    // Physical table names: the naming strategy lower-cases @Table(name = "Transaction")
+    private static final String USER_RANGE = "SELECT MIN(user_id), MAX(user_id) FROM customer_profile "
+            + "UNION ALL SELECT MIN(user_id), MAX(user_id) FROM transaction "
+            + "UNION ALL SELECT MIN(user_id), MAX(user_id) FROM archived_totals";
+    private static final String PROFILE_FINGERPRINT = "SELECT COUNT(*), COALESCE(SUM(points_balance), 0), "
+            + "COALESCE(SUM(lifetime_points), 0), COALESCE(SUM(version), 0) "
+            + "FROM customer_profile WHERE user_id >= ? AND user_id < ?";
+    private static final String TRANSACTION_FINGERPRINT = "SELECT COUNT(*), COALESCE(MAX(id), 0), "
+            + "COALESCE(SUM(points_earned), 0), COALESCE(SUM(points_redeemed), 0) "
+            + "FROM transaction WHERE user_id >= ? AND user_id < ?";
+    private static final String STREAM_PROFILES = "SELECT user_id, points_balance, lifetime_points "
+            + "FROM customer_profile WHERE user_id >= ? AND user_id < ? ORDER BY user_id";
+    // Hot rows plus the sums of the months moved to archive segments
+    private static final String STREAM_TOTALS = "SELECT user_id, SUM(points_earned), SUM(points_redeemed) FROM ("
+            + "SELECT user_id, points_earned, points_redeemed FROM transaction WHERE user_id >= ? AND user_id < ? "
+            + "UNION ALL SELECT user_id, points_earned, points_redeemed FROM archived_totals "
+            + "WHERE user_id >= ? AND user_id < ?) t GROUP BY user_id ORDER BY user_id";
+
+    @Value("${reconciliation.partition-width:10000}")
+    private long partitionWidth;
+
+    // 0 means one worker per core
+    @Value("${reconciliation.threads:2}")
+    private int threads;
+
+    // MySQL Connector/J streams row by row only with Integer.MIN_VALUE (or useCursorFetch=true)
+    @Value("${reconciliation.fetch-size:-2147483648}")
+    private int fetchSize;
+
+    // Balance every profile starts with, which has no transaction of its own
+    @Value("${reconciliation.opening-balance:" + Pointsservice.INITIAL_POINTS + "}")
+    private int openingBalance;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CustomerProfilerepository custrepo;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private ReconciliationRunRepository runRepository;
+
+    @Autowired
+    private ReconciliationPartitionRepository partitionRepository;
+
+    @Autowired
+    private LedgerDiscrepancyRepository discrepancyRepository;
+
+    @Autowired
+    private PointsLedger pointsLedger;
+
+    @Autowired
+    private TierPolicy tierPolicy;
+
+    @Autowired
+    private PointsActivity pointsActivity;
+
+    private JdbcTemplate streamingTemplate;
+    private ExecutorService workers;
+    private int workerCount;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile Thread runner;
+
+    private record ProfileRow(long userId, int balance, int lifetime) {
+    }
+
+    private record TotalsRow(long userId, long earned, long redeemed) {
+    }
+
+    // Counters of the run in progress, shared by the partition workers
+    private static final class Progress {
+        final AtomicLong partitions = new AtomicLong();
+        final AtomicLong skipped = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong users = new AtomicLong();
+        final AtomicLong discrepancies = new AtomicLong();
+        final AtomicLong repaired = new AtomicLong();
+    }
+
+    @PostConstruct
+    void init() {
+        streamingTemplate = new JdbcTemplate(dataSource);
+        streamingTemplate.setFetchSize(fetchSize);
+        workerCount = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerCount, r -> {
+            Thread t = new Thread(r, "ledger-reconciliation-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Start a reconciliation run in the background. Only one run can be
+     * active at a time.
+     */
+    public ReconciliationRun start(boolean repair) {
+        if (!running.compareAndSet(false, true)) {
+            throw new RuntimeException("A ledger reconciliation is already running");
+        }
+        try {
+            // A RUNNING run here was cut off by a restart
+            for (ReconciliationRun stale : runRepository.findByStatus(ReconciliationRun.RUNNING)) {
+                stale.setStatus(ReconciliationRun.FAILED);
+                stale.setError("Interrupted");
+                runRepository.save(stale);
+            }
+            if (repair && pointsLedger.isEnabled()) {
+                logger.warn("Points ledger is enabled, ledger reconciliation will report without repairing");
+            }
+            ReconciliationRun run = runRepository.save(
+                    new ReconciliationRun(repair && !pointsLedger.isEnabled(), partitionWidth));
+            runner = WorkerThreads.start("ledger-reconciliation", virtualThreads, () -> run(run));
+            return run;
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+    }
+
+    public ReconciliationRun getStatus() {
+        return runRepository.findFirstByOrderByIdDesc();
+    }
+
+    /**
+     * Discrepancies of a run in userId order, after the given userId.
+     */
+    public List<LedgerDiscrepancy> getDiscrepancies(Long runId, Long afterUserId, int limit) {
+        return discrepancyRepository.findByRunIdAndUserIdGreaterThanOrderByUserId(runId,
+                afterUserId != null ? afterUserId : Long.MIN_VALUE, PageRequest.of(0, Math.max(1, limit)));
+    }
+
+    private void run(ReconciliationRun run) {
+        Progress progress = new Progress();
+        // At most two partitions queued per worker
+        int inFlight = workerCount * 2;
+        Semaphore permits = new Semaphore(inFlight);
+        try {
+            long[] range = userRange();
+            if (range != null) {
+                long first = Math.floorDiv(range[0], partitionWidth) * partitionWidth;
+                for (long start = first; start <= range[1]; start += partitionWidth) {
+                    long partitionStart = start;
+                    permits.acquire();
+                    workers.execute(() -> {
+                        try {
+                            checkPartition(run, partitionStart, progress);
+                        } catch (RuntimeException e) {
+                            // Its checksum is not saved, so the next run checks it again
+                            progress.failed.incrementAndGet();
+                            logger.error("Ledger reconciliation {} failed for userIds from {}", run.getId(),
+                                    partitionStart, e);
+                        } finally {
+                            permits.release();
+                        }
+                    });
+                    saveProgress(run, progress);
+                }
+            }
+            // Wait for the partitions still being checked
+            permits.acquire(inFlight);
+            permits.release(inFlight);
+            finish(run, progress, ReconciliationRun.COMPLETED, null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finish(run, progress, ReconciliationRun.FAILED, "Interrupted");
+        } catch (RuntimeException e) {
+            logger.error("Ledger reconciliation {} failed", run.getId(), e);
+            finish(run, progress, ReconciliationRun.FAILED, String.valueOf(e.getMessage()));
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // Lowest and highest userId in either table, or null when both are empty
+    private long[] userRange() {
+        List<long[]> rows = jdbcTemplate.query(USER_RANGE, (rs, i) -> {
+            long min = rs.getLong(1);
+            return rs.wasNull() ? null : new long[] { min, rs.getLong(2) };
+        });
+        long[] range = null;
+        for (long[] row : rows) {
+            if (row != null) {
+                range = range == null ? row
+                        : new long[] { Math.min(range[0], row[0]), Math.max(range[1], row[1]) };
+            }
+        }
+        return range;
+    }
+
+    private void checkPartition(ReconciliationRun run, long start, Progress progress) {
+        long end = start + partitionWidth;
+        long checksum = fingerprint(start, end);
+        ReconciliationPartition last = partitionRepository.findById(start).orElse(null);
+        progress.partitions.incrementAndGet();
+        if (last != null && last.getPartitionWidth() == partitionWidth && last.getChecksum() == checksum
+                && last.getDiscrepancies() == 0) {
+            progress.skipped.incrementAndGet();
+            return;
+        }
+        long users = 0;
+        long open = 0;
+        boolean changed = false;
+        try (Stream<ProfileRow> profileStream = streamingTemplate.queryForStream(STREAM_PROFILES,
+                (rs, i) -> new ProfileRow(rs.getLong(1), rs.getInt(2), rs.getInt(3)), start, end);
+                Stream<TotalsRow> totalsStream = streamingTemplate.queryForStream(STREAM_TOTALS,
+                        (rs, i) -> new TotalsRow(rs.getLong(1), rs.getLong(2), rs.getLong(3)), start, end, start, end)) {
+            Iterator<ProfileRow> profiles = profileStream.iterator();
+            Iterator<TotalsRow> totals = totalsStream.iterator();
+            ProfileRow profile = profiles.hasNext() ? profiles.next() : null;
+            TotalsRow total = totals.hasNext() ? totals.next() : null;
+            while (profile != null || total != null) {
+                long userId = profile == null ? total.userId()
+                        : total == null ? profile.userId() : Math.min(profile.userId(), total.userId());
+                ProfileRow userProfile = profile != null && profile.userId() == userId ? profile : null;
+                TotalsRow userTotal = total != null && total.userId() == userId ? total : null;
+                users++;
+                if (!matches(userProfile, userTotal)) {
+                    Boolean repaired = confirm(run, userId);
+                    if (repaired != null) {
+                        progress.discrepancies.incrementAndGet();
+                        if (repaired) {
+                            progress.repaired.incrementAndGet();
+                            changed = true;
+                        } else {
+                            open++;
+                        }
+                    }
+                }
+                if (userProfile != null) {
+                    profile = profiles.hasNext() ? profiles.next() : null;
+                }
+                if (userTotal != null) {
+                    total = totals.hasNext() ? totals.next() : null;
+                }
+            }
+        }
+        progress.users.addAndGet(users);
+        ReconciliationPartition checked = last != null ? last : new ReconciliationPartition();
+        checked.setPartitionStart(start);
+        checked.setPartitionWidth(partitionWidth);
+        // Repairs changed the rows, so fingerprint them as they are now
+        checked.setChecksum(changed ? fingerprint(start, end) : checksum);
+        checked.setUsers(users);
+        checked.setDiscrepancies(open);
+        checked.setCheckedAt(LocalDateTime.now());
+        partitionRepository.save(checked);
+    }
+
+    private boolean matches(ProfileRow profile, TotalsRow total) {
+        if (profile == null) {
+            return false; // Transactions without a profile
+        }
+        long earned = total != null ? total.earned() : 0;
+        long redeemed = total != null ? total.redeemed() : 0;
+        return profile.balance() == openingBalance + earned - redeemed
+                && profile.lifetime() == openingBalance + earned;
+    }
+
+    /**
+     * Re-check one user under the profile row lock. Writers take that lock
+     * before they commit, so the profile and transaction sums read here
+     * belong together.
+     *
+     * @return null if the user is consistent after all, otherwise whether
+     *         the discrepancy was repaired
+     */
+    private Boolean confirm(ReconciliationRun run, long userId) {
+        return transactionTemplate.execute(status -> {
+            List<CustomerProfile> locked = custrepo.findForUpdateByUserIdIn(List.of(userId));
+            CustomerProfile profile = locked.isEmpty() ? null : locked.get(0);
+            Object[] sums = transactionRepository.sumPoints(userId).get(0);
+            long earned = ((Number) sums[0]).longValue();
+            long redeemed = ((Number) sums[1]).longValue();
+            long expectedBalance = openingBalance + earned - redeemed;
+            long expectedLifetime = openingBalance + earned;
+            Integer balance = null;
+            Integer lifetime = null;
+            if (profile != null) {
+                // Compare a copy, so the managed profile only changes when repaired
+                CustomerProfile current = new CustomerProfile();
+                current.setUserId(userId);
+                current.setPointsBalance(profile.getPointsBalance());
+                current.setLifetimePoints(profile.getLifetimePoints());
+                current.setLoyaltyTier(profile.getLoyaltyTier());
+                pointsLedger.overlay(current);
+                balance = current.getPointsBalance();
+                lifetime = current.getLifetimePoints();
+                if (balance == expectedBalance && lifetime == expectedLifetime) {
+                    return null;
+                }
+            }
+            LedgerDiscrepancy discrepancy = new LedgerDiscrepancy();
+            discrepancy.setRunId(run.getId());
+            discrepancy.setUserId(userId);
+            discrepancy.setProfileBalance(balance);
+            discrepancy.setProfileLifetime(lifetime);
+            discrepancy.setExpectedBalance(expectedBalance);
+            discrepancy.setExpectedLifetime(expectedLifetime);
+            discrepancy.setDetectedAt(LocalDateTime.now());
+            boolean repair = run.isRepair() && profile != null && expectedBalance >= 0
+                    && expectedLifetime <= Integer.MAX_VALUE;
+            if (repair) {
+                profile.setPointsBalance((int) expectedBalance);
+                profile.setLifetimePoints((int) expectedLifetime);
+                profile.setLoyaltyTier(tierPolicy.tierFor(profile.getLifetimePoints()));
+                pointsActivity.touch(userId);
+                logger.warn("Repaired points of user {}: balance {} -> {}, lifetime {} -> {}", userId, balance,
+                        expectedBalance, lifetime, expectedLifetime);
+            }
+            discrepancy.setRepaired(repair);
+            discrepancyRepository.save(discrepancy);
+            return repair;
+        });
+    }
+
+    private long fingerprint(long start, long end) {
+        CRC32 crc = new CRC32();
+        for (String sql : new String[] { PROFILE_FINGERPRINT, TRANSACTION_FINGERPRINT }) {
+            Map<String, Object> row = jdbcTemplate.queryForMap(sql, start, end);
+            for (Object value : row.values()) {
+                crc.update(String.valueOf(((Number) value).longValue()).getBytes());
+                crc.update('|');
+            }
+        }
+        return crc.getValue();
+    }
+
+    private void saveProgress(ReconciliationRun run, Progress progress) {
+        copy(progress, run);
+        run.setUpdatedAt(LocalDateTime.now());
+        runRepository.save(run);
+    }
+
+    private void finish(ReconciliationRun run, Progress progress, String status, String error) {
+        copy(progress, run);
+        run.setStatus(status);
+        run.setError(error != null && error.length() > 500 ? error.substring(0, 500) : error);
+        run.setUpdatedAt(LocalDateTime.now());
+        run.setFinishedAt(run.getUpdatedAt());
+        try {
+            runRepository.save(run);
+        } catch (RuntimeException e) {
+            logger.error("Failed to record ledger reconciliation {} as {}", run.getId(), status, e);
+        }
+        logger.info("Ledger reconciliation {} {}: {} users in {} partitions ({} skipped, {} failed), "
+                + "{} discrepancies, {} repaired", run.getId(), status, run.getUsers(), run.getPartitions(),
+                run.getSkippedPartitions(), run.getFailedPartitions(), run.getDiscrepancies(), run.getRepaired());
+    }
+
+    private static void copy(Progress progress, ReconciliationRun run) {
+        run.setPartitions(progress.partitions.get());
+        run.setSkippedPartitions(progress.skipped.get());
+        run.setFailedPartitions(progress.failed.get());
+        run.setUsers(progress.users.get());
+        run.setDiscrepancies(progress.discrepancies.get());
+        run.setRepaired(progress.repaired.get());
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        workers.shutdownNow();
+        Thread current = runner;
+        if (current != null) {
+            current.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.cts.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.cts.dto.OfferDto;
+import com.cts.feign.PromotionFeignClient;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Local copy of the Promotionservice offer catalog. Reads are served from an
+ * immutable snapshot (full list plus an id index) that is replaced as a whole
+ * on refresh.
+ *
+ * - Refresh-ahead: a read after refresh-ahead-ms starts a background reload
+ *   while the current snapshot keeps serving.
+ * - Stale-while-revalidate: after ttl-ms the snapshot is stale; reads still get
+ *   it for up to max-stale-ms while a background reload runs. Past that the
+ *   read reloads synchronously.
+ * - If Promotionservice is down, the last good snapshot keeps serving.
+ */
+@Component
+public class OfferCatalog {
+
+    private static final Logger logger = LoggerFactory.getLogger(OfferCatalog.class);
+
+    @Value("${offers.cache.ttl-ms:60000}")
+    private long ttlMs;
+
+    @Value("${offers.cache.refresh-ahead-ms:45000}")
+    private long refreshAheadMs;
+
+    @Value("${offers.cache.max-stale-ms:600000}")
+    private long maxStaleMs;
+
+    @Autowired
+    private PromotionFeignClient promotionFeignClient;
+
+    /**
+     * One loaded version of the catalog. Never modified after construction.
+     */
+    public static final class Snapshot {
+        private final long version;
+        private final List<OfferDto> offers;
+        private final Map<Long, OfferDto> byId;
+        private final long loadedAt;
+
+        Snapshot(long version, List<OfferDto> offers, long loadedAt) {
+            this.version = version;
+            this.offers = List.copyOf(offers);
+            Map<Long, OfferDto> index = new HashMap<>();
+            for (OfferDto offer : offers) {
+                if (offer.getId() != null) {
+                    index.put(offer.getId(), offer);
+                }
+            }
+            this.byId = Map.copyOf(index);
+            this.loadedAt = loadedAt;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public List<OfferDto> getOffers() {
+            return offers;
+        }
+    }
+
+    private volatile Snapshot snapshot;
+    // Offers fetched one by one after a snapshot miss; cleared on the next refresh
+    private final Map<Long, OfferDto> recentlyFetched = new ConcurrentHashMap<>();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final ReentrantLock loadLock = new ReentrantLock();
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "offer-catalog-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong staleReads = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong refreshFailures = new AtomicLong();
+
+    /**
+     * Current catalog snapshot, loading it first if nothing usable is cached.
+     */
+    public Snapshot current() {
+        Snapshot current = snapshot;
+        long now = System.currentTimeMillis();
+        if (current == null || now - current.loadedAt > ttlMs + maxStaleMs) {
+            return reloadNow(current);
+        }
+        long age = now - current.loadedAt;
+        if (age > ttlMs) {
+            staleReads.incrementAndGet();
+            refreshAsync();
+        } else if (age > refreshAheadMs) {
+            refreshAsync();
+        }
+        return current;
+    }
+
+    public List<OfferDto> getAllOffers() {
+        Snapshot current = current();
+        hits.incrementAndGet();
+        return current.offers;
+    }
+
+    /**
+     * Look up one offer. Ids missing from the snapshot (e.g. offers created
+     * since the last refresh) fall back to a remote call.
+     */
+    public OfferDto getOffer(Long offerId) {
+        OfferDto offer = current().byId.get(offerId);
+        if (offer == null) {
+            offer = recentlyFetched.get(offerId);
+        }
+        if (offer != null) {
+            hits.incrementAndGet();
+            return offer;
+        }
+        misses.incrementAndGet();
+        offer = promotionFeignClient.getOfferById(offerId);
+        if (offer != null) {
+            recentlyFetched.put(offerId, offer);
+        }
+        return offer;
+    }
+
+    /**
+     * Look up several offers against one snapshot, in the order given. Ids
+     * missing from it are fetched individually as in {@link #getOffer}; unknown
+     * offers come back as null.
+     */
+    public List<OfferDto> getOffers(List<Long> offerIds) {
+        Snapshot current = current();
+        List<OfferDto> offers = new ArrayList<>(offerIds.size());
+        for (Long offerId : offerIds) {
+            OfferDto offer = current.byId.get(offerId);
+            if (offer != null) {
+                hits.incrementAndGet();
+                offers.add(offer);
+            } else {
+                offers.add(getOffer(offerId));
+            }
+        }
+        return offers;
+    }
+
+    public Map<String, Object> getStats() {
+        Snapshot current = snapshot;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("version", current != null ? current.version : 0);
+        stats.put("size", current != null ? current.offers.size() : 0);
+        stats.put("ageMs", current != null ? System.currentTimeMillis() - current.loadedAt : -1);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("staleReads", staleReads.get());
+        stats.put("refreshes", refreshes.get());
+        stats.put("refreshFailures", refreshFailures.get());
+        return stats;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getRefreshes() {
+        return refreshes.get();
+    }
+
+    public long getRefreshFailures() {
+        return refreshFailures.get();
+    }
+
+    private Snapshot reloadNow(Snapshot previous) {
+        loadLock.lock();
+        try {
+            // Another caller may have reloaded while we waited
+            Snapshot current = snapshot;
+            if (current != previous) {
+                return current;
+            }
+            return load();
+        } catch (RuntimeException e) {
+            if (previous != null) {
+                staleReads.incrementAndGet();
+                logger.warn("Promotionservice unavailable, serving offer catalog version {}", previous.version);
+                return previous;
+            }
+            throw new RuntimeException("Offer catalog unavailable: " + e.getMessage(), e);
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    private void refreshAsync() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        refresher.execute(() -> {
+            try {
+                load();
+            } catch (RuntimeException e) {
+                logger.warn("Offer catalog refresh failed: {}", e.getMessage());
+            } finally {
+                refreshing.set(false);
+            }
+        });
+    }
+
+    private Snapshot load() {
+        try {
+            List<OfferDto> offers = promotionFeignClient.getAllOffers();
+            if (offers == null) {
+                offers = List.of();
+            }
+            Snapshot previous = snapshot;
+            Snapshot loaded = new Snapshot(previous != null ? previous.version + 1 : 1, offers,
+                    System.currentTimeMillis());
+            snapshot = loaded;
+            recentlyFetched.clear();
+            refreshes.incrementAndGet();
+            return loaded;
+        } catch (RuntimeException e) {
+            refreshFailures.incrementAndGet();
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        refresher.shutdownNow();
+        refresher.awaitTermination(5, TimeUnit.SECONDS);
+    }
+}
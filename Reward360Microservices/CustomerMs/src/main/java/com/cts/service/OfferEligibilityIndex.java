@@ -0,0 +1,145 @@
+package com.cts.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import com.cts.dto.OfferDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Tier eligibility of the offer catalog, computed once per catalog version.
+ * For each tier rank it holds the eligible active offers, the JSON response
+ * body already serialized, and an ETag derived from that body, so a tier
+ * lookup is an array index.
+ */
+@Component
+public class OfferEligibilityIndex {
+
+    static final List<String> TIER_ORDER = List.of("BRONZE", "SILVER", "GOLD", "PLATINUM");
+
+    @Autowired
+    private OfferCatalog offerCatalog;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Eligible offers and the pre-serialized response for one tier.
+     */
+    public static final class TierView {
+        private final List<OfferDto> offers;
+        private final byte[] json;
+        private final String etag;
+
+        TierView(List<OfferDto> offers, byte[] json) {
+            this.offers = offers;
+            this.json = json;
+            this.etag = "\"" + DigestUtils.md5DigestAsHex(json) + "\"";
+        }
+
+        public List<OfferDto> getOffers() {
+            return offers;
+        }
+
+        public byte[] getJson() {
+            return json;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+    }
+
+    private static final class Index {
+        private final long version;
+        private final TierView[] byRank;
+
+        Index(long version, TierView[] byRank) {
+            this.version = version;
+            this.byRank = byRank;
+        }
+    }
+
+    private volatile Index index;
+    private final ReentrantLock buildLock = new ReentrantLock();
+
+    /**
+     * Offers available to the given tier. Unknown tiers get the lowest
+     * (Bronze) view.
+     */
+    public TierView forTier(String tier) {
+        return currentIndex().byRank[rankOf(tier)];
+    }
+
+    private Index currentIndex() {
+        OfferCatalog.Snapshot snapshot = offerCatalog.current();
+        Index current = index;
+        if (current != null && current.version == snapshot.getVersion()) {
+            return current;
+        }
+        buildLock.lock();
+        try {
+            current = index;
+            if (current == null || current.version != snapshot.getVersion()) {
+                current = build(snapshot);
+                index = current;
+            }
+            return current;
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    private Index build(OfferCatalog.Snapshot snapshot) {
+        List<List<OfferDto>> eligible = new ArrayList<>();
+        for (int i = 0; i < TIER_ORDER.size(); i++) {
+            eligible.add(new ArrayList<>());
+        }
+        for (OfferDto offer : snapshot.getOffers()) {
+            if (!offer.getActive()) {
+                continue;
+            }
+            int offerRank = offerRank(offer.getTierLevel());
+            if (offerRank < 0) {
+                continue; // Tier unknown to CustomerMs, never eligible
+            }
+            // Higher tiers see every offer of the tiers below them
+            for (int rank = offerRank; rank < TIER_ORDER.size(); rank++) {
+                eligible.get(rank).add(offer);
+            }
+        }
+        TierView[] byRank = new TierView[TIER_ORDER.size()];
+        for (int rank = 0; rank < byRank.length; rank++) {
+            List<OfferDto> offers = List.copyOf(eligible.get(rank));
+            try {
+                byRank[rank] = new TierView(offers, objectMapper.writeValueAsBytes(offers));
+            } catch (JsonProcessingException e) {
+                throw new RuntimeException("Failed to serialize offers for tier " + TIER_ORDER.get(rank), e);
+            }
+        }
+        return new Index(snapshot.getVersion(), byRank);
+    }
+
+    // Null/empty/All means available to all tiers
+    private static int offerRank(String tierLevel) {
+        if (tierLevel == null || tierLevel.trim().isEmpty() || "All".equalsIgnoreCase(tierLevel)) {
+            return 0;
+        }
+        return TIER_ORDER.indexOf(tierLevel.toUpperCase());
+    }
+
+    private static int rankOf(String tier) {
+        for (int i = 0; i < TIER_ORDER.size(); i++) {
+            if (TIER_ORDER.get(i).equalsIgnoreCase(tier)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,59 @@
+package com.cts.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Re-runs a transactional profile update that lost a race: an optimistic lock
+ * (@Version) conflict, a lock wait timeout or a deadlock. Each attempt must
+ * start its own transaction, so call this outside any transaction. Backoff
+ * doubles per attempt with jitter so the losers do not collide again.
+ */
+@Component
+public class OptimisticRetry {
+
+    private static final Logger logger = LoggerFactory.getLogger(OptimisticRetry.class);
+
+    @Value("${points.retry.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${points.retry.backoff-ms:5}")
+    private long backoffMs;
+
+    public <T> T execute(Supplier<T> action) {
+        for (int attempt = 1;; attempt++) {
+            try {
+                return action.get();
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= maxAttempts) {
+                    throw new RuntimeException("Profile is being updated concurrently, please retry", e);
+                }
+                logger.debug("Concurrent profile update (attempt {}/{}): {}", attempt, maxAttempts, e.getMessage());
+                long delay = backoffMs << (attempt - 1);
+                sleep(delay + ThreadLocalRandom.current().nextLong(delay + 1));
+            }
+        }
+    }
+
+    public void run(Runnable action) {
+        execute(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while retrying profile update", e);
+        }
+    }
+}
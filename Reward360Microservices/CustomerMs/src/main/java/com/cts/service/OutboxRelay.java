@@ -0,0 +1,262 @@
+package com.cts.service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cts.config.WorkerThreads;
+import com.cts.entity.OutboxEvent;
+import com.cts.repository.OutboxEventRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Delivers outbox events to their {@link OutboxSubscriber}. Each relay thread
+ * repeatedly claims the next batch of due events in id order: it locks them
+ * with SELECT ... FOR UPDATE SKIP LOCKED, marks them IN_FLIGHT until the end of
+ * a lease and commits, so no row lock is held while a subscriber makes its
+ * remote call. It then hands each event type's share to its subscriber and, in
+ * a second short transaction, deletes what was delivered. Other threads and
+ * other CustomerMs instances skip claimed rows until the lease runs out, so
+ * relays scale out without delivering an event twice concurrently.
+ *
+ * Delivery is at-least-once: if a relay dies or overruns its lease, the events
+ * are claimed again and redelivered, and a relay whose lease was taken over
+ * leaves the rows to the new owner. Subscribers must be idempotent.
+ *
+ * A failed batch stays in the table with its attempt count raised and is
+ * retried after an exponential backoff; after max-attempts it is parked as
+ * DEAD and reported in the stats. Idle threads poll every idle-ms and are
+ * woken early when a transaction that published an event commits.
+ */
+@Component
+public class OutboxRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    @Value("${outbox.relay.enabled:true}")
+    private boolean enabled;
+
+    @Value("${outbox.relay.threads:1}")
+    private int threadCount;
+
+    @Value("${outbox.relay.batch-size:200}")
+    private int batchSize;
+
+    @Value("${outbox.relay.idle-ms:1000}")
+    private long idleMs;
+
+    @Value("${outbox.relay.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${outbox.relay.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    @Value("${outbox.relay.max-backoff-ms:300000}")
+    private long maxBackoffMs;
+
+    @Value("${outbox.relay.lease-ms:120000}")
+    private long leaseMs;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private List<OutboxSubscriber> subscribers;
+
+    private final Map<String, OutboxSubscriber> subscribersByType = new HashMap<>();
+    private final Semaphore signal = new Semaphore(0);
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong dead = new AtomicLong();
+
+    @PostConstruct
+    void start() {
+        for (OutboxSubscriber subscriber : subscribers) {
+            subscribersByType.put(subscriber.eventType(), subscriber);
+        }
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < threadCount; i++) {
+            workers.add(WorkerThreads.start("outbox-relay-" + i, virtualThreads, this::run));
+        }
+        logger.info("Outbox relay started with {} threads for {}", threadCount, subscribersByType.keySet());
+    }
+
+    /**
+     * Wake an idle relay thread; called after a transaction with new events commits.
+     */
+    public void wakeUp() {
+        if (signal.availablePermits() < threadCount) {
+            signal.release();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("pending", outboxEventRepository.countByStatus(OutboxEvent.PENDING));
+        stats.put("inFlight", outboxEventRepository.countByStatus(OutboxEvent.IN_FLIGHT));
+        stats.put("dead", outboxEventRepository.countByStatus(OutboxEvent.DEAD));
+        stats.put("delivered", delivered.get());
+        stats.put("retried", retried.get());
+        stats.put("parked", dead.get());
+        return stats;
+    }
+
+    /**
+     * Move DEAD events back to PENDING with fresh attempts.
+     */
+    public int requeueDead() {
+        Integer requeued = transactionTemplate
+                .execute(status -> outboxEventRepository.requeueDead(LocalDateTime.now()));
+        wakeUp();
+        return requeued == null ? 0 : requeued;
+    }
+
+    private void run() {
+        while (running) {
+            int relayed;
+            try {
+                relayed = relayBatch();
+            } catch (RuntimeException e) {
+                logger.error("Outbox relay batch failed", e);
+                relayed = 0;
+            }
+            if (relayed < batchSize) {
+                try {
+                    signal.tryAcquire(idleMs, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Claim, deliver and delete one batch of due events.
+     *
+     * @return the number of events claimed
+     */
+    int relayBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        // Millisecond precision survives the round trip, so the lease end also identifies the claim
+        LocalDateTime leaseUntil = now.plusNanos(TimeUnit.MILLISECONDS.toNanos(leaseMs))
+                .truncatedTo(ChronoUnit.MILLIS);
+        List<OutboxEvent> events = transactionTemplate.execute(status -> {
+            List<OutboxEvent> claimed = outboxEventRepository.lockNextBatch(now, batchSize);
+            for (OutboxEvent event : claimed) {
+                event.setStatus(OutboxEvent.IN_FLIGHT);
+                event.setNextAttemptAt(leaseUntil);
+            }
+            return claimed;
+        });
+        if (events == null || events.isEmpty()) {
+            return 0;
+        }
+
+        // Deliver outside any transaction: the claim is committed and no row is locked
+        Map<String, List<OutboxEvent>> byType = new LinkedHashMap<>();
+        for (OutboxEvent event : events) {
+            byType.computeIfAbsent(event.getEventType(), type -> new ArrayList<>()).add(event);
+        }
+        Set<Long> done = new HashSet<>();
+        Map<Long, String> errors = new HashMap<>();
+        Set<Long> parked = new HashSet<>();
+        for (Map.Entry<String, List<OutboxEvent>> entry : byType.entrySet()) {
+            OutboxSubscriber subscriber = subscribersByType.get(entry.getKey());
+            if (subscriber == null) {
+                for (OutboxEvent event : entry.getValue()) {
+                    errors.put(event.getId(), "No subscriber for event type " + entry.getKey());
+                    parked.add(event.getId());
+                }
+                continue;
+            }
+            try {
+                subscriber.deliver(entry.getValue());
+                entry.getValue().forEach(event -> done.add(event.getId()));
+            } catch (Exception e) {
+                logger.warn("Delivery of {} {} events failed: {}", entry.getValue().size(), entry.getKey(),
+                        e.getMessage());
+                entry.getValue().forEach(event -> errors.put(event.getId(), String.valueOf(e.getMessage())));
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            List<OutboxEvent> held = outboxEventRepository
+                    .lockClaimed(events.stream().map(OutboxEvent::getId).toList(), leaseUntil);
+            if (held.size() < events.size()) {
+                logger.warn("Outbox lease on {} of {} events ran out during delivery", events.size() - held.size(),
+                        events.size());
+            }
+            List<OutboxEvent> delivery = new ArrayList<>(done.size());
+            for (OutboxEvent event : held) {
+                if (done.contains(event.getId())) {
+                    delivery.add(event);
+                } else {
+                    failed(event, errors.get(event.getId()), parked.contains(event.getId()));
+                }
+            }
+            outboxEventRepository.deleteAllInBatch(delivery);
+        });
+        delivered.addAndGet(done.size());
+        return events.size();
+    }
+
+    // Runs in the completion transaction; the changes are written on commit
+    private void failed(OutboxEvent event, String error, boolean park) {
+        int attempts = event.getAttempts() + 1;
+        event.setAttempts(attempts);
+        event.setLastError(error.length() > 500 ? error.substring(0, 500) : error);
+        if (park || attempts >= maxAttempts) {
+            event.setStatus(OutboxEvent.DEAD);
+            dead.incrementAndGet();
+            logger.error("Outbox event {} ({}) parked after {} attempts: {}", event.getId(),
+                    event.getEventType(), attempts, error);
+        } else {
+            long backoff = Math.min(maxBackoffMs, retryBackoffMs << Math.min(attempts - 1, 20));
+            event.setStatus(OutboxEvent.PENDING);
+            event.setNextAttemptAt(LocalDateTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(backoff)));
+            retried.incrementAndGet();
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Thread worker : workers) {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+}
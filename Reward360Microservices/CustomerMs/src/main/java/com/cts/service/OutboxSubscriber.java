@@ -0,0 +1,17 @@
+package com.cts.service;
+
+import java.util.List;
+
+import com.cts.entity.OutboxEvent;
+
+/**
+ * Receives outbox events of one type from the {@link OutboxRelay}, a batch at
+ * a time in id order. Delivery is at least once: a batch that throws is
+ * retried later as a whole, so handlers must tolerate repeats.
+ */
+public interface OutboxSubscriber {
+
+    String eventType();
+
+    void deliver(List<OutboxEvent> events) throws Exception;
+}
@@ -0,0 +1,138 @@
+package com.cts.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cts.config.ReplicaLagGuard;
+import com.cts.entity.CustomerProfile;
+import com.cts.entity.Transaction;
+import com.cts.repository.CustomerProfilerepository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * Collects the points activity of the current database transaction and hands
+ * it to every {@link PointsProjection} just before the transaction commits.
+ *
+ * Writers call {@link #record} for each transaction they insert (and
+ * {@link #touch} for profile-only changes). Changes are grouped per user, so
+ * a mailbox run, bulk chunk or expiry chunk reaches each projection once.
+ * Projections run after the profile changes are flushed, which keeps the
+ * lock order profile then projection rows on every path; users are applied
+ * in ascending order so concurrent multi-user transactions cannot deadlock
+ * on the projection rows. A rolled back transaction is never applied.
+ * Committed users are reported to the {@link ReplicaLagGuard}, and their
+ * profiles, read just before commit, are written through to the
+ * {@link ProfileCache}.
+ */
+@Component
+public class PointsActivity {
+
+    @Autowired
+    private List<PointsProjection> projections;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ReplicaLagGuard replicaLagGuard;
+
+    @Autowired
+    private ProfileCache profileCache;
+
+    @Autowired
+    private CustomerProfilerepository custrepo;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Record a transaction inserted by the current database transaction.
+     */
+    public void record(Transaction transaction) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            applyNow(transaction.getUserId(), List.of(transaction));
+            return;
+        }
+        pendingFor(transaction.getUserId()).add(transaction);
+    }
+
+    /**
+     * Record a profile change (name, tier, next expiry) without a transaction.
+     */
+    public void touch(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            applyNow(userId, List.of());
+            return;
+        }
+        pendingFor(userId);
+    }
+
+    private void applyNow(Long userId, List<Transaction> added) {
+        long stamp = profileCache.stamp();
+        List<CustomerProfile> written = transactionTemplate
+                .execute(status -> apply(new TreeMap<>(Map.of(userId, added))));
+        committed(List.of(userId), written, stamp);
+    }
+
+    private List<Transaction> pendingFor(Long userId) {
+        @SuppressWarnings("unchecked")
+        Map<Long, List<Transaction>> pending = (Map<Long, List<Transaction>>) TransactionSynchronizationManager
+                .getResource(this);
+        if (pending == null) {
+            Map<Long, List<Transaction>> created = new TreeMap<>();
+            List<CustomerProfile> written = new ArrayList<>();
+            long[] stamp = new long[1];
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    stamp[0] = profileCache.stamp();
+                    written.addAll(apply(created));
+                }
+
+                @Override
+                public void afterCommit() {
+                    committed(created.keySet(), written, stamp[0]);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(PointsActivity.this);
+                }
+            });
+            pending = created;
+        }
+        return pending.computeIfAbsent(userId, id -> new ArrayList<>());
+    }
+
+    /**
+     * @return the users' profiles as they will commit, for the profile cache
+     */
+    private List<CustomerProfile> apply(Map<Long, List<Transaction>> pending) {
+        // Write the profile changes first, so their row locks are taken before the projections'
+        entityManager.flush();
+        for (PointsProjection projection : projections) {
+            projection.apply(pending);
+        }
+        return profileCache.isEnabled() ? custrepo.findByUserIdIn(pending.keySet()) : List.of();
+    }
+
+    private void committed(Collection<Long> userIds, List<CustomerProfile> written, long stamp) {
+        // Read the next history of these users from the primary
+        replicaLagGuard.recordWrites(userIds);
+        for (CustomerProfile profile : written) {
+            profileCache.put(profile, stamp);
+        }
+    }
+}
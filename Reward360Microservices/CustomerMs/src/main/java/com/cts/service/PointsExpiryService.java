@@ -0,0 +1,301 @@
+package com.cts.service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cts.entity.CustomerProfile;
+import com.cts.entity.Transaction;
+import com.cts.repository.CustomerProfilerepository;
+import com.cts.repository.TransactionRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Nightly points expiry. Profiles whose nextExpiry is due are read in
+ * (nextExpiry, userId) keyset order, one chunk at a time, and each chunk is
+ * handed to a worker pool. A worker locks only its chunk's profile rows,
+ * expires the part of each balance not covered by unexpired CLAIM lots
+ * (redemptions use the oldest points first), inserts the EXPIRY transactions
+ * with one JDBC batch, advances nextExpiry to the earliest remaining lot and
+ * commits. Chunks hold disjoint users, so workers never wait on each other.
+ */
+@Service
+public class PointsExpiryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PointsExpiryService.class);
+
+    // Physical table name: the naming strategy lower-cases @Table(name = "Transaction")
+    private static final String INSERT_TRANSACTION = "INSERT INTO transaction "
+            + "(external_id, type, points_earned, points_redeemed, store, date, expiry, note, user_id) "
+            + "VALUES (?, 'EXPIRY', 0, ?, 'Expiry', ?, NULL, 'Points expired', ?)";
+
+    @Value("${points.expiry.enabled:true}")
+    private boolean enabled;
+
+    @Value("${points.expiry.chunk-size:500}")
+    private int chunkSize;
+
+    // 0 means one worker per core
+    @Value("${points.expiry.threads:0}")
+    private int threads;
+
+    @Autowired
+    private CustomerProfilerepository custrepo;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private PointsLedger pointsLedger;
+
+    @Autowired
+    private PointsJournal pointsJournal;
+
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Autowired
+    private PointsActivity pointsActivity;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private ExecutorService workers;
+    private int workerCount;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * Totals for one expiry run.
+     */
+    public static final class Result {
+        private final LocalDate date;
+        private final AtomicLong users = new AtomicLong();
+        private final AtomicLong expiredUsers = new AtomicLong();
+        private final AtomicLong expiredPoints = new AtomicLong();
+        private final AtomicInteger failedChunks = new AtomicInteger();
+        private long durationMs;
+
+        Result(LocalDate date) {
+            this.date = date;
+        }
+
+        public LocalDate getDate() {
+            return date;
+        }
+
+        public long getUsers() {
+            return users.get();
+        }
+
+        public long getExpiredUsers() {
+            return expiredUsers.get();
+        }
+
+        public long getExpiredPoints() {
+            return expiredPoints.get();
+        }
+
+        public int getFailedChunks() {
+            return failedChunks.get();
+        }
+
+        public long getDurationMs() {
+            return durationMs;
+        }
+    }
+
+    // One user's EXPIRY row, collected inside the chunk transaction
+    private record Expiry(Long userId, int points, int balanceAfter, int lifetimeAfter) {
+    }
+
+    @PostConstruct
+    void start() {
+        workerCount = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerCount, r -> {
+            Thread t = new Thread(r, "points-expiry-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Scheduled(cron = "${points.expiry.cron:0 30 2 * * *}")
+    public void runNightly() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            run(LocalDate.now());
+        } catch (RuntimeException e) {
+            logger.warn("Skipping nightly points expiry: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Expire every lot due on or before the given date. Only one run can be
+     * active at a time.
+     */
+    public Result run(LocalDate date) {
+        if (!running.compareAndSet(false, true)) {
+            throw new RuntimeException("A points expiry run is already in progress");
+        }
+        Result result = new Result(date);
+        long started = System.currentTimeMillis();
+        // At most two chunks queued per worker, so the reader never runs far ahead
+        int inFlight = workerCount * 2;
+        Semaphore permits = new Semaphore(inFlight);
+        try {
+            Pageable limit = PageRequest.of(0, chunkSize);
+            List<CustomerProfile> due = custrepo.findByNextExpiryLessThanEqualOrderByNextExpiryAscUserIdAsc(date,
+                    limit);
+            while (!due.isEmpty()) {
+                List<Long> userIds = new ArrayList<>(due.size());
+                for (CustomerProfile profile : due) {
+                    userIds.add(profile.getUserId());
+                }
+                permits.acquire();
+                workers.execute(() -> {
+                    try {
+                        processChunk(userIds, date, result);
+                    } finally {
+                        permits.release();
+                    }
+                });
+                if (due.size() < chunkSize) {
+                    break;
+                }
+                CustomerProfile last = due.get(due.size() - 1);
+                due = custrepo.findDueAfter(date, last.getNextExpiry(), last.getUserId(), limit);
+            }
+            // Wait for the chunks still being processed
+            permits.acquire(inFlight);
+            permits.release(inFlight);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Points expiry run interrupted", e);
+        } finally {
+            running.set(false);
+        }
+        result.durationMs = System.currentTimeMillis() - started;
+        logger.info("Points expiry for {}: {} users checked, {} points expired from {} users, {} failed chunks in {} ms",
+                date, result.getUsers(), result.getExpiredPoints(), result.getExpiredUsers(),
+                result.getFailedChunks(), result.durationMs);
+        return result;
+    }
+
+    private void processChunk(List<Long> userIds, LocalDate date, Result result) {
+        List<Expiry> expired = new ArrayList<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> expireChunk(userIds, date, expired));
+        } catch (RuntimeException e) {
+            // The chunk is retried by the next run, its nextExpiry is still due
+            result.failedChunks.incrementAndGet();
+            logger.error("Points expiry chunk of {} users starting at user {} failed", userIds.size(),
+                    userIds.get(0), e);
+            return;
+        }
+        result.users.addAndGet(userIds.size());
+        result.expiredUsers.addAndGet(expired.size());
+        for (Expiry expiry : expired) {
+            result.expiredPoints.addAndGet(expiry.points());
+        }
+        journalExpiries(expired);
+    }
+
+    // Runs inside the chunk transaction
+    private void expireChunk(List<Long> userIds, LocalDate date, List<Expiry> expired) {
+        List<CustomerProfile> profiles = custrepo.findForUpdateByUserIdIn(userIds);
+        Map<Long, Object[]> lots = new HashMap<>();
+        for (Object[] row : transactionRepository.sumUnexpiredLots(userIds, date)) {
+            lots.put((Long) row[0], row);
+        }
+
+        for (CustomerProfile profile : profiles) {
+            if (profile.getNextExpiry() == null || profile.getNextExpiry().isAfter(date)) {
+                continue; // Changed since the chunk was read
+            }
+            pointsActivity.touch(profile.getUserId()); // nextExpiry moves even when nothing expires
+            Object[] lot = lots.get(profile.getUserId());
+            int unexpired = lot != null ? ((Number) lot[1]).intValue() : 0;
+            profile.setNextExpiry(lot != null ? (LocalDate) lot[2] : null);
+
+            if (pointsLedger.isEnabled()) {
+                // The ledger owns the balance and journals the expiry itself
+                int points = pointsLedger.expire(profile.getUserId(), unexpired);
+                if (points > 0) {
+                    expired.add(new Expiry(profile.getUserId(), points, 0, 0));
+                }
+                continue;
+            }
+            int points = profile.getPointsBalance() - unexpired;
+            if (points > 0) {
+                profile.setPointsBalance(unexpired);
+                expired.add(new Expiry(profile.getUserId(), points, unexpired, profile.getLifetimePoints()));
+            }
+        }
+
+        custrepo.saveAll(profiles);
+        List<Transaction> rows = new ArrayList<>(expired.size());
+        for (Expiry expiry : expired) {
+            Transaction row = new Transaction();
+            row.setExternalId(idGenerator.next("EXP"));
+            row.setType("EXPIRY");
+            row.setPointsRedeemed(expiry.points());
+            row.setStore("Expiry");
+            row.setDate(date);
+            row.setNote("Points expired");
+            row.setUserId(expiry.userId());
+            rows.add(row);
+            pointsActivity.record(row);
+        }
+        jdbcTemplate.batchUpdate(INSERT_TRANSACTION, rows, rows.size(), (ps, row) -> {
+            ps.setString(1, row.getExternalId());
+            ps.setInt(2, row.getPointsRedeemed());
+            ps.setDate(3, Date.valueOf(date));
+            ps.setLong(4, row.getUserId());
+        });
+    }
+
+    // Journal expiries once the chunk has committed (the ledger journals its own)
+    private void journalExpiries(List<Expiry> expired) {
+        if (!pointsJournal.isEnabled() || pointsLedger.isEnabled()) {
+            return;
+        }
+        for (Expiry expiry : expired) {
+            pointsJournal.appendCommitted(PointsJournal.EventType.EXPIRY, expiry.userId(), expiry.points(),
+                    expiry.balanceAfter(), expiry.lifetimeAfter());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        workers.shutdownNow();
+        workers.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,402 @@
+package com.cts.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Append-only journal of points events, written sequentially into
+ * memory-mapped segment files. Each record carries the delta and the resulting
+ * balances, so replaying from a snapshot is idempotent.
+ *
+ * Appenders that need durability call {@link #awaitDurable(long)}; a single
+ * sync thread forces the mapped segment every sync interval, so concurrent
+ * appends share one fsync (group commit).
+ *
+ * A snapshot is the point where CustomerProfile holds every balance up to a
+ * journal sequence. It is recorded in the checkpoint file and replay starts
+ * right after it; segments holding only older records are deleted. With the
+ * ledger, its flushes take the snapshots. Without it, every record is appended
+ * after its change committed to the database, so a segment is covered as soon
+ * as it is full and is dropped when the journal rolls to the next one.
+ */
+@Component
+public class PointsJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(PointsJournal.class);
+
+    // seq, timestamp, userId (8 each), type, points, balanceAfter, lifetimeAfter, crc (4 each), padding
+    static final int RECORD_SIZE = 48;
+    private static final int CRC_OFFSET = 40;
+    private static final String SEGMENT_PREFIX = "points-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String CHECKPOINT_FILE = "snapshot.checkpoint";
+
+    public enum EventType {
+        // REVERSAL is no longer written, but older journals still hold it
+        CLAIM, REDEMPTION, EXPIRY, REVERSAL
+    }
+
+    /**
+     * One decoded journal record.
+     */
+    public record Event(long sequence, long timestamp, Long userId, EventType type, int points,
+            int balanceAfter, int lifetimeAfter) {
+    }
+
+    public interface EventHandler {
+        void handle(Event event);
+    }
+
+    @Value("${points.journal.enabled:false}")
+    private boolean enabled;
+
+    @Value("${points.journal.dir:data/journal}")
+    private String directory;
+
+    @Value("${points.journal.segment-bytes:67108864}")
+    private int segmentBytes;
+
+    @Value("${points.journal.sync-interval-ms:5}")
+    private long syncIntervalMs;
+
+    @Value("${points.ledger.enabled:false}")
+    private boolean ledgerEnabled;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition synced = syncLock.newCondition();
+
+    private Path dir;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private int position;
+    private long lastSequence;
+    private volatile long appendedSequence;
+    private volatile long syncedSequence;
+    private volatile boolean running;
+    private Thread syncThread;
+
+    @PostConstruct
+    void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        dir = Paths.get(directory);
+        Files.createDirectories(dir);
+        List<Path> segments = listSegments();
+        if (segments.isEmpty()) {
+            openSegment(1);
+        } else {
+            Path last = segments.get(segments.size() - 1);
+            channel = FileChannel.open(last, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            lastSequence = firstSequenceOf(last) - 1;
+            position = 0;
+            // Find the end of the written part of the active segment
+            while (position + RECORD_SIZE <= segmentBytes) {
+                Event event = read(segment, position);
+                if (event == null) {
+                    break;
+                }
+                lastSequence = event.sequence();
+                position += RECORD_SIZE;
+            }
+        }
+        appendedSequence = lastSequence;
+        syncedSequence = lastSequence;
+        running = true;
+        syncThread = new Thread(this::syncLoop, "points-journal-sync");
+        syncThread.setDaemon(true);
+        syncThread.start();
+        logger.info("Points journal opened at {} (last sequence {})", dir.toAbsolutePath(), lastSequence);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Append an event. The record is in the page cache when this returns; use
+     * {@link #awaitDurable(long)} to wait for it to reach disk.
+     *
+     * @return the sequence number of the record, or 0 when the journal is disabled
+     */
+    public long append(EventType type, Long userId, int points, int balanceAfter, int lifetimeAfter) {
+        if (!enabled) {
+            return 0;
+        }
+        appendLock.lock();
+        try {
+            if (position + RECORD_SIZE > segmentBytes) {
+                rollSegment();
+            }
+            long seq = lastSequence + 1;
+            int base = position;
+            segment.putLong(base, seq);
+            segment.putLong(base + 8, System.currentTimeMillis());
+            segment.putLong(base + 16, userId);
+            segment.putInt(base + 24, type.ordinal());
+            segment.putInt(base + 28, points);
+            segment.putInt(base + 32, balanceAfter);
+            segment.putInt(base + 36, lifetimeAfter);
+            segment.putInt(base + CRC_OFFSET, crc(segment, base));
+            position += RECORD_SIZE;
+            lastSequence = seq;
+            appendedSequence = seq;
+            return seq;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to append to points journal", e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Append an event whose change has already committed to the database,
+     * which stays the record of it: a failure is logged, not thrown, and the
+     * record is not awaited, so a crash can lose the last sync interval.
+     *
+     * @return the sequence number of the record, or 0 when disabled or the append failed
+     */
+    public long appendCommitted(EventType type, Long userId, int points, int balanceAfter, int lifetimeAfter) {
+        try {
+            return append(type, userId, points, balanceAfter, lifetimeAfter);
+        } catch (RuntimeException e) {
+            logger.error("Points journal missed committed {} of {} points for user {}", type, points, userId, e);
+            return 0;
+        }
+    }
+
+    /**
+     * Block until the given sequence has been forced to disk.
+     */
+    public void awaitDurable(long sequence) {
+        if (!enabled || sequence <= syncedSequence) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            while (syncedSequence < sequence) {
+                if (!synced.await(1, TimeUnit.SECONDS) && !running) {
+                    throw new RuntimeException("Points journal closed before sequence " + sequence + " was synced");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for points journal sync", e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    public long lastSequence() {
+        return appendedSequence;
+    }
+
+    /**
+     * Sequence covered by the last snapshot of balances in CustomerProfile.
+     */
+    public long snapshotSequence() {
+        if (!enabled) {
+            return 0;
+        }
+        Path file = dir.resolve(CHECKPOINT_FILE);
+        try {
+            return Files.exists(file) ? Long.parseLong(Files.readString(file).trim()) : 0;
+        } catch (IOException | NumberFormatException e) {
+            logger.warn("Unreadable journal checkpoint, replaying from the start", e);
+            return 0;
+        }
+    }
+
+    /**
+     * Record that CustomerProfile now holds every balance up to the given
+     * sequence, then delete the segments that hold nothing after it.
+     */
+    public void snapshot(long sequence) {
+        if (!enabled || sequence <= 0) {
+            return;
+        }
+        Path file = dir.resolve(CHECKPOINT_FILE);
+        Path tmp = dir.resolve(CHECKPOINT_FILE + ".tmp");
+        try {
+            Files.writeString(tmp, Long.toString(sequence), StandardCharsets.US_ASCII);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.error("Failed to write journal checkpoint {}", sequence, e);
+            return;
+        }
+        try {
+            List<Path> segments = listSegments();
+            // A segment is covered when the next one starts at or before the checkpoint; the last is active
+            for (int i = 0; i + 1 < segments.size() && firstSequenceOf(segments.get(i + 1)) <= sequence + 1; i++) {
+                Files.deleteIfExists(segments.get(i));
+                logger.info("Dropped points journal segment {} (checkpoint {})", segments.get(i).getFileName(),
+                        sequence);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to drop points journal segments before {}", sequence, e);
+        }
+    }
+
+    /**
+     * Read every record with a sequence greater than fromSequence, in order.
+     */
+    public void replay(long fromSequence, EventHandler handler) throws IOException {
+        if (!enabled) {
+            return;
+        }
+        List<Path> segments = listSegments();
+        for (int i = 0; i < segments.size(); i++) {
+            // Skip segments that end before the requested sequence
+            if (i + 1 < segments.size() && firstSequenceOf(segments.get(i + 1)) <= fromSequence + 1) {
+                continue;
+            }
+            try (FileChannel ch = FileChannel.open(segments.get(i), StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+                for (int pos = 0; pos + RECORD_SIZE <= buffer.capacity(); pos += RECORD_SIZE) {
+                    Event event = read(buffer, pos);
+                    if (event == null) {
+                        break;
+                    }
+                    if (event.sequence() > fromSequence) {
+                        handler.handle(event);
+                    }
+                }
+            }
+        }
+    }
+
+    private void syncLoop() {
+        while (running) {
+            try {
+                Thread.sleep(syncIntervalMs);
+                syncNow();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Points journal sync failed", e);
+            }
+        }
+    }
+
+    private void syncNow() {
+        long target;
+        MappedByteBuffer current;
+        appendLock.lock();
+        try {
+            target = appendedSequence;
+            current = segment;
+        } finally {
+            appendLock.unlock();
+        }
+        if (target <= syncedSequence) {
+            return;
+        }
+        current.force();
+        syncLock.lock();
+        try {
+            syncedSequence = target;
+            synced.signalAll();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // Caller holds appendLock
+    private void rollSegment() throws IOException {
+        segment.force();
+        channel.close();
+        long covered = lastSequence;
+        openSegment(covered + 1);
+        if (!ledgerEnabled) {
+            // Every record is already in the database; the full segment is not needed for replay
+            snapshot(covered);
+        }
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        Path file = dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        position = 0;
+        lastSequence = firstSequence - 1;
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return new ArrayList<>(files
+                    .filter(p -> p.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                            && p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList());
+        }
+    }
+
+    private static long firstSequenceOf(Path segmentFile) {
+        String name = segmentFile.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    // Returns null for an empty slot or a torn/corrupt record, which marks the end of the log
+    private static Event read(ByteBuffer buffer, int base) {
+        long seq = buffer.getLong(base);
+        if (seq == 0 || buffer.getInt(base + CRC_OFFSET) != crc(buffer, base)) {
+            return null;
+        }
+        int type = buffer.getInt(base + 24);
+        if (type < 0 || type >= EventType.values().length) {
+            return null;
+        }
+        return new Event(seq, buffer.getLong(base + 8), buffer.getLong(base + 16), EventType.values()[type],
+                buffer.getInt(base + 28), buffer.getInt(base + 32), buffer.getInt(base + 36));
+    }
+
+    private static int crc(ByteBuffer buffer, int base) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(base, CRC_OFFSET));
+        return (int) crc.getValue();
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        syncThread.interrupt();
+        appendLock.lock();
+        try {
+            segment.force();
+            syncedSequence = appendedSequence;
+            channel.close();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+}
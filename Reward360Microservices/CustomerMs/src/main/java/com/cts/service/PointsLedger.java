@@ -0,0 +1,400 @@
+package com.cts.service;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cts.entity.CustomerProfile;
+import com.cts.repository.CustomerProfilerepository;
+import com.cts.service.PointsJournal.EventType;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * In-memory points ledger that sits in front of CustomerProfile.pointsBalance
+ * and lifetimePoints. Claims and redemptions are applied atomically under a
+ * per-stripe lock and written back to MySQL in batches by a scheduled flush.
+ *
+ * Each user has a working balance, which includes changes whose database
+ * transaction is still open and is what debits are checked against, and a
+ * committed balance. A change reaches the committed balance only after its
+ * transaction (the one inserting the Transaction/Redemption row) commits,
+ * and is undone from the working balance if it rolls back. Only committed
+ * balances are appended to the {@link PointsJournal} (when enabled), under
+ * the stripe lock so per-user records are in commit order, and only they are
+ * flushed. A full flush marks a journal snapshot, and startup replays the
+ * journal from that snapshot, so balances not yet flushed survive a crash.
+ *
+ * The ledger is only safe when a single CustomerMs instance owns the balances,
+ * so it is disabled unless points.ledger.enabled=true, and it refuses to
+ * start without the journal.
+ */
+@Component
+public class PointsLedger implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(PointsLedger.class);
+
+    @Value("${points.ledger.enabled:false}")
+    private boolean enabled;
+
+    // Rounded up to a power of two so the stripe can be picked with a mask
+    @Value("${points.ledger.stripes:64}")
+    private int stripeCount;
+
+    @Value("${points.ledger.flush-batch-size:500}")
+    private int flushBatchSize;
+
+    @Value("${points.ledger.warmup-page-size:1000}")
+    private int warmupPageSize;
+
+    @Autowired
+    private CustomerProfilerepository custrepo;
+
+    @Autowired
+    private TierPolicy tierPolicy;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PointsJournal journal;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private ReentrantLock[] locks;
+    private int mask;
+
+    /**
+     * Balance snapshot for one user. Fields are only touched while holding the
+     * user's stripe lock.
+     */
+    public static final class Entry {
+        private int pointsBalance;
+        private int lifetimePoints;
+        // Without changes whose transaction has not committed yet
+        private int committedBalance;
+        private int committedLifetime;
+
+        Entry(int pointsBalance, int lifetimePoints) {
+            this.pointsBalance = pointsBalance;
+            this.lifetimePoints = lifetimePoints;
+            this.committedBalance = pointsBalance;
+            this.committedLifetime = lifetimePoints;
+        }
+
+        public int getPointsBalance() {
+            return pointsBalance;
+        }
+
+        public int getLifetimePoints() {
+            return lifetimePoints;
+        }
+    }
+
+    @PostConstruct
+    void initLocks() {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Runs before the web server starts, so no request sees a half-built ledger
+    @Override
+    public void afterSingletonsInstantiated() {
+        // Unflushed balances only survive a crash through the journal
+        if (enabled && !journal.isEnabled()) {
+            throw new IllegalStateException("points.ledger.enabled=true requires points.journal.enabled=true");
+        }
+        rebuild();
+    }
+
+    /**
+     * Rebuild the ledger from the CustomerProfile table, one page at a time,
+     * then replay journal events recorded after the last snapshot.
+     */
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        entries.clear();
+        dirty.clear();
+        int page = 0;
+        Page<CustomerProfile> profiles;
+        do {
+            profiles = custrepo.findAll(PageRequest.of(page++, warmupPageSize, Sort.by("id")));
+            for (CustomerProfile profile : profiles) {
+                entries.put(profile.getUserId(),
+                        new Entry(profile.getPointsBalance(), profile.getLifetimePoints()));
+            }
+        } while (profiles.hasNext());
+        long fromSequence = journal.snapshotSequence();
+        try {
+            // Records hold absolute balances, so the last one per user wins
+            journal.replay(fromSequence, event -> {
+                entries.put(event.userId(), new Entry(event.balanceAfter(), event.lifetimeAfter()));
+                dirty.add(event.userId());
+            });
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to replay points journal", e);
+        }
+        logger.info("Points ledger rebuilt with {} balances, {} replayed from journal sequence {}",
+                entries.size(), dirty.size(), fromSequence);
+    }
+
+    /**
+     * Add claimed points to balance and lifetime points.
+     *
+     * @return the balances after the claim
+     */
+    public Entry credit(Long userId, int points) {
+        Entry after = apply(userId, points, points, 0);
+        settle(userId, EventType.CLAIM, points, points, points);
+        return after;
+    }
+
+    /**
+     * Deduct points if the balance covers the cost.
+     *
+     * @return the balances after the debit, or null if the balance was too low
+     */
+    public Entry debit(Long userId, int cost) {
+        Entry after = apply(userId, -cost, 0, cost);
+        if (after != null) {
+            settle(userId, EventType.REDEMPTION, cost, -cost, 0);
+        }
+        return after;
+    }
+
+    /**
+     * Expire the part of the balance not covered by unexpired claim lots.
+     *
+     * @return the number of points expired, 0 if the balance was covered
+     */
+    public int expire(Long userId, int unexpiredPoints) {
+        ReentrantLock lock = lockFor(userId);
+        int expired;
+        lock.lock();
+        try {
+            Entry entry = entryFor(userId);
+            expired = entry.pointsBalance - unexpiredPoints;
+            if (expired <= 0) {
+                return 0;
+            }
+            entry.pointsBalance -= expired;
+        } finally {
+            lock.unlock();
+        }
+        settle(userId, EventType.EXPIRY, expired, -expired, 0);
+        return expired;
+    }
+
+    /**
+     * Track a newly registered profile so it does not need a lazy load.
+     */
+    public void register(CustomerProfile profile) {
+        if (!enabled) {
+            return;
+        }
+        ReentrantLock lock = lockFor(profile.getUserId());
+        lock.lock();
+        try {
+            entries.put(profile.getUserId(),
+                    new Entry(profile.getPointsBalance(), profile.getLifetimePoints()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Copy the ledger balances onto a profile loaded from the database, since
+     * the row may lag behind the last unflushed changes.
+     */
+    public CustomerProfile overlay(CustomerProfile profile) {
+        if (!enabled || profile == null) {
+            return profile;
+        }
+        ReentrantLock lock = lockFor(profile.getUserId());
+        lock.lock();
+        try {
+            Entry entry = entries.get(profile.getUserId());
+            if (entry != null) {
+                profile.setPointsBalance(entry.pointsBalance);
+                profile.setLifetimePoints(entry.lifetimePoints);
+                profile.setLoyaltyTier(tierPolicy.tierFor(entry.lifetimePoints));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return profile;
+    }
+
+    // Change the working balance only; settle() commits or undoes it
+    private Entry apply(Long userId, int balanceDelta, int lifetimeDelta, int required) {
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            Entry entry = entryFor(userId);
+            if (entry.pointsBalance < required) {
+                return null;
+            }
+            entry.pointsBalance += balanceDelta;
+            entry.lifetimePoints += lifetimeDelta;
+            return new Entry(entry.pointsBalance, entry.lifetimePoints);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Caller holds the user's stripe lock
+    private Entry entryFor(Long userId) {
+        Entry entry = entries.get(userId);
+        if (entry == null) {
+            CustomerProfile profile = custrepo.findByUserId(userId);
+            if (profile == null) {
+                throw new RuntimeException("Customer profile not found for user: " + userId);
+            }
+            entry = new Entry(profile.getPointsBalance(), profile.getLifetimePoints());
+            entries.put(userId, entry);
+        }
+        return entry;
+    }
+
+    // Commit the change once the surrounding transaction commits, or undo it if that rolls back
+    private void settle(Long userId, EventType type, int points, int balanceDelta, int lifetimeDelta) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            commit(userId, type, points, balanceDelta, lifetimeDelta);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    apply(userId, -balanceDelta, -lifetimeDelta, Integer.MIN_VALUE);
+                } else {
+                    commit(userId, type, points, balanceDelta, lifetimeDelta);
+                }
+            }
+        });
+    }
+
+    // Still on the request thread, so the caller is answered only once the record is durable
+    private void commit(Long userId, EventType type, int points, int balanceDelta, int lifetimeDelta) {
+        ReentrantLock lock = lockFor(userId);
+        long sequence;
+        lock.lock();
+        try {
+            Entry entry = entryFor(userId);
+            entry.committedBalance += balanceDelta;
+            entry.committedLifetime += lifetimeDelta;
+            dirty.add(userId);
+            sequence = journal.append(type, userId, points, entry.committedBalance, entry.committedLifetime);
+        } finally {
+            lock.unlock();
+        }
+        journal.awaitDurable(sequence);
+    }
+
+    /**
+     * Write dirty committed balances back to CustomerProfile in batches, so a
+     * balance never reaches the table ahead of its history row. When every batch
+     * succeeds the journal sequence seen at the start becomes the new snapshot.
+     */
+    @Scheduled(fixedDelayString = "${points.ledger.flush-interval-ms:1000}")
+    public void flush() {
+        if (!enabled || dirty.isEmpty()) {
+            return;
+        }
+        // Events up to this sequence were committed before being appended, so this pass covers them
+        long covered = journal.lastSequence();
+        boolean complete = true;
+        List<Long> batch = new ArrayList<>(flushBatchSize);
+        for (Long userId : dirty) {
+            batch.add(userId);
+            if (batch.size() == flushBatchSize) {
+                complete &= flushBatch(batch);
+                batch = new ArrayList<>(flushBatchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            complete &= flushBatch(batch);
+        }
+        if (complete) {
+            journal.snapshot(covered);
+        }
+    }
+
+    private boolean flushBatch(List<Long> userIds) {
+        Map<Long, Entry> snapshot = new HashMap<>();
+        for (Long userId : userIds) {
+            ReentrantLock lock = lockFor(userId);
+            lock.lock();
+            try {
+                // Clear the flag first so changes made during the write are picked up next time
+                dirty.remove(userId);
+                Entry entry = entries.get(userId);
+                snapshot.put(userId, new Entry(entry.committedBalance, entry.committedLifetime));
+            } finally {
+                lock.unlock();
+            }
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<CustomerProfile> profiles = custrepo.findByUserIdIn(snapshot.keySet());
+                for (CustomerProfile profile : profiles) {
+                    Entry entry = snapshot.get(profile.getUserId());
+                    profile.setPointsBalance(entry.pointsBalance);
+                    profile.setLifetimePoints(entry.lifetimePoints);
+                    profile.setLoyaltyTier(tierPolicy.tierFor(entry.lifetimePoints));
+                    if (profile.getNextExpiry() == null && entry.pointsBalance > 0) {
+                        // New claims since the last expiry run; the expiry engine will find the exact lot date
+                        profile.setNextExpiry(LocalDate.now().plusMonths(4));
+                    }
+                }
+                custrepo.saveAll(profiles);
+            });
+            return true;
+        } catch (RuntimeException e) {
+            dirty.addAll(snapshot.keySet());
+            logger.error("Failed to flush {} ledger balances", snapshot.size(), e);
+            return false;
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    private ReentrantLock lockFor(Long userId) {
+        int h = Long.hashCode(userId) * 0x9E3779B9;
+        return locks[(h ^ (h >>> 16)) & mask];
+    }
+}
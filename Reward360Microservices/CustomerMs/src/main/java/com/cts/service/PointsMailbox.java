@@ -0,0 +1,269 @@
+package com.cts.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.cts.config.WorkerThreads;
+import com.cts.dto.ClaimRequest;
+import com.cts.dto.RedeemRequest;
+import com.cts.entity.Redemption;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Per-user mailboxes for claims and redemptions. Each user id hashes to one
+ * of a fixed set of single-threaded workers, so operations for the same user
+ * are applied one after another in arrival order and never wait on each
+ * other's row locks, while different users run in parallel on all workers.
+ *
+ * A worker drains what is queued (up to batch-size), groups it by user and
+ * applies each user's run in one transaction with a single profile write
+ * (see {@link Pointsservice#applyQueued}). If that transaction fails, the run
+ * is retried one operation at a time so only the failing one reports an error.
+ *
+ * Disabled unless points.mailbox.enabled=true; requests then take the
+ * regular per-request transaction path.
+ */
+@Component
+public class PointsMailbox {
+
+    private static final Logger logger = LoggerFactory.getLogger(PointsMailbox.class);
+
+    @Value("${points.mailbox.enabled:false}")
+    private boolean enabled;
+
+    // 0 means one worker per core
+    @Value("${points.mailbox.workers:0}")
+    private int workerCount;
+
+    @Value("${points.mailbox.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${points.mailbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${points.mailbox.timeout-ms:10000}")
+    private long timeoutMs;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Autowired
+    private Pointsservice pointsservice;
+
+    @Autowired
+    private OptimisticRetry optimisticRetry;
+
+    public enum Type {
+        REDEEM(Redemption.class), CLAIM(ClaimRequest.class);
+
+        private final Class<?> responseType;
+
+        Type(Class<?> responseType) {
+            this.responseType = responseType;
+        }
+
+        public Class<?> responseType() {
+            return responseType;
+        }
+    }
+
+    /**
+     * One queued claim or redemption and the future its caller waits on.
+     */
+    public static final class Operation {
+        private final Type type;
+        private final Long userId;
+        private final Object request;
+        private final String idempotencyKey;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        Operation(Type type, Long userId, Object request, String idempotencyKey) {
+            this.type = type;
+            this.userId = userId;
+            this.request = request;
+            this.idempotencyKey = idempotencyKey;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public Object getRequest() {
+            return request;
+        }
+
+        public String getIdempotencyKey() {
+            return idempotencyKey;
+        }
+    }
+
+    private List<BlockingQueue<Operation>> queues;
+    private List<Thread> workers;
+    private volatile boolean running;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong operations = new AtomicLong();
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        int count = workerCount > 0 ? workerCount : Runtime.getRuntime().availableProcessors();
+        queues = new ArrayList<>(count);
+        workers = new ArrayList<>(count);
+        running = true;
+        for (int i = 0; i < count; i++) {
+            BlockingQueue<Operation> queue = new LinkedBlockingQueue<>(queueCapacity);
+            queues.add(queue);
+            workers.add(WorkerThreads.start("points-mailbox-" + i, virtualThreads, () -> run(queue)));
+        }
+        logger.info("Points mailbox started with {} workers", count);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Redemption redeem(Long userId, RedeemRequest request, String idempotencyKey) {
+        return (Redemption) submit(new Operation(Type.REDEEM, userId, request, idempotencyKey));
+    }
+
+    public ClaimRequest claim(Long userId, ClaimRequest request, String idempotencyKey) {
+        return (ClaimRequest) submit(new Operation(Type.CLAIM, userId, request, idempotencyKey));
+    }
+
+    /**
+     * Operations applied and transactions used so far; operations / batches is
+     * the average number of operations coalesced into one write.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("operations", operations.get());
+        stats.put("batches", batches.get());
+        int pending = 0;
+        if (queues != null) {
+            for (BlockingQueue<Operation> queue : queues) {
+                pending += queue.size();
+            }
+        }
+        stats.put("pending", pending);
+        return stats;
+    }
+
+    private Object submit(Operation operation) {
+        BlockingQueue<Operation> queue = queues.get(workerFor(operation.userId));
+        if (!queue.offer(operation)) {
+            throw new RuntimeException("Too many pending requests, please retry");
+        }
+        try {
+            return operation.result.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (TimeoutException e) {
+            // It may still be applied; a retry with the same Idempotency-Key is safe
+            throw new RuntimeException("Request timed out waiting for earlier requests of this user");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the points update", e);
+        }
+    }
+
+    private void run(BlockingQueue<Operation> queue) {
+        List<Operation> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch, batchSize - 1);
+            // Group by user; arrival order is kept within each user
+            Map<Long, List<Operation>> byUser = new LinkedHashMap<>();
+            for (Operation operation : batch) {
+                byUser.computeIfAbsent(operation.userId, id -> new ArrayList<>()).add(operation);
+            }
+            byUser.forEach(this::apply);
+            batch.clear();
+        }
+        // Shutdown: fail whatever is left rather than leaving callers waiting
+        queue.drainTo(batch);
+        for (Operation operation : batch) {
+            operation.result.completeExceptionally(new RuntimeException("Service is shutting down"));
+        }
+    }
+
+    private void apply(Long userId, List<Operation> run) {
+        try {
+            complete(run, optimisticRetry.execute(() -> pointsservice.applyQueued(userId, run)));
+            batches.incrementAndGet();
+        } catch (RuntimeException e) {
+            if (run.size() == 1) {
+                run.get(0).result.completeExceptionally(e);
+                return;
+            }
+            logger.warn("Batch of {} operations for user {} failed, applying one by one: {}", run.size(), userId,
+                    e.getMessage());
+            for (Operation operation : run) {
+                apply(userId, List.of(operation));
+            }
+            return;
+        }
+        operations.addAndGet(run.size());
+    }
+
+    private static void complete(List<Operation> run, List<Object> outcomes) {
+        for (int i = 0; i < run.size(); i++) {
+            Object outcome = outcomes.get(i);
+            if (outcome instanceof RuntimeException error) {
+                run.get(i).result.completeExceptionally(error);
+            } else {
+                run.get(i).result.complete(outcome);
+            }
+        }
+    }
+
+    private int workerFor(Long userId) {
+        int h = Long.hashCode(userId) * 0x9E3779B9;
+        return Math.floorMod(h ^ (h >>> 16), queues.size());
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Thread worker : workers) {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.cts.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Micrometer meters for the points operations, published on
+ * /actuator/prometheus:
+ *
+ * - customerms.points.operation: one timer per operation (redeem, claim,
+ *   redeemCart, history, offersByTier), tagged outcome=success|error. It
+ *   covers the whole call including commit, retries and mailbox wait.
+ * - customerms.points.insufficient: redemptions refused for lack of points.
+ * - customerms.fraud.submission.failures: transactions whose fraud check
+ *   submission to Fraud_MS failed (the outbox retries them).
+ */
+@Component
+public class PointsMetrics {
+
+    private final MeterRegistry registry;
+    private final Counter insufficientPoints;
+    private final Counter fraudSubmissionFailures;
+
+    public PointsMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.insufficientPoints = Counter.builder("customerms.points.insufficient")
+                .description("Redemptions refused for insufficient points")
+                .register(registry);
+        this.fraudSubmissionFailures = Counter.builder("customerms.fraud.submission.failures")
+                .description("Transactions whose fraud check submission failed")
+                .register(registry);
+    }
+
+    public <T> T time(String operation, Supplier<T> call) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            T result = call.get();
+            outcome = "success";
+            return result;
+        } finally {
+            Timer.builder("customerms.points.operation")
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .register(registry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Count the refusal and build the exception to throw.
+     */
+    public RuntimeException insufficientPoints() {
+        insufficientPoints.increment();
+        return new RuntimeException("Insufficient points");
+    }
+
+    public void fraudSubmissionFailed(int transactions) {
+        fraudSubmissionFailures.increment(transactions);
+    }
+}
@@ -0,0 +1,21 @@
+package com.cts.service;
+
+import java.util.List;
+import java.util.Map;
+
+import com.cts.entity.Transaction;
+
+/**
+ * A table derived from points activity (customer summary, monthly
+ * statements), kept up to date by {@link PointsActivity}.
+ */
+public interface PointsProjection {
+
+    /**
+     * Apply the transactions a committing database transaction recorded, by
+     * user in ascending userId order. Runs inside that transaction, after its
+     * profile changes have been flushed. Users with an empty list only had
+     * their profile changed.
+     */
+    void apply(Map<Long, List<Transaction>> pending);
+}
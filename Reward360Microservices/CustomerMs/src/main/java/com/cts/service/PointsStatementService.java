@@ -0,0 +1,221 @@
+package com.cts.service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cts.dto.PointsStatementResponse;
+import com.cts.entity.PointsStatement;
+import com.cts.entity.Transaction;
+import com.cts.repository.ArchiveSegmentRepository;
+import com.cts.repository.PointsStatementRepository;
+
+/**
+ * Monthly points statements from the PointsStatement table, which holds one
+ * row of totals per user and month. A statement reads one row per month of
+ * the range instead of scanning the user's transactions.
+ *
+ * Rows are kept up to date through {@link PointsActivity}: just before a
+ * writing transaction commits, its transactions are summed per (user, month)
+ * and added with one batched upsert. Points earned count for every type;
+ * points redeemed count as redeemed, except on EXPIRY rows where they count
+ * as expired.
+ *
+ * {@link #rebuild} recomputes the rows from the Transaction table, for one
+ * user or for everyone in chunks of users, e.g. after enabling the table on
+ * an existing database. Months already moved out by the {@link ArchiveService}
+ * keep their statements.
+ */
+@Service
+public class PointsStatementService implements PointsProjection {
+
+    private static final Logger logger = LoggerFactory.getLogger(PointsStatementService.class);
+
+    // Rows are sent sorted by (user_id, period), so concurrent upserts lock them in the same order
+    private static final String UPSERT = "INSERT INTO points_statement "
+            + "(user_id, period, earned, redeemed, expired, transaction_count) VALUES (?, ?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE earned = earned + VALUES(earned), redeemed = redeemed + VALUES(redeemed), "
+            + "expired = expired + VALUES(expired), transaction_count = transaction_count + VALUES(transaction_count)";
+    // Physical table name: the naming strategy lower-cases @Table(name = "Transaction")
+    private static final String SELECT_USERS = "SELECT DISTINCT user_id FROM transaction "
+            + "WHERE user_id > ? ORDER BY user_id LIMIT ?";
+    // Statements of archived months (period <= the last archived one) are kept: their rows are gone
+    private static final String DELETE_RANGE = "DELETE FROM points_statement WHERE user_id > ? AND user_id <= ? "
+            + "AND period > ?";
+    private static final String INSERT_RANGE = "INSERT INTO points_statement "
+            + "(user_id, period, earned, redeemed, expired, transaction_count) "
+            + "SELECT user_id, YEAR(date) * 100 + MONTH(date), SUM(points_earned), "
+            + "SUM(CASE WHEN type = 'EXPIRY' THEN 0 ELSE points_redeemed END), "
+            + "SUM(CASE WHEN type = 'EXPIRY' THEN points_redeemed ELSE 0 END), COUNT(*) "
+            + "FROM transaction WHERE user_id > ? AND user_id <= ? AND date >= ? "
+            + "GROUP BY user_id, YEAR(date) * 100 + MONTH(date)";
+
+    private record Key(long userId, int period) {
+    }
+
+    private static final Comparator<Key> KEY_ORDER = Comparator.comparingLong(Key::userId)
+            .thenComparingInt(Key::period);
+
+    @Value("${statements.enabled:true}")
+    private boolean enabled;
+
+    // Users per transaction when rebuilding every statement
+    @Value("${statements.rebuild.chunk-size:500}")
+    private int chunkSize;
+
+    @Autowired
+    private PointsStatementRepository statementRepository;
+
+    @Autowired
+    private ArchiveSegmentRepository segmentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * The statement of a user between two months (yyyy-MM, both inclusive).
+     * Defaults to January of the current year up to the current month.
+     */
+    public PointsStatementResponse getStatement(Long userId, String from, String to) {
+        YearMonth end = to != null ? parseMonth(to) : YearMonth.now();
+        YearMonth start = from != null ? parseMonth(from) : YearMonth.of(end.getYear(), 1);
+        if (start.isAfter(end)) {
+            throw new RuntimeException("Statement range starts after it ends: " + start + " to " + end);
+        }
+        PointsStatementResponse response = new PointsStatementResponse();
+        response.setUserId(userId);
+        response.setFrom(start.toString());
+        response.setTo(end.toString());
+        List<PointsStatementResponse.Month> months = new ArrayList<>();
+        for (PointsStatement row : statementRepository.findByUserIdAndPeriodBetweenOrderByPeriod(userId,
+                period(start), period(end))) {
+            months.add(new PointsStatementResponse.Month(
+                    YearMonth.of(row.getPeriod() / 100, row.getPeriod() % 100).toString(), row.getEarned(),
+                    row.getRedeemed(), row.getExpired(), row.getTransactionCount()));
+            response.setEarned(response.getEarned() + row.getEarned());
+            response.setRedeemed(response.getRedeemed() + row.getRedeemed());
+            response.setExpired(response.getExpired() + row.getExpired());
+            response.setTransactionCount(response.getTransactionCount() + row.getTransactionCount());
+        }
+        response.setMonths(months);
+        return response;
+    }
+
+    @Override
+    public void apply(Map<Long, List<Transaction>> pending) {
+        if (!enabled) {
+            return;
+        }
+        Map<Key, long[]> totals = new TreeMap<>(KEY_ORDER);
+        for (List<Transaction> transactions : pending.values()) {
+            for (Transaction transaction : transactions) {
+                if (transaction.getDate() == null) {
+                    continue;
+                }
+                long[] total = totals.computeIfAbsent(
+                        new Key(transaction.getUserId(), period(YearMonth.from(transaction.getDate()))),
+                        key -> new long[4]);
+                total[0] += transaction.getPointsEarned();
+                if ("EXPIRY".equals(transaction.getType())) {
+                    total[2] += transaction.getPointsRedeemed();
+                } else {
+                    total[1] += transaction.getPointsRedeemed();
+                }
+                total[3]++;
+            }
+        }
+        if (totals.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Key, long[]>> rows = new ArrayList<>(totals.entrySet());
+        jdbcTemplate.batchUpdate(UPSERT, rows, rows.size(), (ps, row) -> {
+            ps.setLong(1, row.getKey().userId());
+            ps.setInt(2, row.getKey().period());
+            ps.setLong(3, row.getValue()[0]);
+            ps.setLong(4, row.getValue()[1]);
+            ps.setLong(5, row.getValue()[2]);
+            ps.setLong(6, row.getValue()[3]);
+        });
+    }
+
+    /**
+     * Recompute statements from the Transaction table: for one user, or for
+     * every user when userId is null. Each chunk of users is replaced in one
+     * transaction, so statements stay readable while the rebuild runs.
+     */
+    public Map<String, Object> rebuild(Long userId) {
+        long started = System.currentTimeMillis();
+        Integer archived = segmentRepository.findLastArchivedPeriod();
+        int keepThrough = archived != null ? archived : 0;
+        LocalDate hotFrom = archived != null
+                ? YearMonth.of(archived / 100, archived % 100).plusMonths(1).atDay(1)
+                : LocalDate.of(1000, 1, 1);
+        long users;
+        int rows;
+        if (userId != null) {
+            users = 1;
+            rows = rebuildRange(userId - 1, userId, keepThrough, hotFrom);
+        } else {
+            users = 0;
+            rows = 0;
+            long last = Long.MIN_VALUE;
+            while (true) {
+                List<Long> chunk = jdbcTemplate.queryForList(SELECT_USERS, Long.class, last, chunkSize);
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                long next = chunk.get(chunk.size() - 1);
+                rows += rebuildRange(last, next, keepThrough, hotFrom);
+                users += chunk.size();
+                last = next;
+            }
+            // Statements of users whose transactions are all gone
+            jdbcTemplate.update(DELETE_RANGE, last, Long.MAX_VALUE, keepThrough);
+        }
+        long durationMs = System.currentTimeMillis() - started;
+        logger.info("Rebuilt {} points statement rows for {} users in {} ms", rows, users, durationMs);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("users", users);
+        result.put("months", rows);
+        result.put("durationMs", durationMs);
+        return result;
+    }
+
+    // Replaces the statements of users in (after, upTo] from the months still in the Transaction table
+    private int rebuildRange(long after, long upTo, int keepThrough, LocalDate hotFrom) {
+        Integer rows = transactionTemplate.execute(status -> {
+            jdbcTemplate.update(DELETE_RANGE, after, upTo, keepThrough);
+            return jdbcTemplate.update(INSERT_RANGE, after, upTo, hotFrom);
+        });
+        return rows != null ? rows : 0;
+    }
+
+    private static int period(YearMonth month) {
+        return month.getYear() * 100 + month.getMonthValue();
+    }
+
+    private static YearMonth parseMonth(String month) {
+        try {
+            return YearMonth.parse(month);
+        } catch (DateTimeParseException e) {
+            throw new RuntimeException("Invalid month, expected yyyy-MM: " + month);
+        }
+    }
+}
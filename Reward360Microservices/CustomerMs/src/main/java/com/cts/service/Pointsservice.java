@@ -1,25 +1,46 @@
 package com.cts.service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Date;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import com.cts.config.ReplicaLagGuard;
+import com.cts.dto.CartRedeemRequest;
+import com.cts.dto.CartRedemptionResponse;
 import com.cts.dto.ClaimRequest;
-import com.cts.dto.FraudTransactionRequest;
 import com.cts.dto.OfferDto;
+import com.cts.dto.PageResponse;
 import com.cts.dto.RedeemRequest;
 import com.cts.entity.CustomerProfile;
 import com.cts.entity.Redemption;
 import com.cts.entity.Transaction;
-import com.cts.feign.FraudDetectionClient;
-import com.cts.feign.PromotionFeignClient;
 import com.cts.repository.CustomerProfilerepository;
 import com.cts.repository.RedemptionRepository;
 import com.cts.repository.TransactionRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 
 @Service
 public class Pointsservice {
@@ -30,13 +51,25 @@ public class Pointsservice {
     //  100 points to the user
     public static final int INITIAL_POINTS = 1000; // Starting points for new users
 
+    // Physical table names: the naming strategy lower-cases the @Table names
+    private static final String INSERT_REDEMPTION_TRANSACTION = "INSERT INTO transaction "
+            + "(external_id, type, points_earned, points_redeemed, store, date, note, user_id) "
+            + "VALUES (?, 'REDEMPTION', 0, ?, 'Online', ?, ?, ?)";
+
+    private static final String INSERT_REDEMPTION = "INSERT INTO redemption "
+            + "(confirmation_code, transaction_id, date, cost_points, offer_title, store, user_id) "
+            + "VALUES (?, ?, ?, ?, ?, 'Online', ?)";
+
     @Autowired
     private CustomerProfilerepository customerProfileRepository;
     @Autowired
     private TransactionRepository transactionRepository;
 
     @Autowired
-    private PromotionFeignClient promotionFeignClient;
+    private OfferCatalog offerCatalog;
+
+    @Autowired
+    private OfferEligibilityIndex offerEligibilityIndex;
 
     @Autowired
     private RedemptionRepository redemptionRepository;
@@ -45,11 +78,59 @@ public class Pointsservice {
     private CustomerProfilerepository custrepo;
 
     @Autowired
-    private FraudDetectionClient fraudDetectionClient;
+    private OutboxPublisher outboxPublisher;
+
+    @Autowired
+    private TierPolicy tierPolicy;
+
+    @Autowired
+    private PointsLedger pointsLedger;
+
+    @Autowired
+    private PointsJournal pointsJournal;
+
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private PointsActivity pointsActivity;
+
+    @Autowired
+    private PointsMetrics pointsMetrics;
+
+    @Autowired
+    private ReplicaLagGuard replicaLagGuard;
+
+    @Autowired
+    private ProfileCache profileCache;
+
+    @Autowired
+    private ArchiveService archiveService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${points.cart.max-offers:50}")
+    private int cartMaxOffers;
+
+    @Value("${history.page.default-size:20}")
+    private int defaultPageSize;
+
+    @Value("${history.page.max-size:100}")
+    private int maxPageSize;
 
     public CustomerProfile getCutomerId(Long id) {
 
-        return customerProfileRepository.findByUserId(id);
+        return pointsLedger.overlay(profileCache.get(id));
 
     }
 
@@ -67,7 +148,10 @@ public class Pointsservice {
         profile.setPreferences(registerRequest.getPreferences());
         profile.setCommunication(registerRequest.getCommunication());
 
-        return custrepo.save(profile);
+        CustomerProfile saved = custrepo.save(profile);
+        pointsLedger.register(saved);
+        pointsActivity.touch(saved.getUserId());
+        return saved;
     }
 
     /**
@@ -89,6 +173,9 @@ public class Pointsservice {
         if (updateRequest.getCommunication() != null) {
             profile.setCommunication(updateRequest.getCommunication());
         }
+        // Keep the latest ledger balances so the save does not write back stale points
+        pointsLedger.overlay(profile);
+        pointsActivity.touch(userId);
         return custrepo.save(profile);
     }
 
@@ -99,26 +186,43 @@ public class Pointsservice {
      */
     @Transactional
     public Redemption redeemOffer(Long userId, RedeemRequest request) {
-        CustomerProfile profile = custrepo.findByUserId(userId);
-        if (profile == null) {
-            throw new RuntimeException("Customer profile not found for user: " + userId);
+        if (pointsLedger.isEnabled()) {
+            OfferDto offer = offerCatalog.getOffer(request.getOfferId());
+            // Balance check and deduction happen atomically in the ledger
+            if (pointsLedger.debit(userId, offer.getCostPoints()) == null) {
+                throw pointsMetrics.insufficientPoints();
+            }
+            return recordRedemption(userId, offer);
         }
 
-        // Fetch specific offer details from Promotion Service via Feign
-        OfferDto offer = promotionFeignClient.getOfferById(request.getOfferId());
+        // Fetch specific offer details from the local catalog of Promotion Service offers
+        OfferDto offer = offerCatalog.getOffer(request.getOfferId());
 
-        // CustomerProfile profile = custrepo.findById(userId)
-        //     .orElseThrow(() -> new RuntimeException("Customer profile not found for user: " + userId));
-        if (profile.getPointsBalance() < offer.getCostPoints()) {
-            throw new RuntimeException("Insufficient points");
+        // Check and deduct in one conditional UPDATE, so concurrent redemptions
+        // cannot both pass the balance check
+        if (custrepo.debitIfSufficient(userId, offer.getCostPoints()) == 0) {
+            if (custrepo.findByUserId(userId) == null) {
+                throw new RuntimeException("Customer profile not found for user: " + userId);
+            }
+            throw pointsMetrics.insufficientPoints();
+        }
+        if (pointsJournal.isEnabled()) {
+            // Read back the balance just written; the row stays locked until commit
+            journalAfterCommit(PointsJournal.EventType.REDEMPTION, custrepo.findByUserId(userId),
+                    offer.getCostPoints());
         }
+        return recordRedemption(userId, offer);
+    }
 
-        // Deduct points
-        profile.setPointsBalance(profile.getPointsBalance() - offer.getCostPoints());
+    /**
+     * Insert the REDEMPTION transaction and redemption rows once the points
+     * have been deducted.
+     */
+    private Redemption recordRedemption(Long userId, OfferDto offer) {
 
         // Create Transaction
         Transaction transaction = new Transaction();
-        transaction.setExternalId("RED-" + System.currentTimeMillis());
+        transaction.setExternalId(idGenerator.next("RED"));
         transaction.setType("REDEMPTION");
         transaction.setPointsRedeemed(offer.getCostPoints());
         transaction.setNote(offer.getTitle());
@@ -126,81 +230,131 @@ public class Pointsservice {
         transaction.setStore("Online"); // Assuming online redemption, can be dynamic based on offer
         transaction.setDate(LocalDate.now());
         transactionRepository.save(transaction);
+        pointsActivity.record(transaction);
 
         sendToFraudDetection(transaction);
         // Create Redemption record
         Redemption redemption = new Redemption();
         redemption.setTransactionId(transaction.getExternalId());
-        redemption.setConfirmationCode("CONF-" + System.currentTimeMillis());
+        redemption.setConfirmationCode(idGenerator.next("CONF"));
         redemption.setOfferTitle(offer.getTitle());
         redemption.setCostPoints(offer.getCostPoints());
         redemption.setUserId(userId);
         redemption.setDate(LocalDate.now());
         redemption.setStore("Online"); // Assuming online redemption, can be dynamic based on offer
         redemptionRepository.save(redemption);
-
-        custrepo.save(profile); // Update profile with new points balance
         return redemption;
     }
 
-    private static final List<String> TIER_ORDER = List.of("BRONZE", "SILVER", "GOLD", "PLATINUM");
-
     /**
-     * Recalculate and update the user's loyalty tier based on lifetime points.
-     * Thresholds: Bronze: 0 – 999 Silver: 1000 – 4999 Gold: 5000 – 9999
-     * Platinum: 10000+
+     * Redeem several offers at checkout in one transaction. The offers are
+     * read from one catalog snapshot, their total cost is checked and deducted
+     * with a single balance update, and the REDEMPTION transaction and
+     * redemption rows are inserted in two JDBC batches. Either every offer is
+     * redeemed or none is.
      */
-    private void recalculateTier(CustomerProfile profile) {
-        int lifetime = profile.getLifetimePoints();
-        String newTier;
-        if (lifetime >= 10000) {
-            newTier = "PLATINUM";
-        } else if (lifetime >= 5000) {
-            newTier = "GOLD";
-        } else if (lifetime >= 1000) {
-            newTier = "SILVER";
-        } else {
-            newTier = "BRONZE";
+    @Transactional
+    public CartRedemptionResponse redeemCart(Long userId, CartRedeemRequest request) {
+        List<Long> offerIds = request.getOfferIds();
+        if (offerIds == null || offerIds.isEmpty()) {
+            throw new RuntimeException("Cart is empty");
+        }
+        if (offerIds.size() > cartMaxOffers) {
+            throw new RuntimeException("Cart has more than " + cartMaxOffers + " offers");
+        }
+        List<OfferDto> offers = offerCatalog.getOffers(offerIds);
+        int totalCost = 0;
+        for (int i = 0; i < offers.size(); i++) {
+            if (offers.get(i) == null) {
+                throw new RuntimeException("Offer not found: " + offerIds.get(i));
+            }
+            totalCost = Math.addExact(totalCost, offers.get(i).getCostPoints());
         }
-        profile.setLoyaltyTier(newTier);
-    }
 
-    public List<OfferDto> getOffersByTier(String userTier) {
-        // 1. Get all offers from the other service via Feign
-        List<OfferDto> allOffers = promotionFeignClient.getAllOffers();
-
-        // 2. Prepare a list to store the results
-        List<OfferDto> eligibleOffers = new ArrayList<>();
-
-        // 3. Determine the user's tier rank
-        int userTierRank = TIER_ORDER.indexOf(userTier.toUpperCase());
-
-        // If the tier is unknown, default to the lowest (Bronze)
-        if (userTierRank == -1) {
-            userTierRank = 0;
-        }
-
-        // 4. Create a sub-list of all allowed tiers (e.g., ["BRONZE", "SILVER"])
-        List<String> allowedTiers = TIER_ORDER.subList(0, userTierRank + 1);
-
-        // 5. Use a standard loop to filter
-        for (OfferDto offer : allOffers) {
-            if (offer.getActive()) {
-                String offerTierRaw = offer.getTierLevel();
-                if (offerTierRaw == null || offerTierRaw.trim().isEmpty() || "All".equalsIgnoreCase(offerTierRaw)) {
-                    // Null/empty/All means available to all tiers
-                    eligibleOffers.add(offer);
-                } else {
-                    String offerTier = offerTierRaw.toUpperCase();
-                    // Check if the offer's tier is within the user's allowed list
-                    if (allowedTiers.contains(offerTier)) {
-                        eligibleOffers.add(offer);
-                    }
+        if (pointsLedger.isEnabled()) {
+            if (pointsLedger.debit(userId, totalCost) == null) {
+                throw pointsMetrics.insufficientPoints();
+            }
+        } else {
+            if (custrepo.debitIfSufficient(userId, totalCost) == 0) {
+                if (custrepo.findByUserId(userId) == null) {
+                    throw new RuntimeException("Customer profile not found for user: " + userId);
                 }
+                throw pointsMetrics.insufficientPoints();
             }
+            if (pointsJournal.isEnabled()) {
+                journalAfterCommit(PointsJournal.EventType.REDEMPTION, custrepo.findByUserId(userId), totalCost);
+            }
+        }
+        return new CartRedemptionResponse(userId, totalCost, recordRedemptions(userId, offers));
+    }
+
+    /**
+     * Batch insert one REDEMPTION transaction and redemption row per offer, as
+     * {@link #recordRedemption} does for a single offer.
+     */
+    private List<Redemption> recordRedemptions(Long userId, List<OfferDto> offers) {
+        LocalDate today = LocalDate.now();
+        List<Transaction> transactions = new ArrayList<>(offers.size());
+        List<Redemption> redemptions = new ArrayList<>(offers.size());
+        for (OfferDto offer : offers) {
+            Transaction transaction = new Transaction();
+            transaction.setExternalId(idGenerator.next("RED"));
+            transaction.setType("REDEMPTION");
+            transaction.setPointsRedeemed(offer.getCostPoints());
+            transaction.setNote(offer.getTitle());
+            transaction.setUserId(userId);
+            transaction.setStore("Online");
+            transaction.setDate(today);
+            transactions.add(transaction);
+
+            Redemption redemption = new Redemption();
+            redemption.setTransactionId(transaction.getExternalId());
+            redemption.setConfirmationCode(idGenerator.next("CONF"));
+            redemption.setOfferTitle(offer.getTitle());
+            redemption.setCostPoints(offer.getCostPoints());
+            redemption.setUserId(userId);
+            redemption.setDate(today);
+            redemption.setStore("Online");
+            redemptions.add(redemption);
+        }
+        jdbcTemplate.batchUpdate(INSERT_REDEMPTION_TRANSACTION, transactions, transactions.size(),
+                (ps, transaction) -> {
+                    ps.setString(1, transaction.getExternalId());
+                    ps.setInt(2, transaction.getPointsRedeemed());
+                    ps.setDate(3, Date.valueOf(today));
+                    ps.setString(4, transaction.getNote());
+                    ps.setLong(5, userId);
+                });
+        jdbcTemplate.batchUpdate(INSERT_REDEMPTION, redemptions, redemptions.size(), (ps, redemption) -> {
+            ps.setString(1, redemption.getConfirmationCode());
+            ps.setString(2, redemption.getTransactionId());
+            ps.setDate(3, Date.valueOf(today));
+            ps.setInt(4, redemption.getCostPoints());
+            ps.setString(5, redemption.getOfferTitle());
+            ps.setLong(6, userId);
+        });
+        for (Transaction transaction : transactions) {
+            pointsActivity.record(transaction);
+            sendToFraudDetection(transaction);
         }
+        return redemptions;
+    }
+
+    /**
+     * Recalculate and update the user's loyalty tier based on lifetime points,
+     * using the configured {@link TierPolicy} thresholds.
+     */
+    private void recalculateTier(CustomerProfile profile) {
+        profile.setLoyaltyTier(tierPolicy.tierFor(profile.getLifetimePoints()));
+    }
 
-        return eligibleOffers;
+    /**
+     * Active offers the tier is eligible for. Eligibility is precomputed once
+     * per catalog version by the OfferEligibilityIndex.
+     */
+    public List<OfferDto> getOffersByTier(String userTier) {
+        return offerEligibilityIndex.forTier(userTier).getOffers();
     }
 
     /**
@@ -209,18 +363,34 @@ public class Pointsservice {
      */
     @Transactional
     public ClaimRequest claimOffer(ClaimRequest claimRequest, Long userId) {
-        // Fetch user
-        CustomerProfile profile = custrepo.findByUserId(userId);
-        if (profile == null) {
-            throw new RuntimeException("Customer profile not found for user: " + userId);
+        if (pointsLedger.isEnabled()) {
+            // Balance and tier are written back by the ledger flush
+            pointsLedger.credit(userId, claimRequest.getPoints());
+        } else {
+            // Fetch user
+            CustomerProfile profile = custrepo.findByUserId(userId);
+            if (profile == null) {
+                throw new RuntimeException("Customer profile not found for user: " + userId);
+            }
+            // Add points to profile
+            int previousBalance = profile.getPointsBalance();
+            profile.setPointsBalance(previousBalance + claimRequest.getPoints());
+            profile.setLifetimePoints(profile.getLifetimePoints() + claimRequest.getPoints());
+            recalculateTier(profile);
+            if (profile.getNextExpiry() == null) {
+                profile.setNextExpiry(LocalDate.now().plusMonths(4)); // Earliest lot is this claim
+            }
+            custrepo.save(profile);
+            journalAfterCommit(PointsJournal.EventType.CLAIM, profile, claimRequest.getPoints());
         }
-        // Add points to profile
-        int previousBalance = profile.getPointsBalance();
-        profile.setPointsBalance(previousBalance + claimRequest.getPoints());
-        profile.setLifetimePoints(profile.getLifetimePoints() + claimRequest.getPoints());
-        recalculateTier(profile);
-        custrepo.save(profile);
+        recordClaim(userId, claimRequest);
+        return claimRequest;
+    }
 
+    /**
+     * Insert the CLAIM transaction once the points have been added.
+     */
+    private void recordClaim(Long userId, ClaimRequest claimRequest) {
         // Create transaction record only (no redemption entry)
         Transaction transaction = new Transaction();
         transaction.setUserId(userId);
@@ -231,77 +401,326 @@ public class Pointsservice {
         transaction.setDate(LocalDate.now());
         transaction.setExpiry(LocalDate.now().plusMonths(4)); // Points expire in 4 months
         transaction.setNote("Claimed: " + claimRequest.getNote());
-        String transactionId = "CLM-" + System.currentTimeMillis();
+        String transactionId = idGenerator.next("CLM");
         transaction.setExternalId(transactionId);
         transactionRepository.save(transaction);
+        pointsActivity.record(transaction);
 
-        // Return response DTO
         // Send to Fraud Detection Service
         sendToFraudDetection(transaction);
+    }
+
+    /**
+     * Apply a run of queued claims and redemptions for one user, in order, in
+     * one transaction (used by the {@link PointsMailbox}). The profile is read
+     * and written once for the whole run. An operation that fails its own
+     * checks (unknown offer, insufficient points) gets that error as its
+     * outcome without affecting the others; those checks run before anything
+     * is changed. Any other failure propagates and rolls the whole run back,
+     * and the mailbox then retries the operations one at a time.
+     *
+     * @return one outcome per operation: the response, or the RuntimeException
+     */
+    @Transactional
+    public List<Object> applyQueued(Long userId, List<PointsMailbox.Operation> operations) {
+        CustomerProfile profile = null;
+        if (!pointsLedger.isEnabled()) {
+            profile = custrepo.findByUserId(userId);
+            if (profile == null) {
+                RuntimeException notFound = new RuntimeException("Customer profile not found for user: " + userId);
+                return Collections.nCopies(operations.size(), notFound);
+            }
+        }
+        List<Object> outcomes = new ArrayList<>(operations.size());
+        boolean changed = false;
+        for (PointsMailbox.Operation operation : operations) {
+            String kind = operation.getType().name();
+            Object replay = idempotencyService.completedResponse(userId, kind, operation.getIdempotencyKey(),
+                    operation.getRequest(), operation.getType().responseType());
+            if (replay != null) {
+                outcomes.add(replay);
+                continue;
+            }
+            Object response;
+            if (operation.getType() == PointsMailbox.Type.REDEEM) {
+                RedeemRequest request = (RedeemRequest) operation.getRequest();
+                OfferDto offer = offerCatalog.getOffer(request.getOfferId());
+                RuntimeException rejected = offer == null
+                        ? new RuntimeException("Offer not found: " + request.getOfferId())
+                        : !debitQueued(userId, profile, offer.getCostPoints()) ? pointsMetrics.insufficientPoints()
+                        : null;
+                if (rejected != null) {
+                    outcomes.add(rejected);
+                    continue;
+                }
+                response = recordRedemption(userId, offer);
+            } else {
+                response = applyQueuedClaim(userId, profile, (ClaimRequest) operation.getRequest());
+            }
+            changed = true;
+            idempotencyService.recordCompleted(userId, kind, operation.getIdempotencyKey(), operation.getRequest(),
+                    response);
+            outcomes.add(response);
+        }
+        if (profile != null && changed) {
+            custrepo.save(profile); // One write for the whole run, checked by @Version
+        }
+        return outcomes;
+    }
+
+    /**
+     * Deduct the cost from the run's profile, or from the ledger when the
+     * profile is null. Nothing is changed when the balance is too low.
+     *
+     * @return false if the balance did not cover the cost
+     */
+    private boolean debitQueued(Long userId, CustomerProfile profile, int cost) {
+        if (profile == null) {
+            return pointsLedger.debit(userId, cost) != null;
+        }
+        if (profile.getPointsBalance() < cost) {
+            return false;
+        }
+        profile.setPointsBalance(profile.getPointsBalance() - cost);
+        journalAfterCommit(PointsJournal.EventType.REDEMPTION, profile, cost);
+        return true;
+    }
 
+    private ClaimRequest applyQueuedClaim(Long userId, CustomerProfile profile, ClaimRequest claimRequest) {
+        if (profile == null) {
+            pointsLedger.credit(userId, claimRequest.getPoints());
+        } else {
+            profile.setPointsBalance(profile.getPointsBalance() + claimRequest.getPoints());
+            profile.setLifetimePoints(profile.getLifetimePoints() + claimRequest.getPoints());
+            recalculateTier(profile);
+            if (profile.getNextExpiry() == null) {
+                profile.setNextExpiry(LocalDate.now().plusMonths(4));
+            }
+            journalAfterCommit(PointsJournal.EventType.CLAIM, profile, claimRequest.getPoints());
+        }
+        recordClaim(userId, claimRequest);
         return claimRequest;
     }
 
+    /**
+     * Record a balance change in the points journal once the database
+     * transaction has committed. The database holds the change, so the record
+     * is best effort. The ledger journals its own changes.
+     */
+    private void journalAfterCommit(PointsJournal.EventType type, CustomerProfile profile, int points) {
+        if (!pointsJournal.isEnabled()) {
+            return;
+        }
+        Long userId = profile.getUserId();
+        int balanceAfter = profile.getPointsBalance();
+        int lifetimeAfter = profile.getLifetimePoints();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                pointsJournal.appendCommitted(type, userId, points, balanceAfter, lifetimeAfter);
+            }
+        });
+    }
+
     /**
      * Get all redemptions for a specific user
      */
+    @Transactional(readOnly = true)
     public List<Redemption> getRedemptionsByUserId(Long userId) {
+        replicaLagGuard.pinIfRecentWrite(userId);
         // Verify user exists
-        CustomerProfile profile = custrepo.findByUserId(userId);
+        CustomerProfile profile = profileCache.get(userId);
         if (profile == null) {
             throw new RuntimeException("Customer profile not found for user: " + userId);
         }
 
-        // Return redemptions sorted by date descending
-        return redemptionRepository.findByUserIdOrderByDateDesc(userId);
+        // Return redemptions sorted by date descending, then the archived months
+        List<Redemption> redemptions = hotRows(redemptionRepository.findByUserIdOrderByDateDesc(userId),
+                Redemption::getDate);
+        if (archiveService.hotFrom() != null) {
+            redemptions.addAll(archiveService.redemptions(userId, null, Integer.MAX_VALUE));
+        }
+        return redemptions;
     }
 
     /**
      * Get all transactions for a specific user
      */
+    @Transactional(readOnly = true)
     public List<Transaction> getTransactionsByUserId(Long userId) {
+        replicaLagGuard.pinIfRecentWrite(userId);
         // Verify user exists
-        CustomerProfile profile = custrepo.findByUserId(userId);
+        CustomerProfile profile = profileCache.get(userId);
         if (profile == null) {
             throw new RuntimeException("Customer profile not found for user: " + userId);
         }
-        // Return transactions for the user sorted by date descending
-        return transactionRepository.findByUserIdOrderByDateDesc(userId);
+        // Return transactions for the user sorted by date descending, then the archived months
+        List<Transaction> transactions = hotRows(transactionRepository.findByUserIdOrderByDateDesc(userId),
+                Transaction::getDate);
+        if (archiveService.hotFrom() != null) {
+            transactions.addAll(archiveService.transactions(userId, null, Integer.MAX_VALUE));
+        }
+        return transactions;
     }
 
-    /// Get all redemptions in the system (for admin view)
-     public List<Redemption> getAllRedemptions() {
-        return redemptionRepository.findAll();
+    /**
+     * One page of a user's transactions, newest first. Reads at most size+1
+     * rows from the (userId, date, id) index regardless of history length;
+     * once the hot rows run out the page continues into archived months.
+     */
+    @Transactional(readOnly = true)
+    public PageResponse<Transaction> getTransactionsPage(Long userId, String pageToken, Integer size) {
+        replicaLagGuard.pinIfRecentWrite(userId);
+        CustomerProfile profile = profileCache.get(userId);
+        if (profile == null) {
+            throw new RuntimeException("Customer profile not found for user: " + userId);
+        }
+        int pageSize = pageSize(size);
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        HistoryCursor cursor = null;
+        List<Transaction> rows;
+        if (pageToken == null || pageToken.isEmpty()) {
+            rows = transactionRepository.findByUserIdOrderByDateDescIdDesc(userId, limit);
+        } else {
+            cursor = HistoryCursor.decode(pageToken);
+            rows = transactionRepository.findPageAfter(userId, cursor.getDate(), cursor.getId(), limit);
+        }
+        rows = withArchived(hotRows(rows, Transaction::getDate), pageSize, cursor, Transaction::getDate,
+                Transaction::getId, (after, count) -> archiveService.transactions(userId, after, count));
+        if (rows.size() <= pageSize) {
+            return new PageResponse<>(rows, null, pageSize);
+        }
+        List<Transaction> page = rows.subList(0, pageSize);
+        Transaction last = page.get(pageSize - 1);
+        return new PageResponse<>(page, new HistoryCursor(last.getDate(), last.getId()).encode(), pageSize);
     }
 
     /**
-     * Get all offers available for a specific tier
+     * One page of a user's redemptions, newest first.
      */
-    private void sendToFraudDetection(Transaction transaction) {
-        try {
-            // Only send REDEMPTIONS to fraud detection, not CLAIMS
-            // Claims are just earning points - no fraud risk there
-            if (!"REDEMPTION".equals(transaction.getType())) {
-                return; // Skip fraud check for CLAIM transactions
+    @Transactional(readOnly = true)
+    public PageResponse<Redemption> getRedemptionsPage(Long userId, String pageToken, Integer size) {
+        replicaLagGuard.pinIfRecentWrite(userId);
+        CustomerProfile profile = profileCache.get(userId);
+        if (profile == null) {
+            throw new RuntimeException("Customer profile not found for user: " + userId);
+        }
+        int pageSize = pageSize(size);
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        HistoryCursor cursor = null;
+        List<Redemption> rows;
+        if (pageToken == null || pageToken.isEmpty()) {
+            rows = redemptionRepository.findByUserIdOrderByDateDescIdDesc(userId, limit);
+        } else {
+            cursor = HistoryCursor.decode(pageToken);
+            rows = redemptionRepository.findPageAfter(userId, cursor.getDate(), cursor.getId(), limit);
+        }
+        rows = withArchived(hotRows(rows, Redemption::getDate), pageSize, cursor, Redemption::getDate,
+                Redemption::getId, (after, count) -> archiveService.redemptions(userId, after, count));
+        if (rows.size() <= pageSize) {
+            return new PageResponse<>(rows, null, pageSize);
+        }
+        List<Redemption> page = rows.subList(0, pageSize);
+        Redemption last = page.get(pageSize - 1);
+        return new PageResponse<>(page, new HistoryCursor(last.getDate(), last.getId()).encode(), pageSize);
+    }
+
+    /**
+     * Drop hot rows of months already archived whose delete is still pending;
+     * the archive serves them.
+     */
+    private <T> List<T> hotRows(List<T> rows, Function<T, LocalDate> date) {
+        List<T> hot = new ArrayList<>(rows);
+        LocalDate hotFrom = archiveService.hotFrom();
+        if (hotFrom != null) {
+            hot.removeIf(row -> date.apply(row) != null && date.apply(row).isBefore(hotFrom));
+        }
+        return hot;
+    }
+
+    /**
+     * Fill a page whose hot rows ran out (at most pageSize of them) from the
+     * archived months, continuing after its last row or else the request
+     * cursor. Archived rows are all older than the hot ones.
+     */
+    private <T> List<T> withArchived(List<T> rows, int pageSize, HistoryCursor cursor, Function<T, LocalDate> date,
+            Function<T, Long> id, BiFunction<HistoryCursor, Integer, List<T>> archived) {
+        if (rows.size() > pageSize || archiveService.hotFrom() == null) {
+            return rows;
+        }
+        HistoryCursor after = cursor;
+        if (!rows.isEmpty()) {
+            T last = rows.get(rows.size() - 1);
+            after = new HistoryCursor(date.apply(last), id.apply(last));
+        }
+        rows.addAll(archived.apply(after, pageSize + 1 - rows.size()));
+        return rows;
+    }
+
+    private int pageSize(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return defaultPageSize;
+        }
+        return Math.min(requested, maxPageSize);
+    }
+
+    /**
+     * Write redemptions matching the optional filters to the output stream,
+     * either as one JSON array or as NDJSON (one object per line). Rows come
+     * from a JPA stream and are detached once written, so memory use does not
+     * grow with the number of redemptions. When the range reaches into
+     * archived months, those are written first, one segment block at a time.
+     */
+    @Transactional(readOnly = true)
+    public void exportRedemptions(Long userId, LocalDate from, LocalDate to, boolean ndjson, OutputStream out)
+            throws IOException {
+        replicaLagGuard.pinIfRecentWrite(userId);
+        try (Stream<Redemption> redemptions = redemptionRepository.streamForExport(userId, from, to);
+                JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            // The caller owns the response stream
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (ndjson) {
+                json.setRootValueSeparator(new SerializedString("\n"));
+            } else {
+                json.writeStartArray();
             }
+            LocalDate hotFrom = archiveService.hotFrom();
+            if (hotFrom != null && (from == null || from.isBefore(hotFrom))) {
+                archiveService.forEachRedemption(userId, from, to, json::writeObject);
+            }
+            Iterator<Redemption> it = redemptions.iterator();
+            while (it.hasNext()) {
+                Redemption redemption = it.next();
+                if (hotFrom == null || redemption.getDate() == null || !redemption.getDate().isBefore(hotFrom)) {
+                    json.writeObject(redemption);
+                }
+                entityManager.detach(redemption);
+            }
+            if (ndjson) {
+                json.writeRaw('\n');
+            } else {
+                json.writeEndArray();
+            }
+        }
+    }
 
-            // Forward all REDEMPTION transactions to fraud detection.
-            // Fraud_MS will apply the configured rules (Option A) and decide risk levels.
-            // Send to Fraud Detection Service
-            FraudTransactionRequest request = new FraudTransactionRequest();
-            request.setExternalId(transaction.getExternalId());
-            request.setAccountId("ACC-" + transaction.getUserId());
-            request.setType(transaction.getType());
-            request.setPointsEarned(transaction.getPointsEarned());
-            request.setPointsRedeemed(transaction.getPointsRedeemed());
-            request.setDate(transaction.getDate());
-            request.setNote(transaction.getNote());
-            request.setUserId(transaction.getUserId());
-
-            fraudDetectionClient.sendTransactionForFraudCheck(request);
-        } catch (Exception e) {
-            // Log error but don't fail the transaction
-            System.err.println("Failed to send transaction to fraud detection: " + e.getMessage());
+    /// Total number of redemptions in the system (for admin KPIs), archived months included
+    @Transactional(readOnly = true)
+    public long countRedemptions() {
+        return redemptionRepository.count() + archiveService.archivedRedemptions();
+    }
+
+    /**
+     * Publish the transaction to the outbox in the same database transaction,
+     * so the fraud check is sent if and only if the redemption commits, and
+     * survives restarts and Fraud_MS outages. The OutboxRelay delivers it.
+     */
+    private void sendToFraudDetection(Transaction transaction) {
+        // Only send REDEMPTIONS to fraud detection, not CLAIMS
+        // Claims are just earning points - no fraud risk there
+        if (!"REDEMPTION".equals(transaction.getType())) {
+            return; // Skip fraud check for CLAIM transactions
         }
+        outboxPublisher.publish(transaction.getType(), transaction.getUserId(), transaction);
     }
 }
@@ -0,0 +1,174 @@
+package com.cts.service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.cts.entity.CustomerProfile;
+import com.cts.repository.CustomerProfilerepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Near cache of CustomerProfile rows by userId for the read paths (profile
+ * lookups and the existence checks of the history endpoints). Bounded by
+ * max-size and expired ttl-ms after the last write.
+ *
+ * It is write-through: every transaction that changes a profile reports the
+ * user to {@link PointsActivity}, which reads the rows as they will commit and
+ * puts them here once the transaction has committed. Entries only move
+ * forward in @Version, so a read that loaded a row before a concurrent
+ * commit cannot replace the newer copy. Bulk SQL that leaves the version alone
+ * invalidates the users after it commits instead; every read takes a
+ * {@link #stamp()} before loading, and a put whose stamp predates an
+ * invalidation drops the entry rather than caching what may be the old row.
+ * Entries are copies; callers never share an instance with the cache.
+ *
+ * Changes made by another CustomerMs instance are only seen after ttl-ms, so
+ * the cache is off unless profiles.cache.enabled is set.
+ */
+@Component
+public class ProfileCache implements MeterBinder {
+
+    @Value("${profiles.cache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${profiles.cache.max-size:100000}")
+    private long maxSize;
+
+    @Value("${profiles.cache.ttl-ms:30000}")
+    private long ttlMs;
+
+    @Value("${datasource.replica.enabled:false}")
+    private boolean replicaReads;
+
+    @Autowired
+    private CustomerProfilerepository custrepo;
+
+    private Cache<Long, CustomerProfile> cache;
+
+    // Advanced by every invalidation, before the entries are dropped
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * The user's profile, from memory when cached.
+     *
+     * @return a copy the caller may modify, or null if the user has none
+     */
+    public CustomerProfile get(Long userId) {
+        if (!enabled) {
+            return custrepo.findByUserId(userId);
+        }
+        CustomerProfile cached = cache.getIfPresent(userId);
+        if (cached != null) {
+            return copyOf(cached);
+        }
+        long stamp = stamp();
+        CustomerProfile loaded = custrepo.findByUserId(userId);
+        // Read-only transactions may read a lagging replica; only cache primary reads
+        boolean fromReplica = replicaReads && TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        if (loaded != null && !fromReplica) {
+            put(loaded, stamp);
+        }
+        return loaded;
+    }
+
+    /**
+     * Take before reading a profile that will be passed to {@link #put}.
+     */
+    public long stamp() {
+        return invalidations.get();
+    }
+
+    /**
+     * Store the committed state of a profile unless a newer version is cached.
+     * If an invalidation happened since the stamp was taken, the row may
+     * predate it, so the user's entry is dropped instead.
+     */
+    public void put(CustomerProfile profile, long stamp) {
+        if (!enabled) {
+            return;
+        }
+        cache.asMap().compute(profile.getUserId(), (userId, cached) -> {
+            if (invalidations.get() != stamp) {
+                return null;
+            }
+            return cached == null || profile.getVersion() >= cached.getVersion() ? copyOf(profile) : cached;
+        });
+    }
+
+    /**
+     * Drop users whose rows were changed without a version bump (bulk SQL).
+     * Call after the change has committed.
+     */
+    public void invalidate(Collection<Long> userIds) {
+        if (enabled) {
+            invalidations.incrementAndGet();
+            cache.invalidateAll(userIds);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("size", cache.estimatedSize());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRatio", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        return result;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        // cache.gets{result=hit|miss}, cache.evictions, cache.size, ... tagged cache=customerProfiles
+        CaffeineCacheMetrics.monitor(registry, cache, "customerProfiles");
+        Gauge.builder("customerms.profile.cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .description("Share of profile reads served from the near cache")
+                .register(registry);
+    }
+
+    private static CustomerProfile copyOf(CustomerProfile profile) {
+        CustomerProfile copy = new CustomerProfile();
+        copy.setId(profile.getId());
+        copy.setUserId(profile.getUserId());
+        copy.setCustomerName(profile.getCustomerName());
+        copy.setLoyaltyTier(profile.getLoyaltyTier());
+        copy.setPointsBalance(profile.getPointsBalance());
+        copy.setLifetimePoints(profile.getLifetimePoints());
+        copy.setNextExpiry(profile.getNextExpiry());
+        copy.setPreferences(profile.getPreferences());
+        copy.setCommunication(profile.getCommunication());
+        copy.setVersion(profile.getVersion());
+        return copy;
+    }
+}
@@ -0,0 +1,52 @@
+package com.cts.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Loyalty tier thresholds on lifetime points, from tiers.* in
+ * application.properties. After changing them, run the bulk re-tier job
+ * (POST /api/users/admin/tiers/recalculate) so existing members move too;
+ * profiles that change in the meantime are re-tiered as they are updated.
+ */
+@Component
+public class TierPolicy {
+
+    @Value("${tiers.silver:1000}")
+    private int silver = 1000;
+
+    @Value("${tiers.gold:5000}")
+    private int gold = 5000;
+
+    @Value("${tiers.platinum:10000}")
+    private int platinum = 10000;
+
+    @PostConstruct
+    void validate() {
+        if (!(0 < silver && silver < gold && gold < platinum)) {
+            throw new IllegalStateException("Tier thresholds must increase: silver=" + silver + ", gold=" + gold
+                    + ", platinum=" + platinum);
+        }
+    }
+
+    public String tierFor(int lifetime) {
+        if (lifetime >= platinum) {
+            return "PLATINUM";
+        } else if (lifetime >= gold) {
+            return "GOLD";
+        } else if (lifetime >= silver) {
+            return "SILVER";
+        }
+        return "BRONZE";
+    }
+
+    /**
+     * The thresholds as one string; a re-tier job only resumes a checkpoint
+     * taken under the same thresholds.
+     */
+    public String describe() {
+        return "SILVER>=" + silver + ",GOLD>=" + gold + ",PLATINUM>=" + platinum;
+    }
+}
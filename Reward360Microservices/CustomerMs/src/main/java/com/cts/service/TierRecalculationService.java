@@ -0,0 +1,243 @@
+package com.cts.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cts.config.WorkerThreads;
+import com.cts.entity.TierJob;
+import com.cts.repository.CustomerProfilerepository;
+import com.cts.repository.TierJobRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Bulk re-tier of every CustomerProfile after the {@link TierPolicy}
+ * thresholds change. Profiles are read in primary-key order in chunks of
+ * chunk-size (keyset, so each read is one short index range scan); new tiers
+ * are computed in parallel on a fork-join pool; and only the rows whose tier
+ * changed are written, with one JDBC batch per chunk. Each chunk commits
+ * together with the job checkpoint, so a stopped, failed or crashed run
+ * resumes after the last committed chunk when started again with the same
+ * thresholds.
+ *
+ * Online traffic is not blocked: a chunk transaction only locks the changed
+ * rows, for as long as one batch UPDATE takes. An update only applies while
+ * lifetime_points still matches what was read; a profile that changed in the
+ * meantime has already been re-tiered by its own update. The version column
+ * is left alone, so concurrent profile updates are not forced to retry.
+ */
+@Service
+public class TierRecalculationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TierRecalculationService.class);
+
+    private static final String SELECT_CHUNK = "SELECT id, user_id, lifetime_points, loyalty_tier "
+            + "FROM customer_profile WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String UPDATE_PROFILE = "UPDATE customer_profile SET loyalty_tier = ? "
+            + "WHERE id = ? AND lifetime_points = ?";
+    // Keep the dashboard read model in step
+    private static final String UPDATE_SUMMARY = "UPDATE customer_summary SET loyalty_tier = ? "
+            + "WHERE user_id = ? AND lifetime_points = ?";
+
+    @Value("${tiers.recalculation.chunk-size:5000}")
+    private int chunkSize;
+
+    // 0 means one per core
+    @Value("${tiers.recalculation.parallelism:0}")
+    private int parallelism;
+
+    // Pause between chunks, to leave database headroom for online traffic
+    @Value("${tiers.recalculation.pause-ms:0}")
+    private long pauseMs;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Autowired
+    private TierPolicy tierPolicy;
+
+    @Autowired
+    private TierJobRepository tierJobRepository;
+
+    @Autowired
+    private CustomerProfilerepository custrepo;
+
+    @Autowired
+    private ProfileCache profileCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private ForkJoinPool pool;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean stopRequested;
+    private volatile Thread runner;
+
+    private record Row(long id, long userId, int lifetime, String tier) {
+    }
+
+    private record Change(long id, long userId, int lifetime, String tier) {
+    }
+
+    @PostConstruct
+    void init() {
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Start a run in the background, or resume the latest unfinished one if
+     * it was taken with the current thresholds.
+     *
+     * @return the job being run
+     */
+    public TierJob start() {
+        if (!running.compareAndSet(false, true)) {
+            throw new RuntimeException("A tier recalculation is already running");
+        }
+        try {
+            TierJob job = resumableJob();
+            stopRequested = false;
+            runner = WorkerThreads.start("tier-recalculation", virtualThreads, () -> run(job));
+            return job;
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+    }
+
+    /**
+     * Ask the running job to stop after its current chunk.
+     */
+    public TierJob stop() {
+        stopRequested = true;
+        return getStatus();
+    }
+
+    public TierJob getStatus() {
+        return tierJobRepository.findFirstByOrderByIdDesc();
+    }
+
+    private TierJob resumableJob() {
+        String policy = tierPolicy.describe();
+        TierJob latest = tierJobRepository.findFirstByOrderByIdDesc();
+        boolean unfinished = latest != null && !TierJob.COMPLETED.equals(latest.getStatus())
+                && !TierJob.SUPERSEDED.equals(latest.getStatus());
+        if (unfinished && policy.equals(latest.getPolicy())) {
+            // A RUNNING job here was cut off by a restart
+            latest.setStatus(TierJob.RUNNING);
+            latest.setError(null);
+            latest.setFinishedAt(null);
+            logger.info("Resuming tier recalculation {} after profile id {}", latest.getId(),
+                    latest.getLastProfileId());
+            return tierJobRepository.save(latest);
+        }
+        if (unfinished) {
+            latest.setStatus(TierJob.SUPERSEDED);
+            tierJobRepository.save(latest);
+        }
+        logger.info("Starting tier recalculation with {}", policy);
+        return tierJobRepository.save(new TierJob(policy, custrepo.count()));
+    }
+
+    private void run(TierJob job) {
+        try {
+            while (!stopRequested) {
+                List<Row> rows = jdbcTemplate.query(SELECT_CHUNK,
+                        (rs, i) -> new Row(rs.getLong(1), rs.getLong(2), rs.getInt(3), rs.getString(4)),
+                        job.getLastProfileId(), chunkSize);
+                if (rows.isEmpty()) {
+                    finish(job, TierJob.COMPLETED, null);
+                    return;
+                }
+                List<Change> changes = pool.submit(() -> rows.parallelStream()
+                        .map(this::retier)
+                        .filter(Objects::nonNull)
+                        .toList()).join();
+                transactionTemplate.executeWithoutResult(status -> writeChunk(job, rows, changes));
+                // Committed: the bulk UPDATE leaves versions alone, so drop rather than overwrite
+                // cached profiles; loads that read the old rows meanwhile are not cached either
+                profileCache.invalidate(changes.stream().map(Change::userId).toList());
+                if (pauseMs > 0) {
+                    Thread.sleep(pauseMs);
+                }
+            }
+            finish(job, TierJob.STOPPED, null);
+        } catch (InterruptedException e) {
+            finish(job, TierJob.STOPPED, null);
+        } catch (RuntimeException e) {
+            // The in-memory job may be ahead of a chunk that rolled back; keep the committed checkpoint
+            TierJob committed = tierJobRepository.findById(job.getId()).orElse(job);
+            logger.error("Tier recalculation {} failed after profile id {}", job.getId(),
+                    committed.getLastProfileId(), e);
+            finish(committed, TierJob.FAILED, String.valueOf(e.getMessage()));
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private Change retier(Row row) {
+        String tier = tierPolicy.tierFor(row.lifetime());
+        return tier.equals(row.tier()) ? null : new Change(row.id(), row.userId(), row.lifetime(), tier);
+    }
+
+    // Runs in the chunk transaction: the tier updates and the checkpoint commit together
+    private void writeChunk(TierJob job, List<Row> rows, List<Change> changes) {
+        if (!changes.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_PROFILE, changes, changes.size(), (ps, change) -> {
+                ps.setString(1, change.tier());
+                ps.setLong(2, change.id());
+                ps.setInt(3, change.lifetime());
+            });
+            jdbcTemplate.batchUpdate(UPDATE_SUMMARY, changes, changes.size(), (ps, change) -> {
+                ps.setString(1, change.tier());
+                ps.setLong(2, change.userId());
+                ps.setInt(3, change.lifetime());
+            });
+        }
+        job.setLastProfileId(rows.get(rows.size() - 1).id());
+        job.setScanned(job.getScanned() + rows.size());
+        job.setChanged(job.getChanged() + changes.size());
+        job.setUpdatedAt(LocalDateTime.now());
+        tierJobRepository.save(job);
+    }
+
+    private void finish(TierJob job, String status, String error) {
+        job.setStatus(status);
+        job.setError(error != null && error.length() > 500 ? error.substring(0, 500) : error);
+        job.setUpdatedAt(LocalDateTime.now());
+        job.setFinishedAt(job.getUpdatedAt());
+        try {
+            tierJobRepository.save(job);
+        } catch (RuntimeException e) {
+            logger.error("Failed to record tier recalculation {} as {}", job.getId(), status, e);
+        }
+        logger.info("Tier recalculation {} {}: {} profiles scanned, {} re-tiered", job.getId(), status,
+                job.getScanned(), job.getChanged());
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        stopRequested = true;
+        Thread current = runner;
+        if (current != null) {
+            current.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,150 @@
+package com.cts.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * Closed-loop HTTP load generator used by bench/vt-benchmark.sh. Each client
+ * is a virtual thread that sends a request, waits for the response and sends
+ * the next one, so the number of requests in flight equals the client count.
+ * Prints one CSV line per concurrency level:
+ * mode,clients,requests,errors,throughput/s,p50 ms,p99 ms,max ms
+ *
+ * With a JSON body the requests are POSTs. A {user} in the url is replaced by
+ * each client's own user id, and those users are registered through
+ * /api/users/addcustomer first, so clients do not contend for one profile.
+ *
+ * Usage: LoadGenerator &lt;url&gt; &lt;mode label&gt; [clients,clients,...] [seconds] [warmup seconds] [json body]
+ */
+public class LoadGenerator {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: LoadGenerator <url> <mode> [1000,5000,10000] [30] [10] [json body]");
+            System.exit(1);
+        }
+        String url = args[0];
+        String mode = args[1];
+        int[] levels = Arrays.stream((args.length > 2 ? args[2] : "1000,5000,10000").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+        Duration duration = Duration.ofSeconds(args.length > 3 ? Long.parseLong(args[3]) : 30);
+        Duration warmup = Duration.ofSeconds(args.length > 4 ? Long.parseLong(args[4]) : 10);
+        String body = args.length > 5 ? args[5] : null;
+        // Fresh users per run, so a second run against the same database registers new ones
+        long firstUser = System.currentTimeMillis() * 100_000L;
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .executor(executor)
+                    .build();
+            if (url.contains("{user}")) {
+                register(client, URI.create(url.replace("{user}", "0")).resolve("/api/users/addcustomer"), firstUser,
+                        Arrays.stream(levels).max().orElse(0));
+            }
+            IntFunction<HttpRequest> requests = c -> request(url.replace("{user}", Long.toString(firstUser + c)),
+                    body);
+            System.out.println("mode,clients,requests,errors,throughput_per_s,p50_ms,p99_ms,max_ms");
+            for (int clients : levels) {
+                run(client, requests, clients, warmup);
+                Result result = run(client, requests, clients, duration);
+                System.out.printf("%s,%d,%d,%d,%.0f,%.1f,%.1f,%.1f%n", mode, clients, result.requests(),
+                        result.errors(), result.requests() / (duration.toMillis() / 1000.0),
+                        result.percentile(0.50), result.percentile(0.99), result.percentile(1.0));
+            }
+        }
+    }
+
+    private record Result(long[] latencies, long requests, long errors) {
+        double percentile(double p) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(p * latencies.length) - 1;
+            return latencies[Math.max(0, index)] / 1e6;
+        }
+    }
+
+    private static HttpRequest request(String url, String body) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(60));
+        return body == null ? builder.GET().build()
+                : builder.header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+
+    private static void register(HttpClient client, URI uri, long firstUser, int users) throws Exception {
+        for (int c = 0; c < users; c++) {
+            long userId = firstUser + c;
+            HttpResponse<Void> response = client.send(
+                    request(uri.toString(), "{\"userId\":" + userId + ",\"customerName\":\"Bench " + userId + "\"}"),
+                    HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() >= 300) {
+                throw new IllegalStateException("Registering user " + userId + " failed: " + response.statusCode());
+            }
+        }
+    }
+
+    private static Result run(HttpClient client, IntFunction<HttpRequest> requests, int clients, Duration duration)
+            throws InterruptedException {
+        Queue<long[]> perClient = new ConcurrentLinkedQueue<>();
+        AtomicLong errors = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(clients);
+        long deadline = System.nanoTime() + duration.toNanos();
+        for (int c = 0; c < clients; c++) {
+            LatencyBuffer buffer = new LatencyBuffer();
+            HttpRequest request = requests.apply(c);
+            Thread.ofVirtual().start(() -> {
+                try {
+                    while (System.nanoTime() < deadline) {
+                        long started = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() >= 400) {
+                                errors.incrementAndGet();
+                                continue;
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                        buffer.add(System.nanoTime() - started);
+                    }
+                } finally {
+                    perClient.add(buffer.toArray());
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        long[] all = perClient.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Result(all, all.length, errors.get());
+    }
+
+    private static final class LatencyBuffer {
+        private long[] values = new long[256];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package com.cts.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.cts.CustomerMsApplication;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Self-contained load test of CustomerMs. Starts the service in this JVM on
+ * an in-memory H2 database (MySQL mode), with local HTTP stubs standing in
+ * for Promotionservice (offer catalog) and Fraud_MS (outbox deliveries), and
+ * without Eureka. Virtual users then run a closed loop of register, claim,
+ * redeem and history requests in the configured mix, and each operation's
+ * latency is recorded in an HDR histogram.
+ *
+ * Prints throughput and p50/p95/p99/p99.9/max per operation, and writes each
+ * histogram's percentile distribution (.hgrm) to the output directory.
+ *
+ * Usage: LoadHarness [key=value ...]
+ *   users=200                  concurrent virtual users
+ *   duration=60 warmup=10      seconds measured, seconds run before measuring
+ *   mix=register:5,claim:40,redeem:20,history:35
+ *   offers=500                 size of the stubbed offer catalog
+ *   stub-latency-ms=0          delay added by the stubs to every response
+ *   virtual=false              run CustomerMs with the "virtual" profile (virtual threads, JDK Feign client)
+ *   out=bench/load-harness     directory for the .hgrm files
+ * Any other key=value is passed to CustomerMs as a property
+ * (e.g. points.mailbox.enabled=true).
+ */
+public class LoadHarness {
+
+    private static final String[] OPERATIONS = { "register", "claim", "redeem", "history" };
+    // Latencies up to one minute, in microseconds, with three significant digits
+    private static final long MAX_LATENCY_US = TimeUnit.MINUTES.toMicros(1);
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("users", "200");
+        options.put("duration", "60");
+        options.put("warmup", "10");
+        options.put("mix", "register:5,claim:40,redeem:20,history:35");
+        options.put("offers", "500");
+        options.put("stub-latency-ms", "0");
+        options.put("virtual", "false");
+        options.put("out", "bench/load-harness");
+        Map<String, String> appProperties = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                System.err.println("Expected key=value, got: " + arg);
+                System.exit(1);
+            }
+            String key = arg.substring(0, eq);
+            if (options.containsKey(key)) {
+                options.put(key, arg.substring(eq + 1));
+            } else {
+                appProperties.put(key, arg.substring(eq + 1));
+            }
+        }
+        int users = Integer.parseInt(options.get("users"));
+        int duration = Integer.parseInt(options.get("duration"));
+        int warmup = Integer.parseInt(options.get("warmup"));
+        int[] weights = parseMix(options.get("mix"));
+        int offers = Integer.parseInt(options.get("offers"));
+
+        HttpServer stubs = startStubs(offers, Long.parseLong(options.get("stub-latency-ms")));
+        String stubUrl = "http://localhost:" + stubs.getAddress().getPort();
+        ConfigurableApplicationContext app = null;
+        try {
+            app = startCustomerMs(stubUrl, Boolean.parseBoolean(options.get("virtual")), appProperties);
+            int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+            Driver driver = new Driver("http://localhost:" + port + "/api/users", offers, weights);
+            driver.setUp(users);
+            System.out.printf(Locale.ROOT, "Running %d virtual users: %ds warmup, %ds measured, mix %s%n", users,
+                    warmup, duration, options.get("mix"));
+            driver.run(users, warmup, duration);
+            driver.report(duration, Path.of(options.get("out")), System.out);
+        } finally {
+            if (app != null) {
+                app.close();
+            }
+            stubs.stop(0);
+        }
+    }
+
+    private static int[] parseMix(String mix) {
+        int[] weights = new int[OPERATIONS.length];
+        for (String part : mix.split(",")) {
+            String[] kv = part.trim().split(":");
+            int index = List.of(OPERATIONS).indexOf(kv[0]);
+            if (index < 0 || kv.length != 2) {
+                throw new IllegalArgumentException("Unknown mix entry " + part + ", expected one of "
+                        + String.join("/", OPERATIONS) + " with a weight");
+            }
+            weights[index] = Integer.parseInt(kv[1]);
+        }
+        return weights;
+    }
+
+    /**
+     * Promotionservice and Fraud_MS on one local port.
+     */
+    private static HttpServer startStubs(int offers, long latencyMs) throws IOException {
+        StringBuilder catalog = new StringBuilder("[");
+        for (int i = 1; i <= offers; i++) {
+            if (i > 1) {
+                catalog.append(',');
+            }
+            catalog.append(offerJson(i));
+        }
+        byte[] catalogJson = catalog.append(']').toString().getBytes(StandardCharsets.UTF_8);
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/api/promotions/promotions", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            String id = path.substring("/api/promotions/promotions".length()).replace("/", "");
+            respond(exchange, latencyMs, 200,
+                    id.isEmpty() ? catalogJson : offerJson(Long.parseLong(id)).getBytes(StandardCharsets.UTF_8));
+        });
+        server.createContext("/api/v1/transactions", exchange -> {
+            try (InputStream body = exchange.getRequestBody()) {
+                body.readAllBytes();
+            }
+            respond(exchange, latencyMs, 200, new byte[0]);
+        });
+        server.start();
+        return server;
+    }
+
+    // Cheap offers for every tier, so redemptions rarely run out of points
+    private static String offerJson(long id) {
+        return "{\"id\":" + id + ",\"title\":\"Offer " + id + "\",\"category\":\"Dining\","
+                + "\"description\":\"Load test offer\",\"costPoints\":" + (10 + id % 10 * 5)
+                + ",\"tierLevel\":\"All\",\"imageUrl\":\"https://cdn.example.com/" + id + ".png\",\"active\":true}";
+    }
+
+    private static void respond(HttpExchange exchange, long latencyMs, int status, byte[] body)
+            throws IOException {
+        try {
+            if (latencyMs > 0) {
+                Thread.sleep(latencyMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            exchange.getResponseBody().write(body);
+        }
+        exchange.close();
+    }
+
+    private static ConfigurableApplicationContext startCustomerMs(String stubUrl, boolean virtual,
+            Map<String, String> overrides) {
+        // Devtools would restart the context in another class loader
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        // Passed as command-line arguments, so they override application.properties
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("spring.datasource.url", "jdbc:h2:mem:loadharness;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE");
+        properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.jpa.properties.hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        properties.put("spring.jpa.hibernate.ddl-auto", "create-drop");
+        properties.put("spring.jpa.show-sql", "false");
+        properties.put("eureka.client.enabled", "false");
+        properties.put("spring.cloud.openfeign.client.config[Promotionservice].url", stubUrl);
+        properties.put("spring.cloud.openfeign.client.config[FRAUD-DETECTION-SERVICE].url", stubUrl);
+        properties.put("points.expiry.enabled", "false");
+        properties.put("ids.node-id", "0");
+        properties.put("ids.state-dir", "target/load-harness-ids");
+        properties.put("spring.threads.virtual.enabled", String.valueOf(virtual));
+        if (virtual) {
+            properties.put("spring.profiles.active", "virtual");
+        }
+        properties.put("logging.level.root", "WARN");
+        properties.putAll(overrides);
+        List<String> args = new ArrayList<>();
+        properties.forEach((key, value) -> args.add("--" + key + "=" + value));
+        return new SpringApplicationBuilder(CustomerMsApplication.class).run(args.toArray(String[]::new));
+    }
+
+    /**
+     * The virtual users and their histograms.
+     */
+    private static final class Driver {
+        private final String baseUrl;
+        private final int offers;
+        private final int[] weights;
+        private final int totalWeight;
+        private final HttpClient client;
+        private final Recorder[] recorders = new Recorder[OPERATIONS.length];
+        private final AtomicLong[] errors = new AtomicLong[OPERATIONS.length];
+        private final AtomicLong nextUserId = new AtomicLong(1_000_000);
+        private final AtomicLong nextKey = new AtomicLong();
+        private volatile boolean measuring;
+        private volatile boolean stopped;
+
+        Driver(String baseUrl, int offers, int[] weights) {
+            this.baseUrl = baseUrl;
+            this.offers = offers;
+            this.weights = weights;
+            int total = 0;
+            for (int weight : weights) {
+                total += weight;
+            }
+            if (total <= 0) {
+                throw new IllegalArgumentException("The mix needs at least one positive weight");
+            }
+            this.totalWeight = total;
+            this.client = HttpClient.newBuilder()
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            for (int i = 0; i < OPERATIONS.length; i++) {
+                recorders[i] = new Recorder(MAX_LATENCY_US, 3);
+                errors[i] = new AtomicLong();
+            }
+        }
+
+        /**
+         * Register one user per virtual user and give it points to redeem
+         * (not measured).
+         */
+        void setUp(int users) throws Exception {
+            try (ExecutorService setup = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < users; i++) {
+                    long userId = i + 1;
+                    setup.submit(() -> {
+                        send(register(userId));
+                        send(claim(userId, 100_000));
+                        return null;
+                    });
+                }
+            }
+        }
+
+        void run(int users, int warmup, int duration) throws InterruptedException {
+            List<Thread> threads = new ArrayList<>(users);
+            for (int i = 0; i < users; i++) {
+                long userId = i + 1;
+                threads.add(Thread.ofVirtual().name("virtual-user-" + userId).start(() -> loop(userId)));
+            }
+            Thread.sleep(TimeUnit.SECONDS.toMillis(warmup));
+            for (Recorder recorder : recorders) {
+                recorder.reset();
+            }
+            for (AtomicLong count : errors) {
+                count.set(0);
+            }
+            measuring = true;
+            Thread.sleep(TimeUnit.SECONDS.toMillis(duration));
+            measuring = false;
+            stopped = true;
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+
+        private void loop(long userId) {
+            SplittableRandom random = new SplittableRandom(userId);
+            while (!stopped) {
+                int operation = pick(random.nextInt(totalWeight));
+                HttpRequest request = switch (operation) {
+                    case 0 -> register(nextUserId.incrementAndGet());
+                    case 1 -> claim(userId, 10 + random.nextInt(90));
+                    case 2 -> redeem(userId, 1 + random.nextInt(offers));
+                    default -> history(userId);
+                };
+                long start = System.nanoTime();
+                boolean ok;
+                try {
+                    ok = send(request);
+                } catch (Exception e) {
+                    ok = false;
+                }
+                long latencyUs = (System.nanoTime() - start) / 1000;
+                if (measuring) {
+                    recorders[operation].recordValue(Math.min(latencyUs, MAX_LATENCY_US));
+                    if (!ok) {
+                        errors[operation].incrementAndGet();
+                    }
+                }
+            }
+        }
+
+        private int pick(int roll) {
+            for (int i = 0; i < weights.length; i++) {
+                roll -= weights[i];
+                if (roll < 0) {
+                    return i;
+                }
+            }
+            return weights.length - 1;
+        }
+
+        private boolean send(HttpRequest request) throws IOException, InterruptedException {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() < 300;
+        }
+
+        private HttpRequest register(long userId) {
+            return post("/addcustomer", "{\"userId\":" + userId + ",\"customerName\":\"Load " + userId + "\"}");
+        }
+
+        // The fields claimOffer reads; activationcode is never checked
+        private HttpRequest claim(long userId, int points) {
+            return post("/claim/user/" + userId, "{\"note\":\"Load test\",\"points\":" + points + "}");
+        }
+
+        private HttpRequest redeem(long userId, long offerId) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/redeem/offer/" + offerId + "/user/" + userId))
+                    .header("Content-Type", "application/json")
+                    .header("Idempotency-Key", "load-" + nextKey.incrementAndGet())
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"offerId\":" + offerId + ",\"store\":\"Online\"}"))
+                    .timeout(Duration.ofSeconds(60))
+                    .build();
+        }
+
+        private HttpRequest history(long userId) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/transactions/user/" + userId + "/page?size=20"))
+                    .timeout(Duration.ofSeconds(60))
+                    .GET()
+                    .build();
+        }
+
+        private HttpRequest post(String path, String json) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(json))
+                    .timeout(Duration.ofSeconds(60))
+                    .build();
+        }
+
+        void report(int duration, Path out, PrintStream console) throws IOException {
+            Files.createDirectories(out);
+            console.println("operation,requests,errors,throughput/s,p50 ms,p95 ms,p99 ms,p99.9 ms,max ms");
+            Histogram total = new Histogram(MAX_LATENCY_US, 3);
+            long totalErrors = 0;
+            for (int i = 0; i < OPERATIONS.length; i++) {
+                Histogram histogram = recorders[i].getIntervalHistogram();
+                total.add(histogram);
+                totalErrors += errors[i].get();
+                printLine(console, OPERATIONS[i], histogram, errors[i].get(), duration);
+                writeHgrm(out.resolve(OPERATIONS[i] + ".hgrm"), histogram);
+            }
+            printLine(console, "all", total, totalErrors, duration);
+            writeHgrm(out.resolve("all.hgrm"), total);
+            console.println("Percentile distributions written to " + out.toAbsolutePath());
+        }
+
+        private static void printLine(PrintStream console, String operation, Histogram histogram, long errors,
+                int duration) {
+            console.printf(Locale.ROOT, "%s,%d,%d,%.1f,%.2f,%.2f,%.2f,%.2f,%.2f%n", operation,
+                    histogram.getTotalCount(), errors, (double) histogram.getTotalCount() / duration,
+                    histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(95) / 1000.0,
+                    histogram.getValueAtPercentile(99) / 1000.0, histogram.getValueAtPercentile(99.9) / 1000.0,
+                    histogram.getMaxValue() / 1000.0);
+        }
+
+        // Values in milliseconds, loadable in the HdrHistogram plotter
+        private static void writeHgrm(Path file, Histogram histogram) throws IOException {
+            try (PrintStream stream = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8)) {
+                histogram.outputPercentileDistribution(stream, 1000.0);
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.cts.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Two embedded databases stand in for the primary and the replica; each
+ * holds one marker row naming it, so a query shows where it was routed.
+ */
+public class ReadWriteRoutingDataSourceTest {
+
+    private HikariDataSource primary;
+    private HikariDataSource replica;
+    private ReplicaLagGuard guard;
+    private SimpleMeterRegistry registry;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate writes;
+    private TransactionTemplate reads;
+
+    @BeforeEach
+    void setUp() {
+        primary = database(ReadWriteRoutingDataSource.PRIMARY);
+        replica = database(ReadWriteRoutingDataSource.REPLICA);
+        guard = new ReplicaLagGuard();
+        ReflectionTestUtils.setField(guard, "enabled", true);
+        ReflectionTestUtils.setField(guard, "readYourWritesMs", 60_000L);
+        ReflectionTestUtils.setField(guard, "maxLagSeconds", 2L);
+        ReflectionTestUtils.setField(guard, "replicaDataSource", replica);
+        registry = new SimpleMeterRegistry();
+
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(guard, registry);
+        routing.setTargetDataSources(Map.of(ReadWriteRoutingDataSource.PRIMARY, primary,
+                ReadWriteRoutingDataSource.REPLICA, replica));
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routing);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        writes = new TransactionTemplate(transactionManager);
+        reads = new TransactionTemplate(transactionManager);
+        reads.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        primary.close();
+        replica.close();
+    }
+
+    @Test
+    public void readOnlyTransactionsUseTheReplica() {
+        assertEquals("replica", reads.execute(status -> marker()));
+        assertEquals("primary", writes.execute(status -> marker()));
+        assertEquals("primary", marker()); // No transaction
+        assertTrue(registry.counter("customerms.datasource.routed", "target", "replica", "reason", "read")
+                .count() >= 1);
+    }
+
+    @Test
+    public void recentWritersAndALaggingReplicaReadFromThePrimary() {
+        guard.recordWrites(List.of(42L));
+        assertEquals("primary", reads.execute(status -> {
+            guard.pinIfRecentWrite(42L);
+            return marker();
+        }));
+        assertEquals("replica", reads.execute(status -> {
+            guard.pinIfRecentWrite(7L);
+            return marker();
+        }));
+
+        ReflectionTestUtils.setField(guard, "lagQuery", "SELECT 30 AS Seconds_Behind_Source");
+        guard.checkLag();
+        assertEquals("primary", reads.execute(status -> marker()));
+        assertEquals(1, registry.counter("customerms.datasource.routed", "target", "primary",
+                "reason", "replica-lag").count());
+
+        ReflectionTestUtils.setField(guard, "lagQuery", "SELECT 1 AS Seconds_Behind_Source");
+        guard.checkLag();
+        assertEquals("replica", reads.execute(status -> marker()));
+    }
+
+    private String marker() {
+        return jdbcTemplate.queryForObject("SELECT name FROM marker", String.class);
+    }
+
+    private static HikariDataSource database(String name) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:routing-" + name);
+        dataSource.setUsername("sa");
+        dataSource.setPassword("");
+        dataSource.setPoolName(name);
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE marker (name VARCHAR(20))");
+        jdbc.update("INSERT INTO marker VALUES (?)", name);
+        return dataSource;
+    }
+}
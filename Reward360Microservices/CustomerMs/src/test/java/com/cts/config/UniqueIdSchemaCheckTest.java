@@ -0,0 +1,68 @@
+package com.cts.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Tables created without the unique constraints, as on a database that
+ * ddl-auto=update could not migrate because of duplicate ids.
+ */
+@JdbcTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:uniqueids;MODE=MySQL;DATABASE_TO_UPPER=FALSE;"
+                + "CASE_INSENSITIVE_IDENTIFIERS=FALSE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "ids.unique-check.enabled=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(UniqueIdSchemaCheck.class)
+public class UniqueIdSchemaCheckTest {
+
+    @Autowired
+    private UniqueIdSchemaCheck check;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS transaction");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS redemption");
+        jdbcTemplate.execute("CREATE TABLE transaction (id BIGINT PRIMARY KEY, external_id VARCHAR(255))");
+        jdbcTemplate.execute("CREATE TABLE redemption (id BIGINT PRIMARY KEY, confirmation_code VARCHAR(255))");
+        jdbcTemplate.update("INSERT INTO transaction VALUES (1, 'CLM-1712'), (2, 'CLM-1712'), (3, 'CLM-1713'),"
+                + " (4, 'CLM-1712'), (5, NULL), (6, NULL)");
+        jdbcTemplate.update("INSERT INTO redemption VALUES (1, 'RED-1'), (2, 'RED-2')");
+    }
+
+    @Test
+    public void duplicatesAreRenamedAndTheConstraintIsAdded() {
+        check.ensureUnique("transaction", "external_id", "uk_transaction_external_id");
+        check.ensureUnique("redemption", "confirmation_code", "uk_redemption_confirmation_code");
+
+        List<String> ids = jdbcTemplate.queryForList("SELECT external_id FROM transaction ORDER BY id", String.class);
+        assertEquals(Arrays.asList("CLM-1712", "CLM-1712-2", "CLM-1713", "CLM-1712-4", null, null), ids);
+        assertThrows(DataIntegrityViolationException.class,
+                () -> jdbcTemplate.update("INSERT INTO transaction VALUES (7, 'CLM-1713')"));
+        assertThrows(DataIntegrityViolationException.class,
+                () -> jdbcTemplate.update("INSERT INTO redemption VALUES (3, 'RED-1')"));
+
+        // Nothing to do once the constraint is there
+        check.ensureUnique("transaction", "external_id", "uk_transaction_external_id");
+    }
+}
@@ -0,0 +1,62 @@
+package com.cts.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs redemptions against one user from many threads at once, for the
+ * contention tests.
+ */
+final class Contention {
+
+    interface Redeem {
+        boolean redeem();
+    }
+
+    record Result(int accepted, int failed, long elapsedNanos) {
+    }
+
+    private Contention() {
+    }
+
+    /**
+     * Start all threads together, each trying attempts redemptions. Fails if
+     * any worker threw or the run did not finish within two minutes.
+     */
+    static Result run(int threads, int attempts, Redeem redeem) throws Exception {
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            workers.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < attempts; i++) {
+                    if (redeem.redeem()) {
+                        accepted.incrementAndGet();
+                    } else {
+                        failed.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        long started = System.nanoTime();
+        start.countDown();
+        try {
+            for (Future<?> worker : workers) {
+                worker.get(2, TimeUnit.MINUTES); // Rethrows what the worker threw
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return new Result(accepted.get(), failed.get(), System.nanoTime() - started);
+    }
+}
@@ -0,0 +1,157 @@
+package com.cts.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cts.entity.CustomerProfile;
+import com.cts.service.OptimisticRetry;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * Contention benchmark: 64 threads redeem from one userId until the balance
+ * runs out, comparing the previous read-check-save code, read-check-save with
+ * the @Version check and retry, and the single-statement conditional debit.
+ * Logs throughput and how many charged points were never deducted.
+ *
+ * Tagged "benchmark", so it only runs with -Pbenchmark:
+ * mvn test -Pbenchmark -Dtest=RedemptionContentionBenchmarkTest
+ *
+ * Runs on in-memory H2, so the absolute numbers only indicate the relative
+ * cost. The correctness checks are in RedemptionContentionTest.
+ */
+@Tag("benchmark")
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:contention-benchmark;LOCK_TIMEOUT=30000;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.datasource.hikari.maximum-pool-size=64"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class RedemptionContentionBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedemptionContentionBenchmarkTest.class);
+
+    private static final long USER_ID = 42L;
+    private static final int THREADS = 64;
+    private static final int ATTEMPTS_PER_THREAD = 50;
+    private static final int COST = 10;
+    // Enough for a third of the attempts
+    private static final int INITIAL_BALANCE = THREADS * ATTEMPTS_PER_THREAD / 3 * COST;
+
+    @Configuration
+    @EntityScan(basePackageClasses = CustomerProfile.class)
+    @EnableJpaRepositories(basePackageClasses = CustomerProfilerepository.class)
+    static class Config {
+    }
+
+    @Autowired
+    private CustomerProfilerepository custrepo;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private OptimisticRetry optimisticRetry;
+
+    @BeforeEach
+    void resetProfile() {
+        optimisticRetry = new OptimisticRetry();
+        ReflectionTestUtils.setField(optimisticRetry, "maxAttempts", 10);
+        ReflectionTestUtils.setField(optimisticRetry, "backoffMs", 1L);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            CustomerProfile profile = custrepo.findByUserId(USER_ID);
+            if (profile == null) {
+                profile = new CustomerProfile();
+                profile.setUserId(USER_ID);
+                profile.setLoyaltyTier("GOLD");
+            }
+            profile.setPointsBalance(INITIAL_BALANCE);
+            profile.setLifetimePoints(INITIAL_BALANCE);
+            custrepo.save(profile);
+        });
+    }
+
+    @Test
+    public void previousReadCheckSave() throws Exception {
+        // What redeemOffer did before: load, check in Java, write the new balance back
+        // without a version check. Concurrent redemptions overwrite each other's deduction.
+        Contention.Result result = run("read-check-save (previous code)",
+                () -> transactionTemplate.execute(status -> {
+                    CustomerProfile profile = custrepo.findByUserId(USER_ID);
+                    if (profile.getPointsBalance() < COST) {
+                        return false;
+                    }
+                    entityManager
+                            .createQuery("UPDATE CustomerProfile c SET c.pointsBalance = :balance WHERE c.userId = :id")
+                            .setParameter("balance", profile.getPointsBalance() - COST)
+                            .setParameter("id", USER_ID)
+                            .executeUpdate();
+                    return true;
+                }));
+        assertTrue(result.accepted() > 0);
+    }
+
+    @Test
+    public void versionedReadCheckSaveWithRetry() throws Exception {
+        Contention.Result result = run("read-check-save + @Version + retry", () -> {
+            try {
+                return optimisticRetry.execute(() -> transactionTemplate.execute(status -> {
+                    CustomerProfile profile = custrepo.findByUserId(USER_ID);
+                    if (profile.getPointsBalance() < COST) {
+                        return false;
+                    }
+                    profile.setPointsBalance(profile.getPointsBalance() - COST);
+                    custrepo.saveAndFlush(profile);
+                    return true;
+                }));
+            } catch (RuntimeException e) {
+                return false; // Retries exhausted
+            }
+        });
+        assertEquals(result.accepted() * COST, INITIAL_BALANCE - balance());
+    }
+
+    @Test
+    public void conditionalDebit() throws Exception {
+        Contention.Result result = run("conditional UPDATE debit",
+                () -> transactionTemplate.execute(status -> custrepo.debitIfSufficient(USER_ID, COST) == 1));
+        assertEquals(INITIAL_BALANCE / COST, result.accepted());
+    }
+
+    private Contention.Result run(String name, Contention.Redeem redeem) throws Exception {
+        Contention.Result result = Contention.run(THREADS, ATTEMPTS_PER_THREAD, redeem);
+        int deducted = INITIAL_BALANCE - balance();
+        logger.info(String.format("%-36s %8.0f redemptions/s  accepted=%d failed=%d charged=%d deducted=%d", name,
+                (result.accepted() + result.failed()) / (result.elapsedNanos() / 1e9), result.accepted(),
+                result.failed(), result.accepted() * COST, deducted));
+        return result;
+    }
+
+    private int balance() {
+        return custrepo.findByUserId(USER_ID).getPointsBalance();
+    }
+}
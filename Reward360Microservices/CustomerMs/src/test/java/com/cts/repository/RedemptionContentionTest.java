@@ -0,0 +1,108 @@
+package com.cts.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cts.entity.CustomerProfile;
+import com.cts.service.OptimisticRetry;
+
+/**
+ * Concurrent redemptions from one userId never overspend or lose a
+ * deduction, with either the conditional debit or the @Version check and
+ * retry. The throughput comparison is RedemptionContentionBenchmarkTest.
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:contention;LOCK_TIMEOUT=30000;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.datasource.hikari.maximum-pool-size=8"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class RedemptionContentionTest {
+
+    private static final long USER_ID = 42L;
+    private static final int THREADS = 8;
+    private static final int ATTEMPTS_PER_THREAD = 20;
+    private static final int COST = 10;
+    // Enough for a third of the attempts
+    private static final int INITIAL_BALANCE = THREADS * ATTEMPTS_PER_THREAD / 3 * COST;
+
+    @Configuration
+    @EntityScan(basePackageClasses = CustomerProfile.class)
+    @EnableJpaRepositories(basePackageClasses = CustomerProfilerepository.class)
+    static class Config {
+    }
+
+    @Autowired
+    private CustomerProfilerepository custrepo;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private OptimisticRetry optimisticRetry;
+
+    @BeforeEach
+    void resetProfile() {
+        optimisticRetry = new OptimisticRetry();
+        ReflectionTestUtils.setField(optimisticRetry, "maxAttempts", 10);
+        ReflectionTestUtils.setField(optimisticRetry, "backoffMs", 1L);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            CustomerProfile profile = custrepo.findByUserId(USER_ID);
+            if (profile == null) {
+                profile = new CustomerProfile();
+                profile.setUserId(USER_ID);
+                profile.setLoyaltyTier("GOLD");
+            }
+            profile.setPointsBalance(INITIAL_BALANCE);
+            profile.setLifetimePoints(INITIAL_BALANCE);
+            custrepo.save(profile);
+        });
+    }
+
+    @Test
+    public void conditionalDebitNeverOverspends() throws Exception {
+        Contention.Result result = Contention.run(THREADS, ATTEMPTS_PER_THREAD,
+                () -> transactionTemplate.execute(status -> custrepo.debitIfSufficient(USER_ID, COST) == 1));
+
+        assertEquals(INITIAL_BALANCE / COST, result.accepted());
+        assertEquals(0, balance());
+    }
+
+    @Test
+    public void versionedSaveWithRetryDeductsEveryAcceptedRedemption() throws Exception {
+        Contention.Result result = Contention.run(THREADS, ATTEMPTS_PER_THREAD,
+                () -> optimisticRetry.execute(() -> transactionTemplate.execute(status -> {
+                    CustomerProfile profile = custrepo.findByUserId(USER_ID);
+                    if (profile.getPointsBalance() < COST) {
+                        return false;
+                    }
+                    profile.setPointsBalance(profile.getPointsBalance() - COST);
+                    custrepo.saveAndFlush(profile);
+                    return true;
+                })));
+
+        assertEquals(INITIAL_BALANCE / COST, result.accepted());
+        assertEquals(0, balance());
+    }
+
+    private int balance() {
+        return custrepo.findByUserId(USER_ID).getPointsBalance();
+    }
+}
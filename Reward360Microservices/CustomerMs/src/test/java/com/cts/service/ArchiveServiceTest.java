@@ -0,0 +1,182 @@
+package com.cts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.cts.entity.ArchivedTotals;
+import com.cts.entity.CustomerProfile;
+import com.cts.entity.Redemption;
+import com.cts.entity.Transaction;
+import com.cts.repository.ArchiveSegmentRepository;
+import com.cts.repository.ArchivedTotalsRepository;
+import com.cts.repository.CustomerProfilerepository;
+import com.cts.repository.RedemptionRepository;
+import com.cts.repository.TransactionRepository;
+
+@DataJpaTest(showSql = false, properties = {
+        // Case-sensitive identifiers, as MySQL treats table names on Linux
+        "spring.datasource.url=jdbc:h2:mem:archive;MODE=MySQL;DATABASE_TO_UPPER=FALSE;"
+                + "CASE_INSENSITIVE_IDENTIFIERS=FALSE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "archive.horizon-months=6",
+        "archive.block-rows=4",
+        "archive.delete-chunk-size=3",
+        "archive.catalog-refresh-ms=0",
+        "archive.fetch-size=5"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(ArchiveService.class)
+public class ArchiveServiceTest {
+
+    @Configuration
+    @EntityScan(basePackageClasses = CustomerProfile.class)
+    @EnableJpaRepositories(basePackageClasses = CustomerProfilerepository.class)
+    static class Config {
+    }
+
+    @TempDir
+    Path dir;
+
+    @Autowired
+    private ArchiveService service;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private RedemptionRepository redemptionRepository;
+
+    @Autowired
+    private ArchiveSegmentRepository segmentRepository;
+
+    @Autowired
+    private ArchivedTotalsRepository archivedTotalsRepository;
+
+    private final LocalDate thisMonth = LocalDate.now().withDayOfMonth(1);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "dir", dir.toString());
+        transactionRepository.deleteAll();
+        redemptionRepository.deleteAll();
+        segmentRepository.deleteAll();
+        archivedTotalsRepository.deleteAll();
+        // Users 1..5: three claims 10 months ago, a redemption 8 months ago, a claim this month
+        List<Transaction> transactions = new ArrayList<>();
+        List<Redemption> redemptions = new ArrayList<>();
+        for (long userId = 1; userId <= 5; userId++) {
+            for (int day = 3; day <= 5; day++) {
+                transactions.add(transaction(userId, "CLAIM", thisMonth.minusMonths(10).withDayOfMonth(day), 100, 0));
+            }
+            transactions.add(transaction(userId, "REDEMPTION", thisMonth.minusMonths(8).plusDays(1), 0, 40));
+            transactions.add(transaction(userId, "CLAIM", thisMonth, 25, 0));
+            redemptions.add(redemption(userId, thisMonth.minusMonths(8).plusDays(1)));
+            redemptions.add(redemption(userId, thisMonth));
+        }
+        transactionRepository.saveAll(transactions);
+        redemptionRepository.saveAll(redemptions);
+    }
+
+    @Test
+    public void oldMonthsMoveToSegmentsAndHistoryStillAddsUp() throws Exception {
+        List<Transaction> before = new ArrayList<>(transactionRepository.findByUserIdOrderByDateDesc(3L));
+        before.sort(Comparator.comparing(Transaction::getDate).thenComparing(Transaction::getId).reversed());
+
+        Map<String, Object> result = service.run();
+
+        assertEquals(3, result.get("segmentsCreated")); // Transaction -10, -8; Redemption -8
+        assertEquals(thisMonth.minusMonths(7), service.hotFrom()); // Month after the last one archived
+        assertEquals(5, transactionRepository.count());
+        assertEquals(5, redemptionRepository.count());
+        assertTrue(Files.exists(dir.resolve("Transaction-" + period(thisMonth.minusMonths(10)) + ".seg")));
+        assertEquals(6, segmentRepository.findAll().stream()
+                .filter(s -> s.getTableName().equals("Transaction")).mapToInt(s -> s.getBlocks()).sum());
+
+        // Hot rows plus archived totals still cover the ledger
+        ArchivedTotals totals = archivedTotalsRepository.findById(3L).orElseThrow();
+        assertEquals(300, totals.getPointsEarned());
+        assertEquals(40, totals.getPointsRedeemed());
+        assertEquals(4, totals.getTransactions());
+        assertEquals(1, totals.getRedemptions());
+        Object[] sums = transactionRepository.sumPoints(3L).get(0);
+        assertEquals(325, ((Number) sums[0]).longValue());
+        assertEquals(40, ((Number) sums[1]).longValue());
+
+        // Archived history reads back newest first, the same rows page by page
+        List<Transaction> archived = service.transactions(3L, null, Integer.MAX_VALUE);
+        List<Transaction> expected = before.subList(1, before.size());
+        assertEquals(expected.stream().map(Transaction::getId).toList(),
+                archived.stream().map(Transaction::getId).toList());
+        assertEquals(expected.get(0).getExternalId(), archived.get(0).getExternalId());
+        assertEquals(100, archived.get(1).getPointsEarned());
+        List<Long> paged = new ArrayList<>();
+        HistoryCursor cursor = new HistoryCursor(before.get(0).getDate(), before.get(0).getId());
+        List<Transaction> page;
+        while (!(page = service.transactions(3L, cursor, 3)).isEmpty()) {
+            page.forEach(t -> paged.add(t.getId()));
+            Transaction last = page.get(page.size() - 1);
+            cursor = new HistoryCursor(last.getDate(), last.getId());
+        }
+        assertEquals(expected.stream().map(Transaction::getId).toList(), paged);
+        assertEquals(1, service.redemptions(3L, null, 10).size());
+        assertEquals(5, service.archivedRedemptions());
+
+        List<Redemption> exported = new ArrayList<>();
+        service.forEachRedemption(null, null, null, exported::add);
+        assertEquals(5, exported.size());
+
+        // Nothing left to archive
+        assertEquals(0, service.run().get("segmentsCreated"));
+    }
+
+    private static int period(LocalDate month) {
+        return month.getYear() * 100 + month.getMonthValue();
+    }
+
+    private static Transaction transaction(Long userId, String type, LocalDate date, int earned, int redeemed) {
+        Transaction transaction = new Transaction();
+        transaction.setUserId(userId);
+        transaction.setType(type);
+        transaction.setDate(date);
+        transaction.setPointsEarned(earned);
+        transaction.setPointsRedeemed(redeemed);
+        transaction.setExternalId(type + "-" + userId + "-" + date);
+        return transaction;
+    }
+
+    private static Redemption redemption(Long userId, LocalDate date) {
+        Redemption redemption = new Redemption();
+        redemption.setUserId(userId);
+        redemption.setDate(date);
+        redemption.setCostPoints(40);
+        redemption.setOfferTitle("Coffee");
+        redemption.setConfirmationCode("C-" + userId + "-" + date);
+        return redemption;
+    }
+}
@@ -0,0 +1,150 @@
+package com.cts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.cts.config.ReplicaLagGuard;
+import com.cts.entity.CustomerProfile;
+import com.cts.entity.Transaction;
+import com.cts.repository.CustomerProfilerepository;
+import com.cts.repository.TransactionRepository;
+
+/**
+ * Runs on H2 with case-sensitive identifiers, as MySQL on Linux treats table
+ * names, so native SQL must use the physical (lower-case) table names.
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:bulkclaims;MODE=MySQL;DATABASE_TO_UPPER=FALSE;"
+                + "CASE_INSENSITIVE_IDENTIFIERS=FALSE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "claims.bulk.chunk-size=3",
+        "ids.node-id=1",
+        "ids.state-dir=target/test-ids",
+        "statements.enabled=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({ BulkClaimService.class, TierPolicy.class, IdGenerator.class, OptimisticRetry.class, PointsActivity.class,
+        PointsStatementService.class, ReplicaLagGuard.class, ProfileCache.class })
+public class BulkClaimServiceTest {
+
+    @Configuration
+    @EntityScan(basePackageClasses = CustomerProfile.class)
+    @EnableJpaRepositories(basePackageClasses = CustomerProfilerepository.class)
+    static class Config {
+    }
+
+    @MockBean
+    private PointsLedger pointsLedger;
+
+    @MockBean
+    private PointsJournal pointsJournal;
+
+    @Autowired
+    private BulkClaimService service;
+
+    @Autowired
+    private CustomerProfilerepository custrepo;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository.deleteAll();
+        custrepo.deleteAll();
+        for (long userId = 1; userId <= 2; userId++) {
+            CustomerProfile profile = new CustomerProfile();
+            profile.setUserId(userId);
+            profile.setLoyaltyTier("SILVER");
+            profile.setPointsBalance(1000);
+            profile.setLifetimePoints(1000);
+            custrepo.save(profile);
+        }
+    }
+
+    @Test
+    public void csvClaimsAreCreditedAndReportedPerLine() throws Exception {
+        String csv = "userId,points,note\n1,100,Store A\n2,50,Store B\n1,25,Store C\n9,10,Unknown\n1,-5,Bad\n";
+
+        BulkClaimService.Summary summary = ingest(csv);
+
+        assertEquals(5, summary.getLines());
+        assertEquals(3, summary.getAccepted());
+        assertEquals(2, summary.getRejected());
+        assertEquals(175, summary.getPoints());
+        assertEquals(1125, custrepo.findByUserId(1L).getPointsBalance());
+        assertEquals(1050, custrepo.findByUserId(2L).getPointsBalance());
+        List<Transaction> claims = transactionRepository.findByUserIdOrderByDateDesc(1L);
+        assertEquals(2, claims.size());
+        assertTrue(claims.stream().allMatch(t -> "CLAIM".equals(t.getType()) && t.getExpiry() != null));
+    }
+
+    @Test
+    public void reuploadedLinesWithExternalIdsAreSkipped() throws Exception {
+        String csv = "userId,points,note,externalId\n1,100,Store A,P-1\n2,50,Store B,P-2\n1,100,Store A,P-1\n"
+                + "2," + Integer.MAX_VALUE + ",Too much,P-3\n";
+
+        BulkClaimService.Summary first = ingest(csv);
+        assertEquals(2, first.getAccepted());
+        assertEquals(1, first.getSkipped()); // P-1 repeated in the file
+        assertEquals(1, first.getRejected()); // Would overflow the balance
+        assertEquals(1100, custrepo.findByUserId(1L).getPointsBalance());
+        assertEquals(1050, custrepo.findByUserId(2L).getPointsBalance());
+
+        BulkClaimService.Summary again = ingest(csv);
+        assertEquals(0, again.getAccepted());
+        assertEquals(3, again.getSkipped());
+        assertEquals(1100, custrepo.findByUserId(1L).getPointsBalance());
+        assertEquals(1050, custrepo.findByUserId(2L).getPointsBalance());
+        assertEquals("BLK-1-P-1", transactionRepository.findByUserIdOrderByDateDesc(1L).get(0).getExternalId());
+    }
+
+    @Test
+    public void externalIdsAreScopedToTheUserAndMustMatchTheAmount() throws Exception {
+        ingest("1,100,Store A,P-1\n");
+
+        // Same id for another user is a different claim; a different amount for the same user is an error
+        String csv = "2,100,Store A,P-1\n1,90,Store A,P-1\n1,100,\"Store A, aisle 3\",P-2\n1,5,Note,P-3,extra\n";
+        StringWriter report = new StringWriter();
+        BulkClaimService.Summary summary = service.ingest(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), false, report);
+
+        assertEquals(2, summary.getAccepted());
+        assertEquals(2, summary.getRejected());
+        assertTrue(report.toString().contains("already applied with 100 points"));
+        assertEquals(1200, custrepo.findByUserId(1L).getPointsBalance());
+        assertEquals(1100, custrepo.findByUserId(2L).getPointsBalance());
+        assertTrue(transactionRepository.findByUserIdOrderByDateDesc(1L).stream()
+                .anyMatch(t -> "BLK-1-P-2".equals(t.getExternalId()) && "Claimed: Store A, aisle 3".equals(t.getNote())));
+    }
+
+    private BulkClaimService.Summary ingest(String csv) throws Exception {
+        StringWriter report = new StringWriter();
+        return service.ingest(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), false, report);
+    }
+}
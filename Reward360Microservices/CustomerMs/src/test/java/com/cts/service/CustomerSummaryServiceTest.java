@@ -0,0 +1,155 @@
+package com.cts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cts.config.ReplicaLagGuard;
+import com.cts.dto.CustomerSummaryResponse;
+import com.cts.entity.CustomerProfile;
+import com.cts.entity.Transaction;
+import com.cts.repository.CustomerProfilerepository;
+import com.cts.repository.CustomerSummaryRepository;
+import com.cts.repository.TransactionRepository;
+
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:summary;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({ CustomerSummaryService.class, PointsActivity.class, ReplicaLagGuard.class,
+        ProfileCache.class })
+public class CustomerSummaryServiceTest {
+
+    private static final long USER_ID = 7L;
+
+    @Configuration
+    @EntityScan(basePackageClasses = CustomerProfile.class)
+    @EnableJpaRepositories(basePackageClasses = CustomerProfilerepository.class)
+    static class Config {
+    }
+
+    @MockBean
+    private PointsLedger pointsLedger;
+
+    @Autowired
+    private CustomerSummaryService summaryService;
+
+    @Autowired
+    private PointsActivity pointsActivity;
+
+    @Autowired
+    private CustomerSummaryRepository summaryRepository;
+
+    @Autowired
+    private CustomerProfilerepository custrepo;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        when(pointsLedger.overlay(any())).thenAnswer(returnsFirstArg());
+        ReflectionTestUtils.setField(summaryService, "recentSize", 3);
+        summaryRepository.deleteAll();
+        transactionRepository.deleteAll();
+        custrepo.deleteAll();
+        CustomerProfile profile = new CustomerProfile();
+        profile.setUserId(USER_ID);
+        profile.setCustomerName("Alice");
+        profile.setLoyaltyTier("SILVER");
+        profile.setPointsBalance(1000);
+        profile.setLifetimePoints(1000);
+        custrepo.save(profile);
+    }
+
+    @Test
+    public void claimsAndRedemptionsUpdateTheSummaryOnCommit() {
+        claim(100, "CLM-1");
+        // The first change builds the row from the source tables
+        assertTrue(summaryRepository.existsById(USER_ID));
+        claim(200, "CLM-2");
+        redeem(50, "RED-3");
+        claim(10, "CLM-4");
+
+        CustomerSummaryResponse summary = summaryService.getSummary(USER_ID);
+        assertEquals(1260, summary.getPointsBalance());
+        assertEquals(1310, summary.getLifetimePoints());
+        assertEquals(310, summary.getPointsEarnedThisMonth());
+        assertEquals(1, summary.getRedemptionCount());
+        assertEquals(3, summary.getRecentTransactions().size());
+        assertEquals("CLM-4", summary.getRecentTransactions().get(0).getExternalId());
+        assertEquals("CLM-2", summary.getRecentTransactions().get(2).getExternalId());
+    }
+
+    @Test
+    public void rolledBackChangesDoNotReachTheSummary() {
+        claim(100, "CLM-1");
+        assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+            pointsActivity.record(transaction("CLAIM", 500, 0, "CLM-2"));
+            throw new IllegalStateException("rollback");
+        }));
+        CustomerSummaryResponse summary = summaryService.getSummary(USER_ID);
+        assertEquals(100, summary.getPointsEarnedThisMonth());
+        assertEquals(1, summary.getRecentTransactions().size());
+    }
+
+    private void claim(int points, String externalId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            CustomerProfile profile = custrepo.findByUserId(USER_ID);
+            profile.setPointsBalance(profile.getPointsBalance() + points);
+            profile.setLifetimePoints(profile.getLifetimePoints() + points);
+            Transaction transaction = transactionRepository.save(transaction("CLAIM", points, 0, externalId));
+            pointsActivity.record(transaction);
+        });
+    }
+
+    private void redeem(int points, String externalId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            CustomerProfile profile = custrepo.findByUserId(USER_ID);
+            profile.setPointsBalance(profile.getPointsBalance() - points);
+            Transaction transaction = transactionRepository.save(transaction("REDEMPTION", 0, points, externalId));
+            pointsActivity.record(transaction);
+        });
+    }
+
+    private static Transaction transaction(String type, int earned, int redeemed, String externalId) {
+        Transaction transaction = new Transaction();
+        transaction.setUserId(USER_ID);
+        transaction.setType(type);
+        transaction.setPointsEarned(earned);
+        transaction.setPointsRedeemed(redeemed);
+        transaction.setExternalId(externalId);
+        transaction.setDate(LocalDate.now());
+        return transaction;
+    }
+}
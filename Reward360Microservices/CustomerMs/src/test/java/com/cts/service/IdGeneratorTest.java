@@ -0,0 +1,71 @@
+package com.cts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class IdGeneratorTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void idsAreUniqueAcrossThreads() throws Exception {
+        IdGenerator generator = new IdGenerator(7, dir, 10000);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < 16; t++) {
+            pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 20000; i++) {
+                    ids.add(generator.nextId());
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(16 * 20000, ids.size());
+    }
+
+    @Test
+    public void idsIncreaseAndCarryTheNodeId() {
+        IdGenerator generator = new IdGenerator(513, dir, 10000);
+        long previous = 0;
+        // More than one millisecond's worth of sequence numbers
+        for (int i = 0; i < 10000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            assertEquals(513, (id >>> IdGenerator.SEQUENCE_BITS) & IdGenerator.MAX_NODE);
+            previous = id;
+        }
+        assertTrue(generator.next("RED").startsWith("RED-"));
+    }
+
+    @Test
+    public void restartsContinueAfterTheHighWaterMark() throws Exception {
+        IdGenerator first = new IdGenerator(3, dir, 10000);
+        long issued = first.nextId();
+        assertTrue(new IdGenerator(3, dir, 10000).nextId() > issued);
+
+        // A previous run whose clock was a day ahead: the restarted generator stays above its ids
+        long ahead = System.currentTimeMillis() - IdGenerator.EPOCH + TimeUnit.DAYS.toMillis(1);
+        Files.writeString(dir.resolve("node-3.hwm"), Long.toString(ahead));
+        long id = new IdGenerator(3, dir, 10000).nextId();
+        assertTrue(id >>> (IdGenerator.NODE_BITS + IdGenerator.SEQUENCE_BITS) > ahead);
+
+        assertThrows(IllegalStateException.class, () -> new IdGenerator(-1, dir, 10000));
+    }
+}
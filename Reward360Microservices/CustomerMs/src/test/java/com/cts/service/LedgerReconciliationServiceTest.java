@@ -0,0 +1,174 @@
+package com.cts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.cts.config.ReplicaLagGuard;
+import com.cts.entity.CustomerProfile;
+import com.cts.entity.LedgerDiscrepancy;
+import com.cts.entity.ReconciliationRun;
+import com.cts.entity.Transaction;
+import com.cts.repository.CustomerProfilerepository;
+import com.cts.repository.LedgerDiscrepancyRepository;
+import com.cts.repository.PointsStatementRepository;
+import com.cts.repository.ReconciliationPartitionRepository;
+import com.cts.repository.ReconciliationRunRepository;
+import com.cts.repository.TransactionRepository;
+
+@DataJpaTest(showSql = false, properties = {
+        // Case-sensitive identifiers, as MySQL treats table names on Linux
+        "spring.datasource.url=jdbc:h2:mem:reconciliation;MODE=MySQL;DATABASE_TO_UPPER=FALSE;"
+                + "CASE_INSENSITIVE_IDENTIFIERS=FALSE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "reconciliation.partition-width=10",
+        "reconciliation.fetch-size=5",
+        "statements.enabled=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ LedgerReconciliationService.class, TierPolicy.class, PointsActivity.class, PointsStatementService.class,
+        ReplicaLagGuard.class, ProfileCache.class })
+public class LedgerReconciliationServiceTest {
+
+    @Configuration
+    @EntityScan(basePackageClasses = CustomerProfile.class)
+    @EnableJpaRepositories(basePackageClasses = CustomerProfilerepository.class)
+    static class Config {
+    }
+
+    @MockBean
+    private PointsLedger pointsLedger;
+
+    @Autowired
+    private LedgerReconciliationService service;
+
+    @Autowired
+    private CustomerProfilerepository custrepo;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private ReconciliationRunRepository runRepository;
+
+    @Autowired
+    private ReconciliationPartitionRepository partitionRepository;
+
+    @Autowired
+    private LedgerDiscrepancyRepository discrepancyRepository;
+
+    @Autowired
+    private PointsStatementRepository statementRepository;
+
+    @BeforeEach
+    void setUp() {
+        runRepository.deleteAll();
+        partitionRepository.deleteAll();
+        discrepancyRepository.deleteAll();
+        statementRepository.deleteAll();
+        transactionRepository.deleteAll();
+        custrepo.deleteAll();
+        // 40 users over 4 partitions: each claimed 300 and redeemed 100
+        List<CustomerProfile> profiles = new ArrayList<>();
+        List<Transaction> transactions = new ArrayList<>();
+        for (long userId = 1; userId <= 40; userId++) {
+            CustomerProfile profile = new CustomerProfile();
+            profile.setUserId(userId);
+            profile.setPointsBalance(1200);
+            profile.setLifetimePoints(1300);
+            profile.setLoyaltyTier("SILVER");
+            profiles.add(profile);
+            transactions.add(transaction(userId, "CLAIM", 300, 0));
+            transactions.add(transaction(userId, "REDEMPTION", 0, 100));
+        }
+        custrepo.saveAll(profiles);
+        transactionRepository.saveAll(transactions);
+    }
+
+    @Test
+    public void driftedBalancesAreReportedAndUnchangedPartitionsSkipped() throws Exception {
+        drift(13L, 50);
+        drift(37L, -20);
+        transactionRepository.save(transaction(99L, "CLAIM", 10, 0)); // No profile
+
+        ReconciliationRun run = awaitFinished(service.start(false));
+        assertEquals(ReconciliationRun.COMPLETED, run.getStatus());
+        assertEquals(41, run.getUsers());
+        assertEquals(10, run.getPartitions()); // userIds 0 .. 99
+        assertEquals(3, run.getDiscrepancies());
+        assertEquals(0, run.getRepaired());
+        List<LedgerDiscrepancy> report = service.getDiscrepancies(run.getId(), null, 10);
+        assertEquals(List.of(13L, 37L, 99L), report.stream().map(LedgerDiscrepancy::getUserId).toList());
+        assertEquals(1250, report.get(0).getProfileBalance());
+        assertEquals(1200, report.get(0).getExpectedBalance());
+        assertNull(report.get(2).getProfileBalance());
+
+        // Only the partitions with open discrepancies are streamed again
+        ReconciliationRun rerun = awaitFinished(service.start(false));
+        assertEquals(7, rerun.getSkippedPartitions());
+        assertEquals(3, rerun.getDiscrepancies());
+    }
+
+    @Test
+    public void repairCorrectsBalancesUnderTheRowLock() throws Exception {
+        drift(13L, 50);
+
+        ReconciliationRun run = awaitFinished(service.start(true));
+        assertEquals(1, run.getDiscrepancies());
+        assertEquals(1, run.getRepaired());
+        assertEquals(1200, custrepo.findByUserId(13L).getPointsBalance());
+
+        ReconciliationRun rerun = awaitFinished(service.start(false));
+        assertEquals(0, rerun.getDiscrepancies());
+        assertEquals(rerun.getPartitions(), rerun.getSkippedPartitions());
+    }
+
+    private void drift(Long userId, int points) {
+        CustomerProfile profile = custrepo.findByUserId(userId);
+        profile.setPointsBalance(profile.getPointsBalance() + points);
+        custrepo.save(profile);
+    }
+
+    private ReconciliationRun awaitFinished(ReconciliationRun started) throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            ReconciliationRun run = runRepository.findById(started.getId()).orElseThrow();
+            if (!ReconciliationRun.RUNNING.equals(run.getStatus())) {
+                return run;
+            }
+            Thread.sleep(50);
+        }
+        fail("Ledger reconciliation did not finish");
+        return null;
+    }
+
+    private static Transaction transaction(Long userId, String type, int earned, int redeemed) {
+        Transaction transaction = new Transaction();
+        transaction.setUserId(userId);
+        transaction.setType(type);
+        transaction.setPointsEarned(earned);
+        transaction.setPointsRedeemed(redeemed);
+        transaction.setDate(LocalDate.now());
+        transaction.setExternalId(type + "-" + userId + "-" + System.nanoTime());
+        return transaction;
+    }
+}
@@ -0,0 +1,176 @@
+package com.cts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cts.entity.OutboxEvent;
+import com.cts.entity.Transaction;
+import com.cts.repository.OutboxEventRepository;
+
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:outbox;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "outbox.relay.enabled=false",
+        "outbox.relay.max-attempts=2",
+        "outbox.relay.retry-backoff-ms=0"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({ OutboxPublisher.class, OutboxRelay.class })
+public class OutboxRelayTest {
+
+    @Configuration
+    @EntityScan(basePackageClasses = OutboxEvent.class)
+    @EnableJpaRepositories(basePackageClasses = OutboxEventRepository.class)
+    static class Config {
+        @Bean
+        RecordingSubscriber recordingSubscriber() {
+            return new RecordingSubscriber();
+        }
+    }
+
+    static class RecordingSubscriber implements OutboxSubscriber {
+        final List<String> received = new CopyOnWriteArrayList<>();
+        volatile boolean failing;
+        volatile Runnable duringDelivery;
+
+        @Override
+        public String eventType() {
+            return "REDEMPTION";
+        }
+
+        @Override
+        public void deliver(List<OutboxEvent> events) {
+            if (failing) {
+                throw new IllegalStateException("Fraud_MS unavailable");
+            }
+            Runnable hook = duringDelivery;
+            if (hook != null) {
+                duringDelivery = null;
+                hook.run();
+            }
+            for (OutboxEvent event : events) {
+                received.add(event.getPayload());
+            }
+        }
+    }
+
+    @Autowired
+    private OutboxPublisher publisher;
+
+    @Autowired
+    private OutboxRelay relay;
+
+    @Autowired
+    private RecordingSubscriber subscriber;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        outboxEventRepository.deleteAll();
+        subscriber.received.clear();
+        subscriber.failing = false;
+        subscriber.duringDelivery = null;
+        ReflectionTestUtils.setField(relay, "leaseMs", 120000L);
+    }
+
+    @Test
+    public void eventsOfCommittedTransactionsAreDeliveredInOrderAndDeleted() {
+        for (int i = 1; i <= 3; i++) {
+            String externalId = "RED-" + i;
+            transactionTemplate.executeWithoutResult(status -> publisher.publish("REDEMPTION", 1L,
+                    redemption(externalId)));
+        }
+        assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+            publisher.publish("REDEMPTION", 1L, redemption("RED-rolled-back"));
+            throw new IllegalStateException("rollback");
+        }));
+
+        assertEquals(3, relay.relayBatch());
+        assertEquals(3, subscriber.received.size());
+        assertTrue(subscriber.received.get(0).contains("RED-1"));
+        assertTrue(subscriber.received.get(2).contains("RED-3"));
+        assertEquals(0, outboxEventRepository.count());
+    }
+
+    @Test
+    public void failedDeliveriesAreRetriedThenParked() {
+        transactionTemplate.executeWithoutResult(status -> publisher.publish("REDEMPTION", 1L,
+                redemption("RED-1")));
+        subscriber.failing = true;
+        relay.relayBatch();
+        assertEquals(1, outboxEventRepository.countByStatus(OutboxEvent.PENDING));
+        relay.relayBatch();
+        assertEquals(1, outboxEventRepository.countByStatus(OutboxEvent.DEAD));
+        assertEquals(0, relay.relayBatch()); // Parked events are not picked up
+
+        subscriber.failing = false;
+        assertEquals(1, relay.requeueDead());
+        assertEquals(1, relay.relayBatch());
+        assertEquals(1, subscriber.received.size());
+        assertEquals(0, outboxEventRepository.count());
+    }
+
+    @Test
+    public void claimsCommitBeforeDeliveryAndExpiredLeasesAreTakenOver() {
+        transactionTemplate.executeWithoutResult(status -> publisher.publish("REDEMPTION", 1L,
+                redemption("RED-1")));
+        List<Long> inFlight = new ArrayList<>();
+        subscriber.duringDelivery = () -> inFlight.add(outboxEventRepository.countByStatus(OutboxEvent.IN_FLIGHT));
+        assertEquals(1, relay.relayBatch());
+        assertEquals(List.of(1L), inFlight); // Visible to other connections: no lock held while delivering
+        assertEquals(0, outboxEventRepository.count());
+
+        // The lease runs out mid-delivery; another relay takes the event over and completes it
+        transactionTemplate.executeWithoutResult(status -> publisher.publish("REDEMPTION", 1L,
+                redemption("RED-2")));
+        ReflectionTestUtils.setField(relay, "leaseMs", 0L);
+        List<Integer> takenOver = new ArrayList<>();
+        subscriber.duringDelivery = () -> takenOver.add(relay.relayBatch());
+        assertEquals(1, relay.relayBatch());
+        assertEquals(List.of(1), takenOver);
+        assertEquals(3, subscriber.received.size()); // RED-2 delivered twice: at-least-once
+        assertEquals(0, outboxEventRepository.count());
+    }
+
+    private static Transaction redemption(String externalId) {
+        Transaction transaction = new Transaction();
+        transaction.setExternalId(externalId);
+        transaction.setType("REDEMPTION");
+        transaction.setPointsRedeemed(100);
+        transaction.setUserId(1L);
+        transaction.setDate(LocalDate.now());
+        return transaction;
+    }
+}
@@ -0,0 +1,76 @@
+package com.cts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class PointsJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private PointsJournal journal;
+
+    // Four records per segment
+    private PointsJournal open(boolean ledgerEnabled) throws Exception {
+        journal = new PointsJournal();
+        ReflectionTestUtils.setField(journal, "enabled", true);
+        ReflectionTestUtils.setField(journal, "directory", dir.toString());
+        ReflectionTestUtils.setField(journal, "segmentBytes", PointsJournal.RECORD_SIZE * 4);
+        ReflectionTestUtils.setField(journal, "syncIntervalMs", 5L);
+        ReflectionTestUtils.setField(journal, "ledgerEnabled", ledgerEnabled);
+        journal.open();
+        return journal;
+    }
+
+    @AfterEach
+    void close() throws Exception {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void snapshotDropsSegmentsItCovers() throws Exception {
+        open(true);
+        for (int i = 1; i <= 10; i++) {
+            journal.append(PointsJournal.EventType.CLAIM, 1L, 10, 10 * i, 10 * i);
+        }
+        assertEquals(3, segments()); // 1-4, 5-8, 9-10
+
+        journal.snapshot(6);
+        assertEquals(2, segments()); // 5-8 still holds 7 and 8
+        journal.snapshot(8);
+        assertEquals(1, segments());
+
+        List<Long> replayed = new ArrayList<>();
+        journal.replay(journal.snapshotSequence(), event -> replayed.add(event.sequence()));
+        assertEquals(List.of(9L, 10L), replayed);
+    }
+
+    @Test
+    public void withoutTheLedgerFullSegmentsAreDroppedOnRoll() throws Exception {
+        open(false);
+        for (int i = 1; i <= 10; i++) {
+            journal.appendCommitted(PointsJournal.EventType.CLAIM, 1L, 10, 10 * i, 10 * i);
+        }
+        assertEquals(1, segments());
+        assertEquals(8, journal.snapshotSequence());
+        assertEquals(10, journal.lastSequence());
+    }
+
+    private long segments() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".journal")).count();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.cts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cts.entity.CustomerProfile;
+import com.cts.repository.CustomerProfilerepository;
+
+public class PointsLedgerTest {
+
+    private PointsLedger newLedger(CustomerProfilerepository repo) throws Exception {
+        PointsLedger ledger = new PointsLedger();
+        set(ledger, "enabled", true);
+        set(ledger, "stripeCount", 8);
+        set(ledger, "custrepo", repo);
+        // A journal that was never opened stays disabled
+        set(ledger, "journal", new PointsJournal());
+        set(ledger, "tierPolicy", new TierPolicy());
+        ledger.initLocks();
+        return ledger;
+    }
+
+    private static void set(Object target, String name, Object value) throws Exception {
+        Field field = PointsLedger.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    private static CustomerProfile profile(Long userId, int balance) {
+        CustomerProfile profile = new CustomerProfile();
+        profile.setUserId(userId);
+        profile.setPointsBalance(balance);
+        profile.setLifetimePoints(balance);
+        return profile;
+    }
+
+    @Test
+    public void concurrentRedemptionsNeverOverspend() throws Exception {
+        CustomerProfilerepository repo = mock(CustomerProfilerepository.class);
+        when(repo.findByUserId(1L)).thenReturn(profile(1L, 1000));
+        PointsLedger ledger = newLedger(repo);
+
+        AtomicInteger accepted = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < 200; i++) {
+            pool.submit(() -> {
+                start.await();
+                if (ledger.debit(1L, 10) != null) {
+                    accepted.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(100, accepted.get());
+        CustomerProfile view = ledger.overlay(profile(1L, 1000));
+        assertEquals(0, view.getPointsBalance());
+        // Only the first access should hit the database
+        verify(repo, times(1)).findByUserId(1L);
+    }
+
+    @Test
+    public void creditUpdatesLifetimeAndTier() throws Exception {
+        CustomerProfilerepository repo = mock(CustomerProfilerepository.class);
+        when(repo.findByUserId(2L)).thenReturn(profile(2L, 900));
+        PointsLedger ledger = newLedger(repo);
+
+        PointsLedger.Entry after = ledger.credit(2L, 200);
+        assertEquals(1100, after.getPointsBalance());
+        assertEquals(1100, after.getLifetimePoints());
+
+        CustomerProfile view = ledger.overlay(profile(2L, 900));
+        assertEquals("SILVER", view.getLoyaltyTier());
+    }
+
+    @Test
+    public void onlyCommittedChangesAreFlushed() throws Exception {
+        CustomerProfilerepository repo = mock(CustomerProfilerepository.class);
+        CustomerProfile stored = profile(3L, 500);
+        when(repo.findByUserId(3L)).thenReturn(profile(3L, 500));
+        when(repo.findByUserIdIn(any())).thenReturn(List.of(stored));
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(invocation -> {
+            invocation.<Consumer<Object>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        PointsLedger ledger = newLedger(repo);
+        set(ledger, "transactionTemplate", transactionTemplate);
+
+        // A claim that commits and a redemption that rolls back
+        complete(TransactionSynchronization.STATUS_COMMITTED, () -> {
+            ledger.credit(3L, 100);
+            ledger.flush();
+            verify(repo, never()).findByUserIdIn(any());
+        });
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK, () -> {
+            assertNotNull(ledger.debit(3L, 600));
+            ledger.flush();
+            assertEquals(600, stored.getPointsBalance());
+        });
+        assertEquals(600, stored.getPointsBalance());
+        assertEquals(600, ledger.overlay(profile(3L, 0)).getPointsBalance());
+    }
+
+    // Run the body in a simulated transaction that ends with the given status
+    private static void complete(int status, Runnable body) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            body.run();
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager
+                    .getSynchronizations()) {
+                synchronization.afterCompletion(status);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void refusesToStartWithoutTheJournal() throws Exception {
+        PointsLedger ledger = newLedger(mock(CustomerProfilerepository.class));
+        assertThrows(IllegalStateException.class, ledger::afterSingletonsInstantiated);
+    }
+
+    @Test
+    public void unknownUserIsRejected() throws Exception {
+        PointsLedger ledger = newLedger(mock(CustomerProfilerepository.class));
+        assertThrows(RuntimeException.class, () -> ledger.debit(99L, 10));
+    }
+}
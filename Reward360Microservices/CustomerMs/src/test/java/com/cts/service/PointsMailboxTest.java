@@ -0,0 +1,159 @@
+package com.cts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.cts.dto.ClaimRequest;
+
+public class PointsMailboxTest {
+
+    private PointsMailbox mailbox;
+
+    private PointsMailbox newMailbox(Pointsservice pointsservice, int workers) {
+        OptimisticRetry retry = new OptimisticRetry();
+        ReflectionTestUtils.setField(retry, "maxAttempts", 1);
+        PointsMailbox created = new PointsMailbox();
+        ReflectionTestUtils.setField(created, "enabled", true);
+        ReflectionTestUtils.setField(created, "workerCount", workers);
+        ReflectionTestUtils.setField(created, "queueCapacity", 1000);
+        ReflectionTestUtils.setField(created, "batchSize", 100);
+        ReflectionTestUtils.setField(created, "timeoutMs", 10000L);
+        ReflectionTestUtils.setField(created, "pointsservice", pointsservice);
+        ReflectionTestUtils.setField(created, "optimisticRetry", retry);
+        created.start();
+        return created;
+    }
+
+    @AfterEach
+    void stop() throws Exception {
+        mailbox.stop();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void operationsOfOneUserAreAppliedInOrderAndCoalesced() throws Exception {
+        Pointsservice pointsservice = mock(Pointsservice.class);
+        CountDownLatch firstRunStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstRun = new CountDownLatch(1);
+        List<Integer> applied = new CopyOnWriteArrayList<>();
+        List<Integer> runSizes = new CopyOnWriteArrayList<>();
+        when(pointsservice.applyQueued(eq(7L), anyList())).thenAnswer(invocation -> {
+            List<PointsMailbox.Operation> run = invocation.getArgument(1);
+            runSizes.add(run.size());
+            List<Object> outcomes = new ArrayList<>();
+            for (PointsMailbox.Operation operation : run) {
+                applied.add(((ClaimRequest) operation.getRequest()).getPoints());
+                outcomes.add(operation.getRequest());
+            }
+            if (runSizes.size() == 1) {
+                // Hold the worker so the next requests queue up behind this one
+                firstRunStarted.countDown();
+                releaseFirstRun.await();
+            }
+            return outcomes;
+        });
+        mailbox = newMailbox(pointsservice, 4);
+
+        ExecutorService callers = Executors.newFixedThreadPool(10);
+        List<Future<ClaimRequest>> results = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            ClaimRequest claim = new ClaimRequest("note", "code", i);
+            results.add(callers.submit(() -> mailbox.claim(7L, claim, null)));
+            if (i == 1) {
+                assertTrue(firstRunStarted.await(5, TimeUnit.SECONDS));
+            } else {
+                Thread.sleep(20); // Keep the enqueue order deterministic
+            }
+        }
+        releaseFirstRun.countDown();
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i + 1, results.get(i).get(5, TimeUnit.SECONDS).getPoints());
+        }
+        callers.shutdown();
+
+        assertEquals(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), applied);
+        // The nine requests queued behind the first are applied in one transaction
+        assertEquals(List.of(1, 9), runSizes);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void aFailedOperationOnlyFailsItsOwnCaller() {
+        Pointsservice pointsservice = mock(Pointsservice.class);
+        when(pointsservice.applyQueued(anyLong(), anyList())).thenAnswer(invocation -> {
+            List<PointsMailbox.Operation> run = invocation.getArgument(1);
+            List<Object> outcomes = new ArrayList<>();
+            for (PointsMailbox.Operation operation : run) {
+                ClaimRequest claim = (ClaimRequest) operation.getRequest();
+                outcomes.add(claim.getPoints() < 0 ? new RuntimeException("Insufficient points") : claim);
+            }
+            return outcomes;
+        });
+        mailbox = newMailbox(pointsservice, 2);
+
+        assertEquals(10, mailbox.claim(1L, new ClaimRequest("ok", "a", 10), null).getPoints());
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> mailbox.claim(1L, new ClaimRequest("bad", "b", -1), null));
+        assertEquals("Insufficient points", error.getMessage());
+        assertEquals(20, mailbox.claim(1L, new ClaimRequest("ok", "c", 20), null).getPoints());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void aRunThatThrowsIsRetriedOneOperationAtATime() throws Exception {
+        Pointsservice pointsservice = mock(Pointsservice.class);
+        CountDownLatch firstRunStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstRun = new CountDownLatch(1);
+        List<Integer> runSizes = new CopyOnWriteArrayList<>();
+        when(pointsservice.applyQueued(anyLong(), anyList())).thenAnswer(invocation -> {
+            List<PointsMailbox.Operation> run = invocation.getArgument(1);
+            runSizes.add(run.size());
+            if (runSizes.size() == 1) {
+                firstRunStarted.countDown();
+                releaseFirstRun.await();
+            }
+            List<Object> outcomes = new ArrayList<>();
+            for (PointsMailbox.Operation operation : run) {
+                ClaimRequest claim = (ClaimRequest) operation.getRequest();
+                if (claim.getPoints() < 0) {
+                    // Not a business rejection: the whole run's transaction rolls back
+                    throw new IllegalStateException("Database unavailable");
+                }
+                outcomes.add(claim);
+            }
+            return outcomes;
+        });
+        mailbox = newMailbox(pointsservice, 1);
+
+        ExecutorService callers = Executors.newFixedThreadPool(3);
+        Future<ClaimRequest> first = callers.submit(() -> mailbox.claim(1L, new ClaimRequest("ok", "a", 10), null));
+        assertTrue(firstRunStarted.await(5, TimeUnit.SECONDS));
+        Future<ClaimRequest> failing = callers.submit(() -> mailbox.claim(1L, new ClaimRequest("bad", "b", -1), null));
+        Thread.sleep(20);
+        Future<ClaimRequest> last = callers.submit(() -> mailbox.claim(1L, new ClaimRequest("ok", "c", 20), null));
+        Thread.sleep(20);
+        releaseFirstRun.countDown();
+
+        assertEquals(10, first.get(5, TimeUnit.SECONDS).getPoints());
+        ExecutionException error = assertThrows(ExecutionException.class, () -> failing.get(5, TimeUnit.SECONDS));
+        assertEquals("Database unavailable", error.getCause().getMessage());
+        assertEquals(20, last.get(5, TimeUnit.SECONDS).getPoints());
+        callers.shutdown();
+        assertEquals(List.of(1, 2, 1, 1), runSizes);
+    }
+}
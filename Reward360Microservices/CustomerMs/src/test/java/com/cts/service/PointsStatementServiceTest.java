@@ -0,0 +1,134 @@
+package com.cts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cts.config.ReplicaLagGuard;
+import com.cts.dto.PointsStatementResponse;
+import com.cts.entity.CustomerProfile;
+import com.cts.entity.Transaction;
+import com.cts.repository.CustomerProfilerepository;
+import com.cts.repository.PointsStatementRepository;
+import com.cts.repository.TransactionRepository;
+
+@DataJpaTest(showSql = false, properties = {
+        // Case-sensitive identifiers, as MySQL treats table names on Linux
+        "spring.datasource.url=jdbc:h2:mem:statements;MODE=MySQL;DATABASE_TO_UPPER=FALSE;"
+                + "CASE_INSENSITIVE_IDENTIFIERS=FALSE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "statements.rebuild.chunk-size=2"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ PointsStatementService.class, PointsActivity.class, ReplicaLagGuard.class,
+        ProfileCache.class })
+public class PointsStatementServiceTest {
+
+    @Configuration
+    @EntityScan(basePackageClasses = CustomerProfile.class)
+    @EnableJpaRepositories(basePackageClasses = CustomerProfilerepository.class)
+    static class Config {
+    }
+
+    @Autowired
+    private PointsStatementService statementService;
+
+    @Autowired
+    private PointsActivity pointsActivity;
+
+    @Autowired
+    private PointsStatementRepository statementRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        statementRepository.deleteAll();
+        transactionRepository.deleteAll();
+    }
+
+    @Test
+    public void committedTransactionsAreAddedToTheirMonth() {
+        write(1L, "CLAIM", 500, 0, LocalDate.of(2026, 1, 5));
+        write(1L, "EXPIRY", 0, 100, LocalDate.of(2026, 1, 31));
+        write(1L, "CLAIM", 250, 0, LocalDate.of(2026, 3, 2));
+        write(1L, "REDEMPTION", 0, 500, LocalDate.of(2026, 3, 9));
+        write(2L, "CLAIM", 900, 0, LocalDate.of(2026, 3, 9));
+        assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+            pointsActivity.record(transactionRepository.save(transaction(1L, "CLAIM", 1000, 0,
+                    LocalDate.of(2026, 3, 10))));
+            throw new IllegalStateException("rollback");
+        }));
+
+        PointsStatementResponse statement = statementService.getStatement(1L, "2026-01", "2026-03");
+        assertEquals(2, statement.getMonths().size());
+        assertEquals("2026-01", statement.getMonths().get(0).getMonth());
+        assertEquals(100, statement.getMonths().get(0).getExpired());
+        assertEquals(250, statement.getMonths().get(1).getEarned());
+        assertEquals(500, statement.getMonths().get(1).getRedeemed());
+        assertEquals(750, statement.getEarned());
+        assertEquals(4, statement.getTransactionCount());
+
+        assertEquals(1, statementService.getStatement(1L, "2026-02", "2026-03").getMonths().size());
+    }
+
+    @Test
+    public void rebuildMatchesIncrementalTotals() {
+        for (long userId = 1; userId <= 5; userId++) {
+            write(userId, "CLAIM", 100, 0, LocalDate.of(2026, 2, 1));
+            write(userId, "REDEMPTION", 0, 40, LocalDate.of(2026, 2, 15));
+            write(userId, "CLAIM", 10, 0, LocalDate.of(2026, 4, 1));
+        }
+        PointsStatementResponse incremental = statementService.getStatement(3L, "2026-01", "2026-12");
+
+        statementRepository.deleteAll();
+        assertEquals(10, ((Number) statementService.rebuild(null).get("months")).intValue());
+        PointsStatementResponse rebuilt = statementService.getStatement(3L, "2026-01", "2026-12");
+        assertEquals(incremental.getEarned(), rebuilt.getEarned());
+        assertEquals(incremental.getRedeemed(), rebuilt.getRedeemed());
+        assertEquals(incremental.getTransactionCount(), rebuilt.getTransactionCount());
+        assertEquals(2, rebuilt.getMonths().size());
+
+        // Rebuilding one user replaces its rows instead of adding to them
+        statementService.rebuild(3L);
+        assertEquals(110, statementService.getStatement(3L, "2026-01", "2026-12").getEarned());
+    }
+
+    private void write(Long userId, String type, int earned, int redeemed, LocalDate date) {
+        transactionTemplate.executeWithoutResult(status -> pointsActivity
+                .record(transactionRepository.save(transaction(userId, type, earned, redeemed, date))));
+    }
+
+    private static Transaction transaction(Long userId, String type, int earned, int redeemed, LocalDate date) {
+        Transaction transaction = new Transaction();
+        transaction.setUserId(userId);
+        transaction.setType(type);
+        transaction.setPointsEarned(earned);
+        transaction.setPointsRedeemed(redeemed);
+        transaction.setDate(date);
+        transaction.setExternalId(type + "-" + userId + "-" + System.nanoTime());
+        return transaction;
+    }
+}
@@ -0,0 +1,123 @@
+package com.cts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cts.config.ReplicaLagGuard;
+import com.cts.entity.CustomerProfile;
+import com.cts.repository.CustomerProfilerepository;
+
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:profilecache;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "statements.enabled=false",
+        "profiles.cache.enabled=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ ProfileCache.class, PointsActivity.class, PointsStatementService.class, ReplicaLagGuard.class })
+public class ProfileCacheTest {
+
+    @Configuration
+    @EntityScan(basePackageClasses = CustomerProfile.class)
+    @EnableJpaRepositories(basePackageClasses = CustomerProfilerepository.class)
+    static class Config {
+    }
+
+    @Autowired
+    private ProfileCache profileCache;
+
+    @Autowired
+    private PointsActivity pointsActivity;
+
+    @Autowired
+    private CustomerProfilerepository custrepo;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        custrepo.deleteAll();
+        CustomerProfile profile = new CustomerProfile();
+        profile.setUserId(1L);
+        profile.setPointsBalance(1000);
+        profile.setLifetimePoints(1000);
+        profile.setLoyaltyTier("SILVER");
+        custrepo.save(profile);
+    }
+
+    @Test
+    public void committedChangesAreWrittenThroughAndOlderCopiesIgnored() {
+        assertEquals(1000, profileCache.get(1L).getPointsBalance()); // Miss, loaded
+        CustomerProfile stale = profileCache.get(1L); // Hit
+        stale.setPointsBalance(1); // Callers get copies
+        assertEquals(1000, profileCache.get(1L).getPointsBalance());
+
+        // Entity update, then a conditional UPDATE: both reach the cache on commit
+        transactionTemplate.executeWithoutResult(status -> {
+            CustomerProfile profile = custrepo.findByUserId(1L);
+            profile.setPointsBalance(700);
+            custrepo.save(profile);
+            pointsActivity.touch(1L);
+        });
+        transactionTemplate.executeWithoutResult(status -> {
+            custrepo.debitIfSufficient(1L, 200);
+            pointsActivity.touch(1L);
+        });
+        long misses = (long) profileCache.getStats().get("misses");
+        assertEquals(500, profileCache.get(1L).getPointsBalance());
+        assertEquals(misses, profileCache.getStats().get("misses"));
+
+        // A read that loaded the row before those commits cannot bring it back
+        profileCache.put(stale, profileCache.stamp());
+        assertEquals(500, profileCache.get(1L).getPointsBalance());
+
+        // Rolled back changes never reach the cache
+        assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+            custrepo.debitIfSufficient(1L, 100);
+            pointsActivity.touch(1L);
+            throw new IllegalStateException("rollback");
+        }));
+        assertEquals(500, profileCache.get(1L).getPointsBalance());
+        assertEquals(500, custrepo.findByUserId(1L).getPointsBalance());
+    }
+
+    @Test
+    public void loadsRacingAnInvalidationAreNotCached() {
+        assertEquals("SILVER", profileCache.get(1L).getLoyaltyTier());
+
+        // A miss reads the row, then a bulk UPDATE commits and invalidates before the load is cached
+        long stamp = profileCache.stamp();
+        CustomerProfile loaded = custrepo.findByUserId(1L);
+        jdbcTemplate.update("UPDATE customer_profile SET loyalty_tier = 'GOLD' WHERE user_id = 1");
+        profileCache.invalidate(List.of(1L));
+        profileCache.put(loaded, stamp);
+
+        assertEquals(loaded.getVersion(), custrepo.findByUserId(1L).getVersion()); // Version unchanged
+        assertEquals("GOLD", profileCache.get(1L).getLoyaltyTier());
+        assertEquals("GOLD", profileCache.get(1L).getLoyaltyTier()); // Cached after the invalidation
+    }
+}
@@ -0,0 +1,119 @@
+package com.cts.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.cts.entity.CustomerProfile;
+import com.cts.entity.TierJob;
+import com.cts.repository.CustomerProfilerepository;
+import com.cts.repository.TierJobRepository;
+
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:tiers;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "tiers.recalculation.chunk-size=7"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ TierPolicy.class, TierRecalculationService.class, ProfileCache.class })
+public class TierRecalculationServiceTest {
+
+    @Configuration
+    @EntityScan(basePackageClasses = CustomerProfile.class)
+    @EnableJpaRepositories(basePackageClasses = CustomerProfilerepository.class)
+    static class Config {
+    }
+
+    @Autowired
+    private TierRecalculationService service;
+
+    @Autowired
+    private TierPolicy tierPolicy;
+
+    @Autowired
+    private CustomerProfilerepository custrepo;
+
+    @Autowired
+    private TierJobRepository tierJobRepository;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(tierPolicy, "gold", 5000);
+        tierJobRepository.deleteAll();
+        custrepo.deleteAll();
+        List<CustomerProfile> profiles = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            CustomerProfile profile = new CustomerProfile();
+            profile.setUserId(1000L + i);
+            profile.setLifetimePoints(i * 250); // 0 .. 12250
+            profile.setLoyaltyTier(tierPolicy.tierFor(i * 250));
+            profiles.add(profile);
+        }
+        custrepo.saveAll(profiles);
+    }
+
+    @Test
+    public void changedThresholdsReTierEveryProfile() throws Exception {
+        ReflectionTestUtils.setField(tierPolicy, "gold", 3000);
+        TierJob job = awaitFinished(service.start());
+
+        assertEquals(TierJob.COMPLETED, job.getStatus());
+        assertEquals(50, job.getScanned());
+        assertEquals(8, job.getChanged()); // 3000 .. 4750 move from SILVER to GOLD
+        for (CustomerProfile profile : custrepo.findAll()) {
+            assertEquals(tierPolicy.tierFor(profile.getLifetimePoints()), profile.getLoyaltyTier());
+        }
+    }
+
+    @Test
+    public void unfinishedRunResumesFromItsCheckpoint() throws Exception {
+        ReflectionTestUtils.setField(tierPolicy, "gold", 3000);
+        // A run with the same thresholds that stopped after the first 20 profiles
+        List<CustomerProfile> profiles = custrepo.findAll();
+        TierJob stopped = new TierJob(tierPolicy.describe(), 50);
+        stopped.setStatus(TierJob.STOPPED);
+        stopped.setLastProfileId(profiles.get(19).getId());
+        stopped.setScanned(20);
+        tierJobRepository.save(stopped);
+
+        TierJob job = awaitFinished(service.start());
+
+        assertEquals(stopped.getId(), job.getId());
+        assertEquals(TierJob.COMPLETED, job.getStatus());
+        assertEquals(50, job.getScanned());
+        // Profiles before the checkpoint are left as they were
+        assertEquals("SILVER", custrepo.findByUserId(1012L).getLoyaltyTier());
+        assertEquals("GOLD", custrepo.findByUserId(1020L).getLoyaltyTier());
+    }
+
+    private TierJob awaitFinished(TierJob started) throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            TierJob job = tierJobRepository.findById(started.getId()).orElseThrow();
+            if (!TierJob.RUNNING.equals(job.getStatus())) {
+                return job;
+            }
+            Thread.sleep(50);
+        }
+        fail("Tier recalculation did not finish");
+        return null;
+    }
+}
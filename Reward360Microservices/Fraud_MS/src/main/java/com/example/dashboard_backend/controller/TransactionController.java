@@ -89,6 +89,19 @@ public class TransactionController {
         }
     }
 
+    // ===== Create batch (scored and inserted in one transaction) =====
+    @PostMapping("/batch")
+    public ResponseEntity<?> createBatch(@RequestBody List<Transaction> txs) {
+        try {
+            return ResponseEntity.ok(transactionService.createBatch(txs));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Error creating transactions: " + e.getMessage());
+        } catch (RuntimeException e) {
+            // Database and server failures are worth retrying; the caller backs off on 5xx
+            return ResponseEntity.internalServerError().body("Error creating transactions: " + e.getMessage());
+        }
+    }
+
     // ===== Quick actions =====
     @PostMapping("/{id}/review")
     public ResponseEntity<Transaction> markReview(@PathVariable Long id) {
@@ -1,6 +1,7 @@
 package com.example.dashboard_backend.repository;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -28,4 +29,13 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     List<Transaction> findByUserAndTypeAndCreatedAtAfter(@Param("userId") Long userId,
             @Param("type") String type,
             @Param("after") Instant after);
+
+    // Fraud rule counts, with the same bounds as the finders above: redemptions
+    // from the window start inclusive, account activity after it
+    long countByUserIdAndTypeAndCreatedAtGreaterThanEqual(Long userId, String type, Instant since);
+
+    long countByAccountIdAndCreatedAtAfter(String accountId, Instant after);
+
+    // Batch: rows already stored for redelivered transactions
+    List<Transaction> findByExternalIdIn(Collection<String> externalIds);
 }
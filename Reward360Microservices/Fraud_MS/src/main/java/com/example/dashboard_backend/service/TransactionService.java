@@ -1,5 +1,7 @@
 package com.example.dashboard_backend.service;
 
+import java.util.List;
+
 import com.example.dashboard_backend.entity.Transaction;
 
 /**
@@ -8,4 +10,9 @@ import com.example.dashboard_backend.entity.Transaction;
 public interface TransactionService {
 
     Transaction create(Transaction tx);
+
+    /**
+     * Score and persist a batch of transactions in one database transaction.
+     */
+    List<Transaction> createBatch(List<Transaction> txs);
 }
@@ -1,8 +1,22 @@
 package com.example.dashboard_backend.service.impl;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntSupplier;
 
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -13,10 +27,19 @@ import com.example.dashboard_backend.service.TransactionService;
 @Service
 public class TransactionServiceImpl implements TransactionService {
 
+    private static final String INSERT_SQL = "INSERT INTO transactions (transaction_id, account_id, description, "
+            + "risk_level, status, type, points_earned, points_redeemed, date, note, user_id, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final long REDEMPTION_WINDOW_SECONDS = 600;
+    private static final long ACTIVITY_WINDOW_SECONDS = 3600;
+
     private final TransactionRepository transactionRepository;
+    private final JdbcTemplate jdbcTemplate;
 
-    public TransactionServiceImpl(TransactionRepository transactionRepository) {
+    public TransactionServiceImpl(TransactionRepository transactionRepository, JdbcTemplate jdbcTemplate) {
         this.transactionRepository = transactionRepository;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
     @Override
@@ -30,13 +53,137 @@ public class TransactionServiceImpl implements TransactionService {
         return transactionRepository.save(saved);
     }
 
+    /**
+     * Score every transaction before inserting, so each row is written once,
+     * then insert the whole batch with one JDBC batch. Velocity counts are read
+     * once per user/account and advanced for earlier rows of the same batch, so
+     * each transaction scores as it would through {@link #create}.
+     * Transactions whose external id is already stored (the caller delivers
+     * at-least-once) are not scored or inserted again; the stored row is
+     * returned in their place.
+     */
+    @Override
+    @Transactional
+    public List<Transaction> createBatch(List<Transaction> txs) {
+        if (txs.isEmpty()) {
+            return txs;
+        }
+        Map<String, Transaction> stored = new HashMap<>();
+        List<String> externalIds = txs.stream().map(Transaction::getExternalId).filter(Objects::nonNull)
+                .distinct().toList();
+        if (!externalIds.isEmpty()) {
+            for (Transaction existing : transactionRepository.findByExternalIdIn(externalIds)) {
+                stored.put(existing.getExternalId(), existing);
+            }
+        }
+        List<Transaction> result = new ArrayList<>(txs.size());
+        List<Transaction> fresh = new ArrayList<>(txs.size());
+        for (Transaction tx : txs) {
+            Transaction existing = tx.getExternalId() != null ? stored.get(tx.getExternalId()) : null;
+            if (existing != null) {
+                result.add(existing);
+                continue;
+            }
+            if (tx.getExternalId() != null) {
+                stored.put(tx.getExternalId(), tx); // Repeated within the batch
+            }
+            result.add(tx);
+            fresh.add(tx);
+        }
+        if (fresh.isEmpty()) {
+            return result;
+        }
+
+        Instant now = Instant.now();
+        Instant redemptionWindow = now.minusSeconds(REDEMPTION_WINDOW_SECONDS);
+        Instant activityWindow = now.minusSeconds(ACTIVITY_WINDOW_SECONDS);
+        // Rows in each window: stored ones, then this batch's as they are scored
+        Map<Long, Integer> redemptionsByUser = new HashMap<>();
+        Map<String, Integer> activityByAccount = new HashMap<>();
+
+        for (Transaction tx : fresh) {
+            if (tx.getCreatedAt() == null) {
+                tx.setCreatedAt(now);
+            }
+            int redemptions = 0;
+            if ("REDEMPTION".equals(tx.getType()) && tx.getUserId() != null) {
+                redemptions = redemptionsByUser.computeIfAbsent(tx.getUserId(),
+                        userId -> (int) countRedemptions(userId, redemptionWindow))
+                        + (tx.getCreatedAt().isBefore(redemptionWindow) ? 0 : 1);
+                redemptionsByUser.put(tx.getUserId(), redemptions);
+            }
+            int activity = 0;
+            if (tx.getAccountId() != null) {
+                activity = activityByAccount.computeIfAbsent(tx.getAccountId(),
+                        accountId -> (int) countActivity(accountId, activityWindow))
+                        + (tx.getCreatedAt().isAfter(activityWindow) ? 1 : 0);
+                activityByAccount.put(tx.getAccountId(), activity);
+            }
+
+            // The counts create() sees once this row is stored, with its extra one for redemptions
+            int redemptionCount = redemptions;
+            int activityCount = activity;
+            applyFraudRules(tx, () -> redemptionCount + 1, () -> activityCount);
+        }
+
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Transaction tx = fresh.get(i);
+                        ps.setString(1, tx.getExternalId());
+                        ps.setString(2, tx.getAccountId());
+                        ps.setString(3, tx.getDescription());
+                        ps.setString(4, tx.getRiskLevel());
+                        ps.setString(5, tx.getStatus());
+                        ps.setString(6, tx.getType());
+                        ps.setObject(7, tx.getPointsEarned(), Types.INTEGER);
+                        ps.setObject(8, tx.getPointsRedeemed(), Types.INTEGER);
+                        ps.setObject(9, tx.getDate(), Types.DATE);
+                        ps.setString(10, tx.getNote());
+                        ps.setObject(11, tx.getUserId(), Types.BIGINT);
+                        ps.setTimestamp(12, Timestamp.from(tx.getCreatedAt()));
+                        ps.setTimestamp(13, tx.getUpdatedAt() != null ? Timestamp.from(tx.getUpdatedAt()) : null);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return fresh.size();
+                    }
+                }, keys);
+
+        List<Map<String, Object>> generated = keys.getKeyList();
+        for (int i = 0; i < generated.size() && i < fresh.size(); i++) {
+            Object id = generated.get(i).values().iterator().next();
+            fresh.get(i).setId(((Number) id).longValue());
+        }
+        return result;
+    }
+
+    private void applyFraudRules(Transaction tx) {
+        // Counted after the transaction is stored, so both counts include it
+        applyFraudRules(tx,
+                () -> (int) countRedemptions(tx.getUserId(), Instant.now().minusSeconds(REDEMPTION_WINDOW_SECONDS))
+                        + 1, // Include current transaction
+                () -> (int) countActivity(tx.getAccountId(), Instant.now().minusSeconds(ACTIVITY_WINDOW_SECONDS)));
+    }
+
+    private long countRedemptions(Long userId, Instant since) {
+        return transactionRepository.countByUserIdAndTypeAndCreatedAtGreaterThanEqual(userId, "REDEMPTION", since);
+    }
+
+    private long countActivity(String accountId, Instant after) {
+        return transactionRepository.countByAccountIdAndCreatedAtAfter(accountId, after);
+    }
+
     /**
      * Apply fraud detection rules to a transaction. Rule 1: High value
      * redemptions (>10000 points) Rule 2: Velocity check (multiple redemptions
      * in 10 minutes) Rule 3: Unusual account activity (>20 transactions in 1
-     * hour)
+     * hour). Each count is only evaluated when its rule is reached.
      */
-    private void applyFraudRules(Transaction tx) {
+    private void applyFraudRules(Transaction tx, IntSupplier redemptionCounter, IntSupplier accountActivityCounter) {
         // Rule 1: Check for high value redemptions (potential fraud)
         if (tx.getPointsRedeemed() != null && tx.getPointsRedeemed() > 10000) {
             tx.setRiskLevel("HIGH");
@@ -48,11 +195,7 @@ public class TransactionServiceImpl implements TransactionService {
         // Rule 2: Check for velocity (multiple redemptions in short time)
         if (tx.getType() != null && tx.getType().equals("REDEMPTION")) {
             if (tx.getUserId() != null) {
-                Instant tenMinutesAgo = Instant.now().minusSeconds(600);
-                List<Transaction> recentRedemptions = transactionRepository
-                        .findByUserAndTypeAndCreatedAtAfter(tx.getUserId(), "REDEMPTION", tenMinutesAgo);
-
-                int redemptionCount = recentRedemptions.size() + 1; // Include current transaction
+                int redemptionCount = redemptionCounter.getAsInt();
 
                 if (redemptionCount >= 10) {
                     tx.setRiskLevel("CRITICAL");
@@ -75,11 +218,7 @@ public class TransactionServiceImpl implements TransactionService {
 
         // Rule 3: Check for unusual account activity
         if (tx.getAccountId() != null) {
-            Instant oneHourAgo = Instant.now().minusSeconds(3600);
-            List<Transaction> recentTransactions = transactionRepository
-                    .findByAccountIdAndCreatedAtAfter(tx.getAccountId(), oneHourAgo);
-
-            if (recentTransactions.size() > 20) {
+            if (accountActivityCounter.getAsInt() > 20) {
                 tx.setRiskLevel("MEDIUM");
                 tx.setStatus("REVIEW");
                 tx.setDescription("Flagged: Unusual account activity (>20 transactions in 1 hour)");
@@ -0,0 +1,114 @@
+package com.example.dashboard_backend.service.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.dashboard_backend.entity.Transaction;
+import com.example.dashboard_backend.repository.TransactionRepository;
+
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:fraud;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.sql.init.mode=never"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(TransactionServiceImpl.class)
+public class TransactionServiceImplTest {
+
+    @Configuration
+    @EntityScan(basePackageClasses = Transaction.class)
+    @EnableJpaRepositories(basePackageClasses = TransactionRepository.class)
+    static class Config {
+    }
+
+    @Autowired
+    private TransactionServiceImpl service;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository.deleteAll();
+    }
+
+    @Test
+    public void redeliveredTransactionsAreStoredOnce() {
+        List<Transaction> first = service.createBatch(List.of(redemption("RED-1", 1L), redemption("RED-2", 1L)));
+        assertEquals(2, transactionRepository.count());
+
+        // The same events again, one of them twice, plus a new one
+        List<Transaction> again = service.createBatch(
+                List.of(redemption("RED-1", 1L), redemption("RED-3", 1L), redemption("RED-3", 1L),
+                        redemption("RED-2", 1L)));
+        assertEquals(3, transactionRepository.count());
+        assertEquals(4, again.size());
+        assertEquals(first.get(0).getId(), again.get(0).getId());
+        assertEquals(first.get(1).getId(), again.get(3).getId());
+        assertNotNull(again.get(1).getId());
+    }
+
+    @Test
+    public void batchScoresEqualSingleCreates() {
+        List<String> single = new ArrayList<>();
+        for (Transaction tx : activity()) {
+            single.add(score(service.create(tx)));
+        }
+        transactionRepository.deleteAll();
+
+        List<String> batched = service.createBatch(activity()).stream().map(TransactionServiceImplTest::score)
+                .toList();
+        assertEquals(single, batched);
+        assertTrue(single.stream().anyMatch(score -> score.startsWith("CRITICAL/REVIEW")));
+        assertTrue(single.contains("MEDIUM/REVIEW/Flagged: Unusual account activity (>20 transactions in 1 hour)"));
+    }
+
+    // Redemptions and claims on one account, enough to cross every velocity threshold
+    private static List<Transaction> activity() {
+        List<Transaction> txs = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            Transaction tx = redemption("TX-" + i, 1L);
+            if (i % 3 == 2) {
+                tx.setType("CLAIM");
+                tx.setPointsRedeemed(0);
+                tx.setPointsEarned(50);
+            }
+            txs.add(tx);
+        }
+        return txs;
+    }
+
+    private static String score(Transaction tx) {
+        return tx.getRiskLevel() + "/" + tx.getStatus() + (tx.getDescription() != null ? "/" + tx.getDescription() : "");
+    }
+
+    private static Transaction redemption(String externalId, Long userId) {
+        Transaction tx = new Transaction();
+        tx.setExternalId(externalId);
+        tx.setAccountId("ACC-" + userId);
+        tx.setType("REDEMPTION");
+        tx.setPointsRedeemed(100);
+        tx.setDate(LocalDate.now());
+        tx.setUserId(userId);
+        return tx;
+    }
+}